@@ -0,0 +1,107 @@
+package me.chongwish.jjvm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Clazz;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+/**
+ * The throughput of the guest code executed by the interpreter from the first frame to the last one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class ExecutionBenchmark {
+    @Param({ "LAMBDA", "SWITCH", "REGISTER" })
+    public String engine;
+
+    private ThreadResource threadResource;
+    private Method fibonacci;
+    private Method sort;
+    private Method fields;
+    private Method virtualCalls;
+    private Method interfaceCalls;
+    private Method exceptions;
+
+    /**
+     * The size of the array sorted by {@code Bubble.sort}.
+     */
+    @State(Scope.Thread)
+    public static class SortSize {
+        @Param({ "16", "64", "256" })
+        public int size;
+    }
+
+    @Setup
+    public void setup() {
+        Interpreter.setEngine(Interpreter.Engine.valueOf(engine));
+
+        Clazz calculation = Guest.load("me/chongwish/jjvm/demo/Calculation");
+        fibonacci = calculation.findMethod("fibonacci", "(J)J");
+
+        Clazz workload = Guest.load("me/chongwish/jjvm/jmh/Workload");
+        sort = workload.findMethod("sort", "(I)V");
+        fields = workload.findMethod("fields", "(I)V");
+        virtualCalls = workload.findMethod("virtualCalls", "(I)V");
+        interfaceCalls = workload.findMethod("interfaceCalls", "(I)V");
+        exceptions = workload.findMethod("exceptions", "(I)V");
+
+        threadResource = ThreadResource.getCurrentThreadResource();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+    }
+
+    private void execute(Method method, Object argument) {
+        Interpreter.init(threadResource).read(method).with(argument).execute();
+    }
+
+    @Benchmark
+    public void fibonacci() {
+        execute(fibonacci, 15L);
+    }
+
+    @Benchmark
+    public void sort(SortSize sortSize) {
+        execute(sort, sortSize.size);
+    }
+
+    @Benchmark
+    public void fields() {
+        execute(fields, 100);
+    }
+
+    @Benchmark
+    public void virtualCalls() {
+        execute(virtualCalls, 100);
+    }
+
+    @Benchmark
+    public void interfaceCalls() {
+        execute(interfaceCalls, 100);
+    }
+
+    @Benchmark
+    public void exceptions() {
+        execute(exceptions, 10);
+    }
+}
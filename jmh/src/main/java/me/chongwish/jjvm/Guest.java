@@ -0,0 +1,51 @@
+package me.chongwish.jjvm;
+
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Clazz;
+
+import me.chongwish.jjvm.demo.Calculation;
+import me.chongwish.jjvm.jmh.Workload;
+
+/**
+ * Load the guest classes of the benchmarks into the jjvm of the current thread.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * {@code Guest.load("me/chongwish/jjvm/jmh/Workload")}
+ */
+final class Guest {
+    private Guest() {}
+
+    /**
+     * Load a class from the directory or the jar of the demo project and the benchmark project.
+     *
+     * @param className
+     *        the internal name of the class
+     * @return a instance of class {@code Clazz}
+     */
+    static Clazz load(String className) {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add(locationOf(Workload.class));
+        classpaths.add(locationOf(Calculation.class));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        new ClassLoader().load(className);
+        return MethodArea.findClazz(className);
+    }
+
+    private static String locationOf(Class<?> clazz) {
+        try {
+            return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("Class " + clazz.getName() + " has a invalid location.", e);
+        }
+    }
+}
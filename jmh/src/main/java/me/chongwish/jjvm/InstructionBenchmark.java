@@ -0,0 +1,169 @@
+package me.chongwish.jjvm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Clazz;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+/**
+ * The throughput of the handlers of {@code Instruction.Set}, every handler is executed alone in the frame of
+ * {@code Workload.kernel}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionBenchmark {
+    private Frame frame;
+    private Bytecode bytecode;
+    private Frame.OperandStack operandStack;
+    private Frame.LocalVariable localVariable;
+
+    /**
+     * The pc of the instruction which has a operand, and the local variable of iinc
+     */
+    private int iincPc;
+    private int iincIndex;
+    private int getstaticPc;
+
+    @Setup
+    public void setup() {
+        Clazz clazz = Guest.load("me/chongwish/jjvm/jmh/Workload");
+        Method method = clazz.findMethod("kernel", "(IJ)J");
+
+        frame = new Frame(method, ThreadResource.getCurrentThreadResource());
+        bytecode = frame.getBytecode();
+        operandStack = frame.getOperandStack();
+        localVariable = frame.getLocalVariable();
+        localVariable.set(0, 7);
+        localVariable.set(1, 7L);
+
+        for (Bytecode.Operation operation : method.getDecodedCode().getOperations()) {
+            if (operation.getOpcode() == 0x84) {
+                iincPc = operation.getPc();
+                iincIndex = operation.getOperand();
+                localVariable.set(iincIndex, 7);
+            } else if (operation.getOpcode() == 0xb2) {
+                getstaticPc = operation.getPc();
+            }
+        }
+    }
+
+    private void execute(int opcode) {
+        Instruction.Set[opcode].execute(frame, bytecode);
+    }
+
+    /**
+     * Make the instruction at the given pc current.
+     */
+    private Bytecode.Operation moveTo(int pc) {
+        bytecode.setPc(pc);
+        return bytecode.next();
+    }
+
+    @Benchmark
+    public int iconst_1() {
+        execute(0x04);
+        return operandStack.popInt();
+    }
+
+    @Benchmark
+    public int iload_0() {
+        execute(0x1a);
+        return operandStack.popInt();
+    }
+
+    @Benchmark
+    public int istore_0() {
+        operandStack.push(7);
+        execute(0x3b);
+        return localVariable.getInt(0);
+    }
+
+    @Benchmark
+    public int iadd() {
+        operandStack.push(3);
+        operandStack.push(4);
+        execute(0x60);
+        return operandStack.popInt();
+    }
+
+    @Benchmark
+    public long ladd() {
+        operandStack.push(3L);
+        operandStack.push(4L);
+        execute(0x61);
+        return operandStack.popLong();
+    }
+
+    @Benchmark
+    public double dadd() {
+        operandStack.push(3.0);
+        operandStack.push(4.0);
+        execute(0x63);
+        return operandStack.popDouble();
+    }
+
+    @Benchmark
+    public int imul() {
+        operandStack.push(3);
+        operandStack.push(4);
+        execute(0x68);
+        return operandStack.popInt();
+    }
+
+    @Benchmark
+    public long i2l() {
+        operandStack.push(3);
+        execute(0x85);
+        return operandStack.popLong();
+    }
+
+    @Benchmark
+    public int lcmp() {
+        operandStack.push(3L);
+        operandStack.push(4L);
+        execute(0x94);
+        return operandStack.popInt();
+    }
+
+    @Benchmark
+    public int iinc() {
+        moveTo(iincPc);
+        execute(0x84);
+        return localVariable.getInt(iincIndex);
+    }
+
+    /**
+     * The field is resolved every time.
+     */
+    @Benchmark
+    public int getstatic() {
+        moveTo(getstaticPc);
+        execute(0xb2);
+        return operandStack.popInt();
+    }
+
+    /**
+     * The quick variant installed by the first execution.
+     */
+    @Benchmark
+    public int getstaticQuick() {
+        moveTo(getstaticPc).getHandler().execute(frame, bytecode);
+        return operandStack.popInt();
+    }
+}
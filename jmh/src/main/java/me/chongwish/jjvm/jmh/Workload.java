@@ -0,0 +1,114 @@
+package me.chongwish.jjvm.jmh;
+
+import me.chongwish.jjvm.demo.FieldData;
+import me.chongwish.jjvm.demo.sort.Bubble;
+import me.chongwish.jjvm.demo.sort.Sort;
+
+/**
+ * The guest code executed by the benchmarks.
+ */
+public class Workload {
+    public static int counter;
+
+    public interface Shape {
+        int area();
+    }
+
+    public static class Square implements Shape {
+        int side;
+
+        Square(int side) {
+            this.side = side;
+        }
+
+        @Override
+        public int area() {
+            return side * side;
+        }
+
+        public int perimeter() {
+            return side * 4;
+        }
+    }
+
+    public static class Rectangle extends Square {
+        int height;
+
+        Rectangle(int side, int height) {
+            super(side);
+            this.height = height;
+        }
+
+        @Override
+        public int area() {
+            return side * height;
+        }
+
+        @Override
+        public int perimeter() {
+            return (side + height) * 2;
+        }
+    }
+
+    public static void sort(int size) {
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            array[i] = size - i;
+        }
+        Sort<Integer> sort = new Bubble<>();
+        sort.sort(array);
+    }
+
+    public static void fields(int n) {
+        FieldData fieldData = new FieldData();
+        for (int i = 0; i < n; ++i) {
+            fieldData.intField1 += i;
+            fieldData.intField2 = fieldData.intField1 ^ i;
+            fieldData.floatField1 = fieldData.intField2;
+            fieldData.doubleField1 += fieldData.floatField1;
+            FieldData.doubleStaticField += fieldData.intField2;
+        }
+    }
+
+    public static void virtualCalls(int n) {
+        // the call site meets the receivers of two classes
+        Square[] squares = new Square[] { new Square(3), new Rectangle(3, 4) };
+        int sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += squares[i & 1].perimeter();
+        }
+        counter += sum;
+    }
+
+    public static void interfaceCalls(int n) {
+        Shape[] shapes = new Shape[] { new Square(3), new Rectangle(3, 4) };
+        int sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += shapes[i & 1].area();
+        }
+        counter += sum;
+    }
+
+    public static void fail(int i) {
+        if (i >= 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    public static void exceptions(int n) {
+        for (int i = 0; i < n; ++i) {
+            try {
+                fail(i);
+            } catch (IllegalStateException e) {
+                counter++;
+            }
+        }
+    }
+
+    public static long kernel(int a, long l) {
+        // iinc getstatic, and the OperandStack holds two long
+        int b = a;
+        b += 1;
+        return (b + counter) * l + l;
+    }
+}
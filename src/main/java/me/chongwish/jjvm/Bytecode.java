@@ -1,128 +1,499 @@
 package me.chongwish.jjvm;
 
-import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
 
 /**
- * Class Bytecode is a encapsulation of bytecode. It make the operation of bytecode like the way to operate class
- * ByteBuffer.
+ * Class Bytecode is a cursor of the pre-decoded code of a method.
+ * <p>
+ * The code of a method is decoded only once into a array of class {@code Operation}. Every operation holds the
+ * handler of its instruction and its decoded operands, and the target of a branch has been turned into a index of
+ * that array, so nothing is decoded byte by byte when the instruction is executed.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * {@code bytecode.next().getHandler().execute(frame, bytecode)}
  */
 final class Bytecode {
     /**
-     * bytecode
+     * The frame which owns the code
      */
-    private byte[] code;
+    private Frame frame;
 
     /**
-     * The index of bytecode
+     * The method which owns the code
      */
-    private int pc;
+    private Method method;
 
-    public int getPc() {
-        return pc;
+    /**
+     * Pre-decoded code
+     */
+    private DecodedCode decodedCode;
+
+    /**
+     * The index of the next operation
+     */
+    private int index;
+
+    /**
+     * The operation which is executing
+     */
+    private Operation current;
+
+    public Bytecode(Frame frame) {
+        this.frame = frame;
+        reset();
     }
 
-    public void setPc(int pc) {
-        this.pc = pc;
+    /**
+     * Move to the first operation of the method of the frame, it is used when the frame is reused.
+     */
+    public void reset() {
+        if (method != frame.getMethod()) {
+            method = frame.getMethod();
+            decodedCode = method.getDecodedCode();
+        }
+        index = 0;
+        current = null;
     }
 
-    public Bytecode(byte[] code) {
-        this(code, 0);
+    /**
+     * Get the index of the next operation.
+     */
+    public int getIndex() {
+        return index;
     }
 
-    public Bytecode(byte[] code, int pc) {
-        this.code = code;
-        this.pc = pc;
+    /**
+     * Get the pc of the next operation in the original code.
+     */
+    public int getPc() {
+        Operation[] operations = decodedCode.operations;
+        return index < operations.length ? operations[index].pc : decodedCode.length;
     }
 
     /**
-     * Get a 8-bit value from bytecode, and the index plus 1.
+     * Get the pc of the current operation in the original code, it is the instruction which is executing.
      */
-    public byte get() {
-        return code[pc++];
+    public int getCurrentPc() {
+        return current.pc;
     }
 
     /**
-     * Get a 8-bit unsigned value from bytecode, and the index plus 1.
+     * Move to the operation which starts at the given pc of the original code.
      */
-    public int getU1() {
-        int a = code[pc++];
-        return a & 0xff;
+    public void setPc(int pc) {
+        int target = decodedCode.indexes[pc];
+        if (target < 0) {
+            throw new RuntimeException("There is no instruction at pc " + pc + ".");
+        }
+        index = target;
     }
 
     /**
-     * Get a 16-bit value from bytecode, and the index plus 2.
+     * Get the next operation and make it current, and the index plus 1.
      */
-    public int getShort() {
-        int result = peekChar();
-        pc += 2;
-        return result;
+    public Operation next() {
+        current = decodedCode.operations[index++];
+        return current;
     }
 
     /**
-     * Get a 16-bit unsigned value from bytecode.
+     * Get the first operand of the current operation.
      */
-    public int peekShort() {
-        int a = code[pc];
-        int b = code[pc + 1];
-        return a << 8 | b;
+    public int getOperand() {
+        return current.operand;
     }
 
     /**
-     * Get a 16-bit unsigned value from bytecode, and the index plus 2.
+     * Get the second operand of the current operation.
      */
-    public int getChar() {
-        int result = peekChar();
-        pc += 2;
-        return result;
+    public int getSecondOperand() {
+        return current.secondOperand;
     }
 
     /**
-     * Get a 16-bit unsigned value from bytecode.
+     * Get the keys of the current lookupswitch operation.
      */
-    public int peekChar() {
-        int a = code[pc];
-        int b = code[pc + 1] & 0xff;
-        return a << 8 | b;
+    public int[] getKeys() {
+        return current.keys;
     }
 
     /**
-     * Get a 32-bit unsigned value from bytecode, and the index plus 4.
+     * Get the branch targets of the current tableswitch or lookupswitch operation.
      */
-    public int getInt() {
-        int result = peekInt();
-        pc += 4;
-        return result;
+    public int[] getTargets() {
+        return current.targets;
     }
 
     /**
-     * Get a 32-bit unsigned value from bytecode.
+     * Jump to the branch target of the current operation.
      */
-    public int peekInt() {
-        int a = code[pc];
-        int b = code[pc + 1];
-        int c = code[pc + 2];
-        int d = code[pc + 3] & 0xff;
-        return a << 24 | b << 16 | c << 8 | d;
+    public void jump() {
+        jump(current.operand);
     }
 
     /**
-     * Offset the index of bytecode.
+     * Jump to the given index of operation, a jump backward is counted as a back edge of a loop.
+     * <p>
+     * If the loop has been compiled, the loop is executed by the compiled code from the loop header, and the next
+     * operation is the one where the compiled code jumps out of the loop.
      */
-    public void jump(Supplier<Integer> s) {
-        pc += s.get() - 1;
+    public void jump(int target) {
+        if (target < index) {
+            Compiler.OsrEntry osrEntry = Compiler.countBackEdge(method, decodedCode.operations[target].pc);
+            if (osrEntry != null && frame.getOperandStack().isEmpty()) {
+                target = decodedCode.indexes[osrEntry.invoke(frame.getLocalVariable(), frame.getOperandStack())];
+            }
+        }
+        index = target;
     }
 
     /**
-     * 16-bit Offset the index of bytecode.
+     * Replace the handler of the current operation.
+     * <p>
+     * It is used to rewrite a instruction into its quick variant once the instruction has been resolved.
      */
-    public void jump() {
-        jump(this::peekChar);
+    public void quicken(Instruction.Handler handler) {
+        current.handler = handler;
     }
 
     /**
      * EOF helper function.
      */
     public boolean eof() {
-        return pc >= code.length - 1;
+        return index >= decodedCode.operations.length;
+    }
+
+    /**
+     * Decode the code of a method.
+     *
+     * @param code
+     *        the code of a method
+     * @return a instance of class {@code DecodedCode}
+     */
+    public static DecodedCode decode(byte[] code) {
+        List<Operation> operations = new ArrayList<>();
+        int[] indexes = new int[code.length];
+        Arrays.fill(indexes, -1);
+
+        int pc = 0;
+        while (pc < code.length) {
+            Operation operation = new Operation();
+            operation.pc = pc;
+            operation.opcode = code[pc++] & 0xff;
+
+            switch (operation.opcode) {
+                // bipush
+                case 0x10:
+                    operation.operand = code[pc];
+                    pc += 1;
+                    break;
+
+                // sipush
+                case 0x11:
+                    operation.operand = readShort(code, pc);
+                    pc += 2;
+                    break;
+
+                // ldc [i|l|f|d|a]load [i|l|f|d|a]store ret newarray
+                case 0x12:
+                case 0x15:
+                case 0x16:
+                case 0x17:
+                case 0x18:
+                case 0x19:
+                case 0x36:
+                case 0x37:
+                case 0x38:
+                case 0x39:
+                case 0x3a:
+                case 0xa9:
+                case 0xbc:
+                    operation.operand = code[pc] & 0xff;
+                    pc += 1;
+                    break;
+
+                // ldc_w ldc2_w [get|put][static|field] invoke[virtual|special|static]
+                // new anewarray checkcast instanceof
+                case 0x13:
+                case 0x14:
+                case 0xb2:
+                case 0xb3:
+                case 0xb4:
+                case 0xb5:
+                case 0xb6:
+                case 0xb7:
+                case 0xb8:
+                case 0xbb:
+                case 0xbd:
+                case 0xc0:
+                case 0xc1:
+                    operation.operand = readChar(code, pc);
+                    pc += 2;
+                    break;
+
+                // iinc
+                case 0x84:
+                    operation.operand = code[pc] & 0xff;
+                    operation.secondOperand = code[pc + 1];
+                    pc += 2;
+                    break;
+
+                // if_xx ifxx goto jsr ifnull ifnonnull
+                case 0x99:
+                case 0x9a:
+                case 0x9b:
+                case 0x9c:
+                case 0x9d:
+                case 0x9e:
+                case 0x9f:
+                case 0xa0:
+                case 0xa1:
+                case 0xa2:
+                case 0xa3:
+                case 0xa4:
+                case 0xa5:
+                case 0xa6:
+                case 0xa7:
+                case 0xa8:
+                case 0xc6:
+                case 0xc7:
+                    operation.operand = operation.pc + readShort(code, pc);
+                    pc += 2;
+                    break;
+
+                // goto_w jsr_w
+                case 0xc8:
+                case 0xc9:
+                    operation.operand = operation.pc + readInt(code, pc);
+                    pc += 4;
+                    break;
+
+                // tableswitch
+                case 0xaa: {
+                    pc = (pc + 3) & ~3;
+                    operation.operand = operation.pc + readInt(code, pc);
+                    final int low = readInt(code, pc + 4);
+                    final int high = readInt(code, pc + 8);
+                    pc += 12;
+                    operation.secondOperand = low;
+                    operation.targets = new int[high - low + 1];
+                    for (int i = 0; i < operation.targets.length; ++i) {
+                        operation.targets[i] = operation.pc + readInt(code, pc);
+                        pc += 4;
+                    }
+                    break;
+                }
+
+                // lookupswitch
+                case 0xab: {
+                    pc = (pc + 3) & ~3;
+                    operation.operand = operation.pc + readInt(code, pc);
+                    final int n = readInt(code, pc + 4);
+                    pc += 8;
+                    operation.keys = new int[n];
+                    operation.targets = new int[n];
+                    for (int i = 0; i < n; ++i) {
+                        operation.keys[i] = readInt(code, pc);
+                        operation.targets[i] = operation.pc + readInt(code, pc + 4);
+                        pc += 8;
+                    }
+                    break;
+                }
+
+                // invokeinterface
+                case 0xb9:
+                    operation.operand = readChar(code, pc);
+                    operation.secondOperand = code[pc + 2] & 0xff;
+                    pc += 4;
+                    break;
+
+                // invokedynamic
+                case 0xba:
+                    operation.operand = readChar(code, pc);
+                    pc += 4;
+                    break;
+
+                // multianewarray
+                case 0xc5:
+                    operation.operand = readChar(code, pc);
+                    operation.secondOperand = code[pc + 2] & 0xff;
+                    pc += 3;
+                    break;
+
+                // wide, it is decoded as the instruction which it modifies
+                case 0xc4:
+                    operation.opcode = code[pc] & 0xff;
+                    operation.operand = readChar(code, pc + 1);
+                    pc += 3;
+                    if (operation.opcode == 0x84) {
+                        operation.secondOperand = readShort(code, pc);
+                        pc += 2;
+                    }
+                    break;
+            }
+
+            operation.handler = Instruction.Set[operation.opcode];
+            indexes[operation.pc] = operations.size();
+            operations.add(operation);
+        }
+
+        // turn the branch target from a pc to a index of operation
+        for (Operation operation : operations) {
+            switch (operation.opcode) {
+                case 0xaa:
+                case 0xab:
+                    for (int i = 0; i < operation.targets.length; ++i) {
+                        operation.targets[i] = indexes[operation.targets[i]];
+                    }
+                    operation.operand = indexes[operation.operand];
+                    break;
+                case 0x99:
+                case 0x9a:
+                case 0x9b:
+                case 0x9c:
+                case 0x9d:
+                case 0x9e:
+                case 0x9f:
+                case 0xa0:
+                case 0xa1:
+                case 0xa2:
+                case 0xa3:
+                case 0xa4:
+                case 0xa5:
+                case 0xa6:
+                case 0xa7:
+                case 0xa8:
+                case 0xc6:
+                case 0xc7:
+                case 0xc8:
+                case 0xc9:
+                    operation.operand = indexes[operation.operand];
+                    break;
+            }
+        }
+
+        DecodedCode decodedCode = new DecodedCode();
+        decodedCode.operations = operations.toArray(new Operation[0]);
+        Instruction.Superinstruction.fuse(decodedCode.operations);
+        decodedCode.indexes = indexes;
+        decodedCode.length = code.length;
+        return decodedCode;
+    }
+
+    /**
+     * Get a 16-bit signed value from code.
+     */
+    private static int readShort(byte[] code, int pc) {
+        return code[pc] << 8 | code[pc + 1] & 0xff;
+    }
+
+    /**
+     * Get a 16-bit unsigned value from code.
+     */
+    private static int readChar(byte[] code, int pc) {
+        return (code[pc] & 0xff) << 8 | code[pc + 1] & 0xff;
+    }
+
+    /**
+     * Get a 32-bit signed value from code.
+     */
+    private static int readInt(byte[] code, int pc) {
+        return code[pc] << 24 | (code[pc + 1] & 0xff) << 16 | (code[pc + 2] & 0xff) << 8 | code[pc + 3] & 0xff;
+    }
+
+    /**
+     * The pre-decoded code of a method.
+     */
+    final public static class DecodedCode {
+        private Operation[] operations;
+
+        /**
+         * The index of operation by the pc of the original code, it is -1 when a instruction does not start at the pc.
+         */
+        private int[] indexes;
+
+        /**
+         * Length of the original code
+         */
+        private int length;
+
+        public Operation[] getOperations() {
+            return operations;
+        }
+
+        /**
+         * Get the index of the operation which starts at the given pc, or -1.
+         */
+        public int indexOf(int pc) {
+            return pc >= 0 && pc < indexes.length ? indexes[pc] : -1;
+        }
+    }
+
+    /**
+     * A decoded instruction.
+     */
+    final public static class Operation {
+        private int opcode;
+
+        /**
+         * The handler of the instruction, or the handler of its quick variant after the instruction is resolved, or
+         * the handler of a superinstruction which starts with this operation
+         */
+        private Instruction.Handler handler;
+
+        /**
+         * The pc of the instruction in the original code
+         */
+        private int pc;
+
+        /**
+         * The first operand, it is a index of operation when the instruction is a branch
+         */
+        private int operand;
+
+        private int secondOperand;
+
+        /**
+         * The keys of lookupswitch
+         */
+        private int[] keys;
+
+        /**
+         * The branch targets of tableswitch and lookupswitch
+         */
+        private int[] targets;
+
+        public int getOpcode() {
+            return opcode;
+        }
+
+        public Instruction.Handler getHandler() {
+            return handler;
+        }
+
+        public void setHandler(Instruction.Handler handler) {
+            this.handler = handler;
+        }
+
+        public int getPc() {
+            return pc;
+        }
+
+        public int getOperand() {
+            return operand;
+        }
+
+        public int getSecondOperand() {
+            return secondOperand;
+        }
+
+        public int[] getTargets() {
+            return targets;
+        }
     }
 }
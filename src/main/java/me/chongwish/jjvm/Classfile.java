@@ -431,6 +431,19 @@ final class Classfile {
             return constantPool[(int)constantPool[superClass].value].value.toString();
         }
 
+        /**
+         * Get the name of the source file from the attribute {@code SourceFile}, or null if the class has not it.
+         */
+        public String getSourceFileName() {
+            for (final Attribute attribute : attributes) {
+                if (attribute instanceof AttributePredefined.SourceFile) {
+                    return constantPool[((AttributePredefined.SourceFile)attribute).getSourceFileIndex()].value
+                            .toString();
+                }
+            }
+            return null;
+        }
+
         public List<String> getInterfaceNameList() {
             final List<String> result = new ArrayList<>();
             for (final int i : interfaces) {
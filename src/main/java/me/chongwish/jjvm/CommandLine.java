@@ -14,6 +14,13 @@ import java.util.List;
  * <li>{@code jjvm -help}: display manual</li>
  * <li>{@code jjvm -version}:display version</li>
  * <li>{@code jjvm -cp path1 -classpath path2 main.class -name value}</li>
+ * <li>{@code jjvm -interpreter switch main.class}</li>
+ * <li>{@code jjvm -interpreter register main.class}</li>
+ * <li>{@code jjvm -superinstruction record -histogram pair.histogram main.class}</li>
+ * <li>{@code jjvm -jit main.class}</li>
+ * <li>{@code jjvm -jit -profiledthreshold 100 -optimizedthreshold 1000 -osrthreshold 10000 main.class}</li>
+ * <li>{@code jjvm -Xss512k main.class}</li>
+ * <li>{@code jjvm -Xmx64m main.class}</li>
  * </ul>
  * 
  * <b>Usage</b>:
@@ -35,18 +42,92 @@ import java.util.List;
  * And the argument which will be passed to the class is:
  * <p>
  * {@code commandline.getUserArgs() // -name value}
+ * <p>
+ * The engine of the interpreter is {@code lambda} by default:
+ * <p>
+ * {@code commandline.getEngine() // Interpreter.Engine.LAMBDA}
+ * <p>
+ * The superinstruction mode is {@code default} by default:
+ * <p>
+ * {@code commandline.getSuperinstruction() // Instruction.Superinstruction.Mode.DEFAULT}
+ * <p>
+ * The compiler is disabled by default:
+ * <p>
+ * {@code commandline.isJit() // false}
+ * <p>
+ * The max size of the java stack is 1m by default:
+ * <p>
+ * {@code commandline.getStackSize() // 1048576}
+ * <p>
+ * The instances are kept by the host heap by default:
+ * <p>
+ * {@code commandline.getHeapSize() // 0}
  * 
  */
 public class CommandLine {
     private static final List<String> VERSION_IDENTIFIERS = Arrays.asList("-version");
     private static final List<String> HELP_IDENTIFIERS = Arrays.asList("-?", "-help");
     private static final List<String> CLASSPATHS_IDENTIFIERS = Arrays.asList("-cp", "-classpath");
+    private static final List<String> ENGINE_IDENTIFIERS = Arrays.asList("-interpreter");
+    private static final List<String> SUPERINSTRUCTION_IDENTIFIERS = Arrays.asList("-superinstruction");
+    private static final List<String> HISTOGRAM_IDENTIFIERS = Arrays.asList("-histogram");
+    private static final List<String> JIT_IDENTIFIERS = Arrays.asList("-jit");
+    private static final List<String> PROFILED_THRESHOLD_IDENTIFIERS = Arrays.asList("-profiledthreshold");
+    private static final List<String> OPTIMIZED_THRESHOLD_IDENTIFIERS = Arrays.asList("-optimizedthreshold");
+    private static final List<String> OSR_THRESHOLD_IDENTIFIERS = Arrays.asList("-osrthreshold");
+    private static final List<String> STACK_SIZE_IDENTIFIERS = Arrays.asList("-Xss");
+    private static final List<String> HEAP_SIZE_IDENTIFIERS = Arrays.asList("-Xmx");
 
     /**
      * Classpath list
      */
     private List<String> classpaths = new ArrayList<>();
 
+    /**
+     * Interpreter engine
+     */
+    private Interpreter.Engine engine = Interpreter.Engine.LAMBDA;
+
+    /**
+     * Superinstruction mode
+     */
+    private Instruction.Superinstruction.Mode superinstruction = Instruction.Superinstruction.Mode.DEFAULT;
+
+    /**
+     * Opcode pair histogram file
+     */
+    private String histogram;
+
+    /**
+     * Compile the hot method
+     */
+    private boolean jit = false;
+
+    /**
+     * Quantity of invocation and back edge which promotes a method to the profiled tier
+     */
+    private int profiledThreshold = Compiler.DEFAULT_PROFILED_THRESHOLD;
+
+    /**
+     * Quantity of invocation and back edge which promotes a method to the optimized tier
+     */
+    private int optimizedThreshold = Compiler.DEFAULT_OPTIMIZED_THRESHOLD;
+
+    /**
+     * Quantity of back edge which makes a loop compiled
+     */
+    private int osrThreshold = Compiler.DEFAULT_OSR_THRESHOLD;
+
+    /**
+     * Max size of the java stack
+     */
+    private long stackSize = RuntimeDataArea.JavaStack.DEFAULT_MAX_SIZE;
+
+    /**
+     * Size of the managed heap, 0 means the host heap
+     */
+    private long heapSize = 0;
+
     /**
      * Main class name
      */
@@ -124,13 +205,22 @@ public class CommandLine {
     }
 
     /**
-     * Divide the argument list into five categories:
+     * Divide the argument list into fourteen categories:
      * <p>
      * 
      * <ol>
      * <li>version flag
      * <li>help flag
      * <li>classpath list
+     * <li>interpreter engine
+     * <li>superinstruction mode
+     * <li>opcode pair histogram file
+     * <li>jit flag
+     * <li>profiled tier threshold
+     * <li>optimized tier threshold
+     * <li>osr threshold
+     * <li>max size of the java stack
+     * <li>size of the managed heap
      * <li>main class name
      * <li>main class argument list
      * </ol>
@@ -175,6 +265,138 @@ public class CommandLine {
                 }
             }
 
+            // interpreter engine
+            for (String v : ENGINE_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        try {
+                            engine = Interpreter.Engine.valueOf(args.get(i).toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("JJVM's -interpreter can not be " + args.get(i) + "!");
+                            showHelp();
+                        }
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -interpreter needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // superinstruction mode
+            for (String v : SUPERINSTRUCTION_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        try {
+                            superinstruction = Instruction.Superinstruction.Mode.valueOf(args.get(i).toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("JJVM's -superinstruction can not be " + args.get(i) + "!");
+                            showHelp();
+                        }
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -superinstruction needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // opcode pair histogram file
+            for (String v : HISTOGRAM_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        histogram = args.get(i);
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -histogram needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // jit
+            for (String v : JIT_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    jit = true;
+                    clazzI = i + 1;
+                    continue outter;
+                }
+            }
+
+            // profiled tier threshold
+            for (String v : PROFILED_THRESHOLD_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        profiledThreshold = parseThreshold(v, args.get(i));
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -profiledthreshold needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // optimized tier threshold
+            for (String v : OPTIMIZED_THRESHOLD_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        optimizedThreshold = parseThreshold(v, args.get(i));
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -optimizedthreshold needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // osr threshold
+            for (String v : OSR_THRESHOLD_IDENTIFIERS) {
+                if (args.get(i).equals(v)) {
+                    if (i + 1 < args.size()) {
+                        i++;
+                        osrThreshold = parseThreshold(v, args.get(i));
+                        clazzI = i + 1;
+                        continue outter;
+                    } else {
+                        System.err.println("JJVM's -osrthreshold needs a argument!");
+                        showHelp();
+                    }
+                }
+            }
+
+            // max size of the java stack, the size follows the identifier just like -Xss512k
+            for (String v : STACK_SIZE_IDENTIFIERS) {
+                if (args.get(i).startsWith(v)) {
+                    stackSize = parseSize(v, args.get(i).substring(v.length()));
+                    clazzI = i + 1;
+                    continue outter;
+                }
+            }
+
+            // size of the managed heap, just like -Xmx64m
+            for (String v : HEAP_SIZE_IDENTIFIERS) {
+                if (args.get(i).startsWith(v)) {
+                    heapSize = parseSize(v, args.get(i).substring(v.length()));
+                    if (heapSize > RuntimeDataArea.Heap.Space.MAX_CAPACITY) {
+                        System.err.println("JJVM's " + v + " can not be larger than "
+                                + RuntimeDataArea.Heap.Space.MAX_CAPACITY + " bytes!");
+                        showHelp();
+                    }
+                    clazzI = i + 1;
+                    continue outter;
+                }
+            }
+
             // no other jvm argument here
 
             if (clazzI < args.size()) {
@@ -190,23 +412,100 @@ public class CommandLine {
             showHelp();
         }
 
+        if (histogram == null && (superinstruction == Instruction.Superinstruction.Mode.RECORD
+                || superinstruction == Instruction.Superinstruction.Mode.PROFILE)) {
+            System.err.println("JJVM's -superinstruction " + superinstruction.name().toLowerCase()
+                    + " needs a -histogram file!");
+            showHelp();
+        }
+
         // the other arugment is main class argument
         for (int i = clazzI + 1; i < args.size(); ++i) {
             userArgs.add(args.get(i));
         }
     }
 
+    /**
+     * Parse a threshold of the compilation policy, it must be a positive number.
+     */
+    private int parseThreshold(String identifier, String value) {
+        try {
+            int threshold = Integer.parseInt(value);
+            if (threshold > 0) {
+                return threshold;
+            }
+        } catch (NumberFormatException e) {
+            // it is reported below
+        }
+        System.err.println("JJVM's " + identifier + " can not be " + value + "!");
+        showHelp();
+        return 0;
+    }
+
+    /**
+     * Parse a size in bytes, it must be a positive number which may be followed by a unit k, m or g.
+     */
+    private long parseSize(String identifier, String value) {
+        long unit = 1;
+        String number = value;
+        if (!value.isEmpty()) {
+            switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+                case 'k':
+                    unit = 1024;
+                    break;
+                case 'm':
+                    unit = 1024 * 1024;
+                    break;
+                case 'g':
+                    unit = 1024 * 1024 * 1024;
+                    break;
+            }
+            if (unit != 1) {
+                number = value.substring(0, value.length() - 1);
+            }
+        }
+        try {
+            long size = Long.parseLong(number);
+            if (size > 0) {
+                return size * unit;
+            }
+        } catch (NumberFormatException e) {
+            // it is reported below
+        }
+        System.err.println("JJVM's " + identifier + " can not be " + value + "!");
+        showHelp();
+        return 0;
+    }
+
     public void showVersion() {
         System.out.println("JJVM version 0.0.2");
         System.exit(0);
     }
 
     public void showHelp() {
-        System.out.println("JJVM [-version] [-?|-help] [-cp|-classpath $path]... clazz [$argv...]");
+        System.out.println(
+                "JJVM [-version] [-?|-help] [-cp|-classpath $path]... [-interpreter $engine] [-superinstruction $mode]"
+                        + " [-histogram $file] [-jit] [-profiledthreshold $count] [-optimizedthreshold $count]"
+                        + " [-osrthreshold $count] [-Xss$size] [-Xmx$size] clazz [$argv...]");
         System.out.println("\tclazz $argv: Main class and it's argument");
         System.out.println("\t-version: Show version");
         System.out.println("\t-?, -help: Show manual");
         System.out.println("\t-cp, -classpath $path: Classpath");
+        System.out.println("\t-interpreter $engine: Interpreter engine, lambda (default), switch or register");
+        System.out.println("\t-superinstruction $mode: Superinstruction mode, none, default (default), record"
+                + " (count opcode pairs to the histogram file) or profile (fuse the frequent pairs of it)");
+        System.out.println("\t-histogram $file: Opcode pair histogram file");
+        System.out.println("\t-jit: Compile the hot method to the class of the host jvm");
+        System.out.println("\t-profiledthreshold $count: Quantity of invocation and back edge which makes a method"
+                + " a candidate of compilation, " + Compiler.DEFAULT_PROFILED_THRESHOLD + " by default");
+        System.out.println("\t-optimizedthreshold $count: Quantity of invocation and back edge which makes a method"
+                + " compiled, " + Compiler.DEFAULT_OPTIMIZED_THRESHOLD + " by default");
+        System.out.println("\t-osrthreshold $count: Quantity of back edge which makes a loop compiled, "
+                + Compiler.DEFAULT_OSR_THRESHOLD + " by default");
+        System.out.println("\t-Xss$size: Max size of the java stack of a thread, such as 512k or 1m, a deeper"
+                + " invocation throws a StackOverflowError, 1m by default");
+        System.out.println("\t-Xmx$size: Size of the managed heap which keeps the instances and the arrays out of"
+                + " the host heap, such as 64m, they are kept by the host heap by default");
         System.exit(0);
     }
 
@@ -222,6 +521,42 @@ public class CommandLine {
         return userArgs;
     }
 
+    public Interpreter.Engine getEngine() {
+        return engine;
+    }
+
+    public Instruction.Superinstruction.Mode getSuperinstruction() {
+        return superinstruction;
+    }
+
+    public String getHistogram() {
+        return histogram;
+    }
+
+    public boolean isJit() {
+        return jit;
+    }
+
+    public int getProfiledThreshold() {
+        return profiledThreshold;
+    }
+
+    public int getOptimizedThreshold() {
+        return optimizedThreshold;
+    }
+
+    public int getOsrThreshold() {
+        return osrThreshold;
+    }
+
+    public long getStackSize() {
+        return stackSize;
+    }
+
+    public long getHeapSize() {
+        return heapSize;
+    }
+
     /**
      * For test
      * 
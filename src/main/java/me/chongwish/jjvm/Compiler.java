@@ -0,0 +1,1318 @@
+package me.chongwish.jjvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+/**
+ * A baseline compiler which translates a hot method into a class of the host jvm, so that the method is optimized by
+ * the jit compiler of the host jvm.
+ * <p>
+ * The bytecode of a method is copied into a static method of the host class, only the constant pool indexes are
+ * rewritten, so every branch offset keeps the same. A method can be compiled if it is a static method whose argument
+ * and return types are primitive, it does not touch any object, field, array or exception, and every method it invokes
+ * can be compiled too. A compiled method is called through a instance of class {@code Compiler.Entry} which takes its
+ * arguments from the OperandStack of the caller and pushes the result back, just like a native method.
+ * <p>
+ * The invocations and the back edges of a method are counted by the interpreter. A method is interpreted at first,
+ * it is promoted to the profiled tier when its count reaches the profiled threshold, and it is checked whether it can
+ * be compiled. A method which can not be compiled is not counted any more. At last it is promoted to the optimized
+ * tier when its count reaches the optimized threshold, and it is handed to the background compiler thread, so the
+ * guest thread keeps interpreting the method until its compiled code is ready.
+ * <p>
+ * A loop which reaches the osr threshold is compiled too, because a method may spend its whole life in one loop. Only
+ * the code from the loop header to its last back edge is compiled, so a loop of any method, such as {@code main}, can
+ * be compiled if the loop itself only works on the primitive values. The host method of the loop loads the local
+ * variables from the LocalVariable of the frame, so the interpreter moves the state of the frame to the compiled code
+ * at the next back edge of the loop. Every jump out of the loop stores the local variables back and returns the pc
+ * where the interpreter goes on.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * {@code Compiler.setEnabled(true)}
+ * <p>
+ * {@code Compiler.Entry entry = Compiler.entryOf(method)}
+ */
+final class Compiler {
+    private Compiler() {}
+
+    /**
+     * The entry of a compiled method, the host class of a compiled method extends it.
+     */
+    public abstract static class Entry {
+        /**
+         * Pop the arguments from the OperandStack, execute the compiled method and push its result.
+         */
+        public abstract void invoke(Frame.OperandStack operandStack);
+    }
+
+    /**
+     * The entry of a compiled loop, the host class of a compiled loop extends it.
+     */
+    public abstract static class OsrEntry {
+        /**
+         * Execute the loop from the loop header with the local variables until it jumps out of the loop. A return
+         * instruction in the loop pushes its value and is executed by the interpreter.
+         *
+         * @return the pc where the interpreter goes on
+         */
+        public abstract int invoke(Frame.LocalVariable localVariable, Frame.OperandStack operandStack);
+    }
+
+    /**
+     * The tier of a method.
+     */
+    public enum Tier {
+        /**
+         * The method is interpreted.
+         */
+        INTERPRETER,
+
+        /**
+         * The method is interpreted, and it is a candidate of compilation.
+         */
+        PROFILED,
+
+        /**
+         * The method has been handed to the compiler, it is executed by the compiled code once the code is ready.
+         */
+        OPTIMIZED
+    }
+
+    /**
+     * The quantity of invocation and back edge which promotes a method to the profiled tier.
+     */
+    public static final int DEFAULT_PROFILED_THRESHOLD = 100;
+
+    /**
+     * The quantity of invocation and back edge which promotes a method to the optimized tier.
+     */
+    public static final int DEFAULT_OPTIMIZED_THRESHOLD = 1000;
+
+    /**
+     * The quantity of back edge which makes a loop compiled.
+     */
+    public static final int DEFAULT_OSR_THRESHOLD = 10000;
+
+    private static final String ENTRY_CLASS_NAME = "me/chongwish/jjvm/Compiler$Entry";
+    private static final String OSR_ENTRY_CLASS_NAME = "me/chongwish/jjvm/Compiler$OsrEntry";
+    private static final String OPERAND_STACK_CLASS_NAME = "me/chongwish/jjvm/Frame$OperandStack";
+    private static final String LOCAL_VARIABLE_CLASS_NAME = "me/chongwish/jjvm/Frame$LocalVariable";
+    private static final String COMPILED_METHOD_NAME = "execute";
+    private static final String OSR_METHOD_NAME = "osr";
+
+    private static volatile boolean enabled = false;
+
+    private static volatile int profiledThreshold = DEFAULT_PROFILED_THRESHOLD;
+
+    private static volatile int optimizedThreshold = DEFAULT_OPTIMIZED_THRESHOLD;
+
+    private static volatile int osrThreshold = DEFAULT_OSR_THRESHOLD;
+
+    /**
+     * The compilation units share the translated methods, so they are compiled one by one in a single thread.
+     */
+    private static ExecutorService compilerThread;
+
+    /**
+     * The name of the host class by the method which has been translated
+     */
+    private static final Map<Method, String> compiledNames = new IdentityHashMap<>();
+
+    /**
+     * The host class by its name, it is shared by the class loader of every compilation
+     */
+    private static final Map<String, Class<?>> compiledClasses = new ConcurrentHashMap<>();
+
+    /**
+     * The methods which can not be compiled
+     */
+    private static final Set<Method> uncompilableMethods = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Compiler.enabled = enabled;
+    }
+
+    public static int getProfiledThreshold() {
+        return profiledThreshold;
+    }
+
+    public static void setProfiledThreshold(int profiledThreshold) {
+        Compiler.profiledThreshold = profiledThreshold;
+    }
+
+    public static int getOptimizedThreshold() {
+        return optimizedThreshold;
+    }
+
+    public static void setOptimizedThreshold(int optimizedThreshold) {
+        Compiler.optimizedThreshold = optimizedThreshold;
+    }
+
+    public static int getOsrThreshold() {
+        return osrThreshold;
+    }
+
+    public static void setOsrThreshold(int osrThreshold) {
+        Compiler.osrThreshold = osrThreshold;
+    }
+
+    /**
+     * Count a invocation of the method and get the entry of its compiled code.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @return a instance of class {@code Compiler.Entry}, or null if the method is not compiled
+     */
+    public static Entry entryOf(Method method) {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry entry = method.getCompiledEntry();
+        if (entry == null && !method.isUncompilable()) {
+            method.increaseInvocationCount();
+            promote(method);
+        }
+        return entry;
+    }
+
+    /**
+     * Count a jump to the loop header of the method and get the entry of the compiled loop.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @param pc
+     *        the pc of the loop header
+     * @return a instance of class {@code Compiler.OsrEntry}, or null if the loop is not compiled
+     */
+    public static OsrEntry countBackEdge(Method method, int pc) {
+        if (!enabled) {
+            return null;
+        }
+
+        // a loop is compiled by itself, even if the method can not be compiled
+        OsrEntry osrEntry = method.getOsrEntry(pc);
+        if (osrEntry == null) {
+            if (method.increaseBackEdgeCount(pc) == osrThreshold) {
+                submitOsr(method, pc);
+            }
+            if (!method.isUncompilable()) {
+                promote(method);
+            }
+        }
+        return osrEntry;
+    }
+
+    /**
+     * Compilation policy, promote a method to the next tier when its count reaches the threshold.
+     */
+    private static void promote(Method method) {
+        final int count = method.getInvocationCount() + method.getBackEdgeCount();
+        switch (method.getTier()) {
+            case INTERPRETER:
+                if (count >= profiledThreshold) {
+                    if (isCompilable(method)) {
+                        method.setTier(Tier.PROFILED);
+                    } else {
+                        method.setUncompilable(true);
+                    }
+                }
+                break;
+
+            case PROFILED:
+                if (count >= optimizedThreshold) {
+                    method.setTier(Tier.OPTIMIZED);
+                    submit(method);
+                }
+                break;
+
+            default:
+        }
+    }
+
+    /**
+     * Translate a method on the guest thread and hand the compilation unit to the background compiler thread.
+     */
+    private static void submit(Method method) {
+        load(translate(method));
+    }
+
+    /**
+     * Translate a loop on the guest thread and hand the compilation unit to the background compiler thread.
+     */
+    private static void submitOsr(Method method, int pc) {
+        load(translateOsr(method, pc));
+    }
+
+    private static void load(Unit unit) {
+        if (unit == null) {
+            return;
+        }
+
+        synchronized (Compiler.class) {
+            if (compilerThread == null) {
+                compilerThread = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "jjvm-compiler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        compilerThread.execute(unit::load);
+    }
+
+    /**
+     * Compile a method and the methods it invokes on the current thread.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @return is the method compiled
+     */
+    public static boolean compile(Method method) {
+        if (method.getCompiledEntry() != null) {
+            return true;
+        }
+
+        final Unit unit = translate(method);
+        return unit != null && unit.load();
+    }
+
+    /**
+     * Translate a method and the methods it invokes to a compilation unit. It runs on the guest thread, because the
+     * resolution of a invoked method may load and initialize a class.
+     *
+     * @return a compilation unit, or null if the method can not be compiled or it is being compiled
+     */
+    private static synchronized Unit translate(Method method) {
+        if (compiledNames.containsKey(method)) {
+            return null;
+        }
+        if (uncompilableMethods.contains(method)) {
+            method.setUncompilable(true);
+            return null;
+        }
+
+        // the methods of a compilation unit are loaded together
+        Map<Method, String> names = new LinkedHashMap<>();
+        Map<String, byte[]> classes = new HashMap<>();
+        if (!translate(method, names, classes)) {
+            method.setUncompilable(true);
+            return null;
+        }
+
+        // the units are loaded in order, so a later unit can invoke the methods of this unit
+        compiledNames.putAll(names);
+        return new Unit(names, classes);
+    }
+
+    /**
+     * Translate the loop of a method to a compilation unit on the guest thread.
+     *
+     * @return a compilation unit, or null if the loop can not be compiled
+     */
+    private static synchronized Unit translateOsr(Method method, int pc) {
+        if (method.getCode() == null) {
+            return null;
+        }
+
+        // the loop is the code from its header to its last back edge
+        final int header = method.getDecodedCode().indexOf(pc);
+        final int end = findBackEdge(method, header);
+        if (header < 0 || end < 0 || !isCompilable(method, header, end)) {
+            return null;
+        }
+
+        Map<Method, String> names = new LinkedHashMap<>();
+        Map<String, byte[]> classes = new HashMap<>();
+        String name = "jjvm/compiled/" + method.getName().replaceAll("[^A-Za-z0-9_]", "_") + "$osr$"
+                + sequence.incrementAndGet();
+        ClassWriter classWriter = new ClassWriter(name);
+        byte[] code = rewrite(method, classWriter, names, classes, header, end);
+        if (code == null) {
+            return null;
+        }
+        byte[] bytes = classWriter.toOsrByteArray(method, code, localTypes(method), header, end);
+        if (bytes == null) {
+            return null;
+        }
+        classes.put(name.replace('/', '.'), bytes);
+
+        compiledNames.putAll(names);
+        Unit unit = new Unit(names, classes);
+        unit.osrName = name;
+        unit.osrMethod = method;
+        unit.osrPc = pc;
+        return unit;
+    }
+
+    private static synchronized void discard(Map<Method, String> names) {
+        for (Method method : names.keySet()) {
+            compiledNames.remove(method);
+            uncompilableMethods.add(method);
+            method.setUncompilable(true);
+        }
+    }
+
+    /**
+     * Translate a method and the methods it invokes which have not been compiled to the host classes.
+     */
+    private static boolean translate(Method method, Map<Method, String> names, Map<String, byte[]> classes) {
+        if (compiledNames.containsKey(method) || names.containsKey(method)) {
+            return true;
+        }
+        if (uncompilableMethods.contains(method) || !isCompilable(method)) {
+            uncompilableMethods.add(method);
+            return false;
+        }
+
+        String name = "jjvm/compiled/" + method.getName().replaceAll("[^A-Za-z0-9_]", "_") + "$"
+                + sequence.incrementAndGet();
+        names.put(method, name);
+
+        ClassWriter classWriter = new ClassWriter(name);
+        byte[] code = rewrite(method, classWriter, names, classes, 0,
+                method.getDecodedCode().getOperations().length - 1);
+        if (code == null) {
+            return fail(method, names);
+        }
+
+        classes.put(name.replace('/', '.'), classWriter.toByteArray(method, code));
+        return true;
+    }
+
+    /**
+     * Copy the code of a method and rewrite the constant pool indexes of the operations from {@code from} to
+     * {@code to} to the constant pool of the host class.
+     *
+     * @return the code, or null if a instruction can not be rewritten
+     */
+    private static byte[] rewrite(Method method, ClassWriter classWriter, Map<Method, String> names,
+            Map<String, byte[]> classes, int from, int to) {
+        byte[] code = method.getCode().clone();
+        MethodArea.RuntimeConstantPool runtimeConstantPool = MethodArea
+                .findRuntimeConstantPool(method.getClazz().getClassName());
+
+        Bytecode.Operation[] operations = method.getDecodedCode().getOperations();
+        for (int i = from; i <= to; ++i) {
+            final int pc = operations[i].getPc();
+            switch (code[pc] & 0xff) {
+                // ldc
+                case 0x12: {
+                    int index = classWriter.constant(runtimeConstantPool.dereference(code[pc + 1] & 0xff));
+                    if (index > 0xff) {
+                        return null;
+                    }
+                    code[pc + 1] = (byte)index;
+                    break;
+                }
+
+                // ldc_w ldc2_w
+                case 0x13:
+                case 0x14:
+                    writeChar(code, pc + 1, classWriter.constant(runtimeConstantPool.dereference(readChar(code, pc))));
+                    break;
+
+                // invokestatic
+                case 0xb8: {
+                    Method target = runtimeConstantPool.dereferenceMethod(readChar(code, pc));
+                    if (!translate(target, names, classes)) {
+                        return null;
+                    }
+                    String targetName = compiledNames.containsKey(target) ? compiledNames.get(target)
+                            : names.get(target);
+                    writeChar(code, pc + 1,
+                            classWriter.methodRef(targetName, COMPILED_METHOD_NAME, target.getDescriptor()));
+                    break;
+                }
+            }
+        }
+        return code;
+    }
+
+    private static boolean fail(Method method, Map<Method, String> names) {
+        names.remove(method);
+        uncompilableMethods.add(method);
+        return false;
+    }
+
+    /**
+     * Check the signature and every instruction of a method.
+     */
+    private static boolean isCompilable(Method method) {
+        Classfile.Method classfileMethod = method.getClassfileMethod();
+        if (!classfileMethod.isStatic() || classfileMethod.isNative() || classfileMethod.isAbstract()
+                || method.getCode() == null || method.getExceptionTable().length > 0) {
+            return false;
+        }
+
+        for (String argumentType : method.getArgumentTypes()) {
+            if (!isPrimitive(argumentType)) {
+                return false;
+            }
+        }
+        if (!method.getReturnType().equals("V") && !isPrimitive(method.getReturnType())) {
+            return false;
+        }
+
+        return isCompilable(method, 0, method.getDecodedCode().getOperations().length - 1);
+    }
+
+    /**
+     * Check every instruction of the operations from {@code from} to {@code to}, no exception handler may cover them.
+     */
+    private static boolean isCompilable(Method method, int from, int to) {
+        Bytecode.Operation[] operations = method.getDecodedCode().getOperations();
+        final int startPc = operations[from].getPc();
+        final int endPc = to + 1 < operations.length ? operations[to + 1].getPc() : method.getCode().length;
+        for (MethodArea.Exception exception : method.getExceptionTable()) {
+            if (exception.getStartPc() < endPc && exception.getEndPc() > startPc) {
+                return false;
+            }
+        }
+
+        MethodArea.RuntimeConstantPool runtimeConstantPool = MethodArea
+                .findRuntimeConstantPool(method.getClazz().getClassName());
+        byte[] code = method.getCode();
+        for (int i = from; i <= to; ++i) {
+            final int pc = operations[i].getPc();
+            final int opcode = code[pc] & 0xff;
+            switch (opcode) {
+                // ldc ldc_w ldc2_w
+                case 0x12:
+                case 0x13:
+                case 0x14: {
+                    int index = opcode == 0x12 ? code[pc + 1] & 0xff : readChar(code, pc);
+                    byte tag = runtimeConstantPool.dereference(index).getTag();
+                    if (tag != Classfile.CONSTANTPOOL_TABLE.INTEGER && tag != Classfile.CONSTANTPOOL_TABLE.FLOAT
+                            && tag != Classfile.CONSTANTPOOL_TABLE.LONG && tag != Classfile.CONSTANTPOOL_TABLE.DOUBLE) {
+                        return false;
+                    }
+                    break;
+                }
+
+                // wide
+                case 0xc4:
+                    if (!isCompilable(code[pc + 1] & 0xff)) {
+                        return false;
+                    }
+                    break;
+
+                default:
+                    if (!isCompilable(opcode)) {
+                        return false;
+                    }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the last back edge of the loop whose header is the given operation.
+     *
+     * @return the index of the operation which jumps back to the header, or -1 if there is none
+     */
+    private static int findBackEdge(Method method, int header) {
+        Bytecode.Operation[] operations = method.getDecodedCode().getOperations();
+        int end = -1;
+        for (int i = Math.max(header, 0); i < operations.length; ++i) {
+            for (int target : targetsOf(operations[i])) {
+                if (target == header) {
+                    end = i;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Get the branch targets of a operation.
+     */
+    private static int[] targetsOf(Bytecode.Operation operation) {
+        final int opcode = operation.getOpcode();
+        if ((opcode >= 0x99 && opcode <= 0xa7) || opcode == 0xc6 || opcode == 0xc7 || opcode == 0xc8) {
+            return new int[] { operation.getOperand() };
+        }
+        if (opcode == 0xaa || opcode == 0xab) {
+            int[] targets = Arrays.copyOf(operation.getTargets(), operation.getTargets().length + 1);
+            targets[targets.length - 1] = operation.getOperand();
+            return targets;
+        }
+        return new int[0];
+    }
+
+    /**
+     * Infer the type of every local variable before every operation by the instructions which store them. A slot whose
+     * type is {@code I}, {@code J}, {@code F} or {@code D} holds a value of that type, a slot of {@code A} holds a
+     * reference, the other slot holds nothing or the second half of a long or double.
+     *
+     * @return the types of the local variables by the index of operation, it is null if the operation is never reached
+     */
+    private static char[][] localTypes(Method method) {
+        Bytecode.Operation[] operations = method.getDecodedCode().getOperations();
+        char[][] states = new char[operations.length][];
+
+        // the arguments
+        char[] state = new char[method.getMaxLocals()];
+        int slot = 0;
+        if (!method.getClassfileMethod().isStatic()) {
+            state[slot++] = 'A';
+        }
+        for (String argumentType : method.getArgumentTypes()) {
+            state[slot] = isPrimitive(argumentType) ? ClassWriter.kind(argumentType) : 'A';
+            slot += ClassWriter.isWide(argumentType) ? 2 : 1;
+        }
+
+        Deque<Integer> worklist = new ArrayDeque<>();
+        states[0] = state;
+        worklist.push(0);
+        while (!worklist.isEmpty()) {
+            final int index = worklist.pop();
+            final Bytecode.Operation operation = operations[index];
+            final int opcode = operation.getOpcode();
+
+            // store
+            state = states[index].clone();
+            if (opcode >= 0x36 && opcode <= 0x3a) {
+                store(state, operation.getOperand(), "IJFDA".charAt(opcode - 0x36));
+            } else if (opcode >= 0x3b && opcode <= 0x4e) {
+                store(state, (opcode - 0x3b) % 4, "IJFDA".charAt((opcode - 0x3b) / 4));
+            }
+
+            // the next instructions
+            List<Integer> nexts = new ArrayList<>();
+            if ((opcode >= 0x99 && opcode <= 0xa6) || opcode == 0xc6 || opcode == 0xc7) {
+                nexts.add(operation.getOperand());
+                nexts.add(index + 1);
+            } else if (opcode == 0xa7 || opcode == 0xc8) {
+                nexts.add(operation.getOperand());
+            } else if (opcode == 0xaa || opcode == 0xab) {
+                nexts.add(operation.getOperand());
+                for (int target : operation.getTargets()) {
+                    nexts.add(target);
+                }
+            } else if ((opcode < 0xac || opcode > 0xb1) && opcode != 0xbf) {
+                nexts.add(index + 1);
+            }
+
+            for (int next : nexts) {
+                flow(states, worklist, next, state);
+            }
+
+            // a exception handler may be reached before or after the instruction
+            for (MethodArea.Exception exception : method.getExceptionTable()) {
+                if (exception.getStartPc() <= operation.getPc() && operation.getPc() < exception.getEndPc()) {
+                    final int handler = method.getDecodedCode().indexOf(exception.getHandlePc());
+                    flow(states, worklist, handler, states[index]);
+                    flow(states, worklist, handler, state);
+                }
+            }
+        }
+
+        return states;
+    }
+
+    /**
+     * Move a state to the next operation, and visit it again if its state is changed.
+     */
+    private static void flow(char[][] states, Deque<Integer> worklist, int next, char[] state) {
+        if (states[next] == null) {
+            states[next] = state.clone();
+            worklist.push(next);
+        } else if (merge(states[next], state)) {
+            worklist.push(next);
+        }
+    }
+
+    /**
+     * Store a value to a slot, a long or double takes the next slot too.
+     */
+    private static void store(char[] state, int slot, char type) {
+        if (slot > 0 && (state[slot - 1] == 'J' || state[slot - 1] == 'D')) {
+            state[slot - 1] = 0;
+        }
+        state[slot] = type;
+        if (type == 'J' || type == 'D') {
+            state[slot + 1] = 0;
+        }
+    }
+
+    /**
+     * Merge a state to the target state, a slot of different types holds nothing.
+     *
+     * @return is the target state changed
+     */
+    private static boolean merge(char[] target, char[] state) {
+        boolean changed = false;
+        for (int i = 0; i < target.length; ++i) {
+            if (target[i] != 0 && target[i] != state[i]) {
+                target[i] = 0;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Is the instruction only working on the primitive values. The division and remainder of int and long are
+     * excluded, they throw a exception of the host jvm.
+     */
+    private static boolean isCompilable(int opcode) {
+        return opcode == 0x00 || (opcode >= 0x02 && opcode <= 0x18) || (opcode >= 0x1a && opcode <= 0x29)
+                || (opcode >= 0x36 && opcode <= 0x39) || (opcode >= 0x3b && opcode <= 0x4a)
+                || (opcode >= 0x57 && opcode <= 0x6b) || opcode == 0x6e || opcode == 0x6f || opcode == 0x72
+                || opcode == 0x73 || (opcode >= 0x74 && opcode <= 0xa4) || opcode == 0xa7 || opcode == 0xaa
+                || opcode == 0xab || (opcode >= 0xac && opcode <= 0xaf) || opcode == 0xb1 || opcode == 0xb8
+                || opcode == 0xc8;
+    }
+
+    private static boolean isPrimitive(String type) {
+        return type.length() == 1 && "ZBCSIJFD".indexOf(type.charAt(0)) >= 0;
+    }
+
+    private static int readChar(byte[] code, int pc) {
+        return (code[pc + 1] & 0xff) << 8 | code[pc + 2] & 0xff;
+    }
+
+    private static void writeChar(byte[] code, int pc, int value) {
+        code[pc] = (byte)(value >> 8);
+        code[pc + 1] = (byte)value;
+    }
+
+    /**
+     * The host classes of a method and the methods it invokes.
+     */
+    private static class Unit {
+        private Map<Method, String> names;
+        private Map<String, byte[]> classes;
+
+        /**
+         * The host class of the compiled loop, it is null if the unit does not compile a loop
+         */
+        private String osrName;
+        private Method osrMethod;
+        private int osrPc;
+
+        Unit(Map<Method, String> names, Map<String, byte[]> classes) {
+            this.names = names;
+            this.classes = classes;
+        }
+
+        /**
+         * Define the host classes and install the entry of every method.
+         *
+         * @return is the unit loaded
+         */
+        boolean load() {
+            CompiledClassLoader classLoader = new CompiledClassLoader(classes);
+            Map<Method, Entry> entries = new IdentityHashMap<>();
+            OsrEntry osrEntry = null;
+            try {
+                for (Map.Entry<Method, String> name : names.entrySet()) {
+                    Class<?> clazz = classLoader.loadClass(name.getValue().replace('/', '.'));
+                    entries.put(name.getKey(), (Entry)clazz.getDeclaredConstructor().newInstance());
+                }
+                if (osrName != null) {
+                    Class<?> clazz = classLoader.loadClass(osrName.replace('/', '.'));
+                    osrEntry = (OsrEntry)clazz.getDeclaredConstructor().newInstance();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                discard(names);
+                return false;
+            }
+
+            for (Map.Entry<Method, Entry> entry : entries.entrySet()) {
+                Method method = entry.getKey();
+                compiledClasses.put(names.get(method).replace('/', '.'), entry.getValue().getClass());
+                method.setTier(Tier.OPTIMIZED);
+                method.setCompiledEntry(entry.getValue());
+            }
+            if (osrEntry != null) {
+                osrMethod.setOsrEntry(osrPc, osrEntry);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The class loader of a compilation unit, the host class of a method which was compiled before is shared.
+     */
+    private static class CompiledClassLoader extends java.lang.ClassLoader {
+        private Map<String, byte[]> classes;
+
+        CompiledClassLoader(Map<String, byte[]> classes) {
+            super(Compiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes != null) {
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+
+            Class<?> clazz = compiledClasses.get(name);
+            if (clazz != null) {
+                return clazz;
+            }
+            throw new ClassNotFoundException(name);
+        }
+    }
+
+    /**
+     * Write a host class of version 49, which does not need a StackMapTable.
+     */
+    private static class ClassWriter {
+        private String name;
+
+        private List<byte[]> constantPool = new ArrayList<>();
+        private Map<String, Integer> constantIndexes = new HashMap<>();
+
+        /**
+         * The next index of constant pool, a long or double constant takes two indexes
+         */
+        private int constantPoolCount = 1;
+
+        ClassWriter(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Add a numeric constant of a guest constant pool.
+         */
+        int constant(Classfile.ConstantPool guestConstant) {
+            Object value = guestConstant.getValue();
+            switch (guestConstant.getTag()) {
+                case Classfile.CONSTANTPOOL_TABLE.INTEGER:
+                    return integer((int)value);
+                case Classfile.CONSTANTPOOL_TABLE.FLOAT:
+                    return add("F" + Float.floatToRawIntBits((float)value), out -> {
+                        out.writeByte(Classfile.CONSTANTPOOL_TABLE.FLOAT);
+                        out.writeFloat((float)value);
+                    }, 1);
+                case Classfile.CONSTANTPOOL_TABLE.LONG:
+                    return add("J" + value, out -> {
+                        out.writeByte(Classfile.CONSTANTPOOL_TABLE.LONG);
+                        out.writeLong((long)value);
+                    }, 2);
+                default:
+                    return add("D" + Double.doubleToRawLongBits((double)value), out -> {
+                        out.writeByte(Classfile.CONSTANTPOOL_TABLE.DOUBLE);
+                        out.writeDouble((double)value);
+                    }, 2);
+            }
+        }
+
+        int integer(int value) {
+            return add("I" + value, out -> {
+                out.writeByte(Classfile.CONSTANTPOOL_TABLE.INTEGER);
+                out.writeInt(value);
+            }, 1);
+        }
+
+        int utf8(String value) {
+            return add("U" + value, out -> {
+                out.writeByte(Classfile.CONSTANTPOOL_TABLE.UTF8);
+                out.writeUTF(value);
+            }, 1);
+        }
+
+        int clazz(String className) {
+            final int nameIndex = utf8(className);
+            return add("C" + className, out -> {
+                out.writeByte(Classfile.CONSTANTPOOL_TABLE.CLASS);
+                out.writeShort(nameIndex);
+            }, 1);
+        }
+
+        int methodRef(String className, String methodName, String descriptor) {
+            final int clazzIndex = clazz(className);
+            final int nameIndex = utf8(methodName);
+            final int descriptorIndex = utf8(descriptor);
+            final int nameAndTypeIndex = add("N" + methodName + descriptor, out -> {
+                out.writeByte(Classfile.CONSTANTPOOL_TABLE.NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            }, 1);
+            return add("M" + className + "." + methodName + descriptor, out -> {
+                out.writeByte(Classfile.CONSTANTPOOL_TABLE.METHOD_REF);
+                out.writeShort(clazzIndex);
+                out.writeShort(nameAndTypeIndex);
+            }, 1);
+        }
+
+        private int add(String key, Writer writer, int size) {
+            Integer index = constantIndexes.get(key);
+            if (index == null) {
+                index = constantPoolCount;
+                constantPool.add(bytes(writer));
+                constantIndexes.put(key, index);
+                constantPoolCount += size;
+            }
+            return index;
+        }
+
+        /**
+         * Generate the host class of a method with its rewritten code.
+         */
+        byte[] toByteArray(Method method, byte[] code) {
+            String descriptor = method.getDescriptor();
+            String[] argumentTypes = method.getArgumentTypes();
+            String returnType = method.getReturnType();
+
+            // constructor: super()
+            final int constructorRef = methodRef(ENTRY_CLASS_NAME, "<init>", "()V");
+            byte[] constructorCode = bytes(out -> {
+                out.writeByte(0x2a);
+                out.writeByte(0xb7);
+                out.writeShort(constructorRef);
+                out.writeByte(0xb1);
+            });
+
+            // invoke: pop the arguments to the local variables, call the compiled method and push the result
+            final int selfRef = methodRef(name, COMPILED_METHOD_NAME, descriptor);
+            int[] slots = new int[argumentTypes.length];
+            int slotCount = 2;
+            for (int i = 0; i < argumentTypes.length; ++i) {
+                slots[i] = slotCount;
+                slotCount += isWide(argumentTypes[i]) ? 2 : 1;
+            }
+            Map<Integer, Integer> popRefs = new HashMap<>();
+            for (String argumentType : argumentTypes) {
+                char type = kind(argumentType);
+                popRefs.put((int)type, methodRef(OPERAND_STACK_CLASS_NAME, "pop" + typeName(type), "()" + type));
+            }
+            final int pushRef = returnType.equals("V") ? 0
+                    : methodRef(OPERAND_STACK_CLASS_NAME, "push", "(" + kind(returnType) + ")V");
+            byte[] invokeCode = bytes(out -> {
+                for (int i = argumentTypes.length - 1; i >= 0; --i) {
+                    char type = kind(argumentTypes[i]);
+                    out.writeByte(0x2b);
+                    out.writeByte(0xb6);
+                    out.writeShort(popRefs.get((int)type));
+                    out.writeByte(0x36 + "IJFD".indexOf(type));
+                    out.writeByte(slots[i]);
+                }
+                if (pushRef != 0) {
+                    out.writeByte(0x2b);
+                }
+                for (int i = 0; i < argumentTypes.length; ++i) {
+                    out.writeByte(0x15 + "IJFD".indexOf(kind(argumentTypes[i])));
+                    out.writeByte(slots[i]);
+                }
+                out.writeByte(0xb8);
+                out.writeShort(selfRef);
+                if (pushRef != 0) {
+                    out.writeByte(0xb6);
+                    out.writeShort(pushRef);
+                }
+                out.writeByte(0xb1);
+            });
+
+            return toByteArray(ENTRY_CLASS_NAME, constructorCode, "(L" + OPERAND_STACK_CLASS_NAME + ";)V", invokeCode,
+                    slotCount + 1, slotCount, COMPILED_METHOD_NAME, descriptor, method.getMaxStack(),
+                    method.getMaxLocals(), code);
+        }
+
+        /**
+         * Generate the host class of a loop, its static method {@code osr} takes the LocalVariable and the
+         * OperandStack of a frame, and returns the pc where the interpreter goes on.
+         * <p>
+         * The operations of the loop are copied after a prologue which loads the local variables. A jump out of the
+         * loop goes to a exit which stores the local variables back, a return instruction goes to a exit which pushes
+         * its value, so the branch offsets and the padding of tableswitch and lookupswitch are computed again.
+         *
+         * @param states
+         *        the types of the local variables by the index of operation
+         * @param header
+         *        the index of the operation of the loop header
+         * @param end
+         *        the index of the operation of the last back edge
+         * @return the host class, or null if a branch offset is too large
+         */
+        byte[] toOsrByteArray(Method method, byte[] code, char[][] states, int header, int end) {
+            final Bytecode.Operation[] operations = method.getDecodedCode().getOperations();
+            final String osrDescriptor = "(L" + LOCAL_VARIABLE_CLASS_NAME + ";L" + OPERAND_STACK_CLASS_NAME + ";)I";
+            if (states[header] == null) {
+                return null;
+            }
+
+            // constructor: super()
+            final int constructorRef = methodRef(OSR_ENTRY_CLASS_NAME, "<init>", "()V");
+            byte[] constructorCode = bytes(out -> {
+                out.writeByte(0x2a);
+                out.writeByte(0xb7);
+                out.writeShort(constructorRef);
+                out.writeByte(0xb1);
+            });
+
+            // invoke: call the compiled loop with the LocalVariable and the OperandStack
+            final int selfRef = methodRef(name, OSR_METHOD_NAME, osrDescriptor);
+            byte[] invokeCode = bytes(out -> {
+                out.writeByte(0x2b);
+                out.writeByte(0x2c);
+                out.writeByte(0xb8);
+                out.writeShort(selfRef);
+                out.writeByte(0xac);
+            });
+
+            // osr: keep the LocalVariable and the OperandStack after the local variables, and a return value after them
+            final int holder = method.getMaxLocals();
+            final int stackHolder = holder + 1;
+            final int valueHolder = holder + 2;
+            byte[] prologue = bytes(out -> {
+                out.writeByte(0x2a);
+                writeLocal(out, 0x3a, holder);
+                out.writeByte(0x2b);
+                writeLocal(out, 0x3a, stackHolder);
+                char[] types = states[header];
+                for (int i = 0; i < types.length; ++i) {
+                    if ("IJFD".indexOf(types[i]) < 0) {
+                        continue;
+                    }
+                    writeLocal(out, 0x19, holder);
+                    writeInt(out, i);
+                    out.writeByte(0xb6);
+                    out.writeShort(methodRef(LOCAL_VARIABLE_CLASS_NAME, "get" + typeName(types[i]), "(I)" + types[i]));
+                    writeLocal(out, 0x36 + "IJFD".indexOf(types[i]), i);
+                }
+            });
+
+            // the exits by the operation and the pc it jumps to
+            Map<String, byte[]> exits = new LinkedHashMap<>();
+            for (int i = header; i <= end; ++i) {
+                final int opcode = operations[i].getOpcode();
+                if (opcode >= 0xac && opcode <= 0xb1) {
+                    exits.put(exitKey(i, operations[i].getPc()), returnExit(opcode, stackHolder, valueHolder,
+                            operations[i].getPc()));
+                    continue;
+                }
+                for (int target : targetsOf(operations[i])) {
+                    if (target < header || target > end) {
+                        exits.put(exitKey(i, operations[target].getPc()),
+                                jumpExit(states[i], holder, operations[target].getPc()));
+                    }
+                }
+            }
+            final int lastOpcode = operations[end].getOpcode();
+            if ((lastOpcode >= 0x99 && lastOpcode <= 0xa6) || lastOpcode == 0xc6 || lastOpcode == 0xc7) {
+                exits.put(exitKey(end, operations[end + 1].getPc()),
+                        jumpExit(states[end], holder, operations[end + 1].getPc()));
+            }
+
+            // the pc of every operation in the host code, and then the pc of every exit
+            final int[] pcs = new int[end - header + 2];
+            int pc = prologue.length;
+            for (int i = header; i <= end; ++i) {
+                pcs[i - header] = pc;
+                pc += sizeOf(operations, code, i, pc);
+            }
+            pcs[end - header + 1] = pc;
+            final Map<String, Integer> exitPcs = new HashMap<>();
+            for (Map.Entry<String, byte[]> exit : exits.entrySet()) {
+                exitPcs.put(exit.getKey(), pc);
+                pc += exit.getValue().length;
+            }
+
+            // every 16-bit branch offset has to fit
+            for (int i = header; i <= end; ++i) {
+                final int opcode = operations[i].getOpcode();
+                if ((opcode >= 0x99 && opcode <= 0xa7) || opcode == 0xc6 || opcode == 0xc7) {
+                    final int offset = targetPc(operations, pcs, exitPcs, header, end, i, operations[i].getOperand())
+                            - pcs[i - header];
+                    if (offset != (short)offset) {
+                        return null;
+                    }
+                }
+            }
+
+            byte[] osrCode = bytes(out -> {
+                out.write(prologue);
+                for (int i = header; i <= end; ++i) {
+                    final Bytecode.Operation operation = operations[i];
+                    final int opcode = operation.getOpcode();
+                    final int start = pcs[i - header];
+                    if (opcode >= 0xac && opcode <= 0xb1) {
+                        out.writeByte(0xc8);
+                        out.writeInt(exitPcs.get(exitKey(i, operation.getPc())) - start);
+                    } else if ((opcode >= 0x99 && opcode <= 0xa7) || opcode == 0xc6 || opcode == 0xc7) {
+                        out.writeByte(opcode);
+                        out.writeShort(targetPc(operations, pcs, exitPcs, header, end, i, operation.getOperand())
+                                - start);
+                    } else if (opcode == 0xc8) {
+                        out.writeByte(opcode);
+                        out.writeInt(targetPc(operations, pcs, exitPcs, header, end, i, operation.getOperand())
+                                - start);
+                    } else if (opcode == 0xaa || opcode == 0xab) {
+                        out.writeByte(opcode);
+                        for (int j = start + 1; (j & 3) != 0; ++j) {
+                            out.writeByte(0);
+                        }
+                        out.writeInt(targetPc(operations, pcs, exitPcs, header, end, i, operation.getOperand())
+                                - start);
+                        int[] targets = operation.getTargets();
+                        if (opcode == 0xaa) {
+                            out.writeInt(operation.getSecondOperand());
+                            out.writeInt(operation.getSecondOperand() + targets.length - 1);
+                        } else {
+                            out.writeInt(targets.length);
+                        }
+                        for (int j = 0; j < targets.length; ++j) {
+                            if (opcode == 0xab) {
+                                out.writeInt(readSwitchKey(code, operation, j));
+                            }
+                            out.writeInt(targetPc(operations, pcs, exitPcs, header, end, i, targets[j]) - start);
+                        }
+                    } else {
+                        out.write(code, operation.getPc(), operations[i + 1].getPc() - operation.getPc());
+                    }
+                }
+                for (byte[] exit : exits.values()) {
+                    out.write(exit);
+                }
+            });
+
+            return toByteArray(OSR_ENTRY_CLASS_NAME, constructorCode,
+                    "(L" + LOCAL_VARIABLE_CLASS_NAME + ";L" + OPERAND_STACK_CLASS_NAME + ";)I", invokeCode, 2, 3,
+                    OSR_METHOD_NAME, osrDescriptor, Math.max(method.getMaxStack(), 4), holder + 4, osrCode);
+        }
+
+        private static String exitKey(int index, int pc) {
+            return index + ":" + pc;
+        }
+
+        /**
+         * Get the pc in the host code of a branch target, it is a exit if the target is out of the loop.
+         */
+        private static int targetPc(Bytecode.Operation[] operations, int[] pcs, Map<String, Integer> exitPcs,
+                int header, int end, int index, int target) {
+            if (target >= header && target <= end) {
+                return pcs[target - header];
+            }
+            return exitPcs.get(exitKey(index, operations[target].getPc()));
+        }
+
+        /**
+         * Get the size of a operation in the host code which begins at the given pc.
+         */
+        private static int sizeOf(Bytecode.Operation[] operations, byte[] code, int index, int pc) {
+            final Bytecode.Operation operation = operations[index];
+            final int opcode = operation.getOpcode();
+            if (opcode >= 0xac && opcode <= 0xb1) {
+                // goto_w
+                return 5;
+            }
+            if (opcode == 0xaa || opcode == 0xab) {
+                final int padding = (4 - (pc + 1) % 4) % 4;
+                final int length = operation.getTargets().length;
+                return 1 + padding + (opcode == 0xaa ? 12 + 4 * length : 8 + 8 * length);
+            }
+            final int next = index + 1 < operations.length ? operations[index + 1].getPc() : code.length;
+            return next - operation.getPc();
+        }
+
+        /**
+         * Read the key of a pair of lookupswitch in the original code.
+         */
+        private static int readSwitchKey(byte[] code, Bytecode.Operation operation, int pair) {
+            final int pc = ((operation.getPc() + 4) & ~3) + 8 + 8 * pair;
+            return code[pc] << 24 | (code[pc + 1] & 0xff) << 16 | (code[pc + 2] & 0xff) << 8 | code[pc + 3] & 0xff;
+        }
+
+        /**
+         * A exit which stores the local variables of the given types back and returns the pc.
+         */
+        private byte[] jumpExit(char[] types, int holder, int pc) {
+            return bytes(out -> {
+                for (int i = 0; types != null && i < types.length; ++i) {
+                    if ("IJFD".indexOf(types[i]) < 0) {
+                        continue;
+                    }
+                    writeLocal(out, 0x19, holder);
+                    writeInt(out, i);
+                    writeLocal(out, 0x15 + "IJFD".indexOf(types[i]), i);
+                    out.writeByte(0xb6);
+                    out.writeShort(methodRef(LOCAL_VARIABLE_CLASS_NAME, "set", "(I" + types[i] + ")V"));
+                }
+                writeInt(out, pc);
+                out.writeByte(0xac);
+            });
+        }
+
+        /**
+         * A exit which pushes the value of a return instruction and returns the pc of the return instruction.
+         */
+        private byte[] returnExit(int opcode, int stackHolder, int valueHolder, int pc) {
+            return bytes(out -> {
+                if (opcode != 0xb1) {
+                    final char type = "IJFD".charAt(opcode - 0xac);
+                    writeLocal(out, 0x36 + (opcode - 0xac), valueHolder);
+                    writeLocal(out, 0x19, stackHolder);
+                    writeLocal(out, 0x15 + (opcode - 0xac), valueHolder);
+                    out.writeByte(0xb6);
+                    out.writeShort(methodRef(OPERAND_STACK_CLASS_NAME, "push", "(" + type + ")V"));
+                }
+                writeInt(out, pc);
+                out.writeByte(0xac);
+            });
+        }
+
+        /**
+         * Write a instruction which pushes a int constant.
+         */
+        private void writeInt(DataOutputStream out, int value) throws IOException {
+            if (value >= -1 && value <= 5) {
+                out.writeByte(0x03 + value);
+            } else if (value == (byte)value) {
+                out.writeByte(0x10);
+                out.writeByte(value);
+            } else if (value == (short)value) {
+                out.writeByte(0x11);
+                out.writeShort(value);
+            } else {
+                out.writeByte(0x13);
+                out.writeShort(integer(value));
+            }
+        }
+
+        /**
+         * Write a instruction which loads or stores a local variable, it is modified by wide if the slot is large.
+         */
+        private static void writeLocal(DataOutputStream out, int opcode, int slot) throws IOException {
+            if (slot > 0xff) {
+                out.writeByte(0xc4);
+                out.writeByte(opcode);
+                out.writeShort(slot);
+            } else {
+                out.writeByte(opcode);
+                out.writeByte(slot);
+            }
+        }
+
+        /**
+         * Generate a host class which has a constructor, a bridge method {@code invoke} and a static method of the
+         * compiled code.
+         */
+        private byte[] toByteArray(String superName, byte[] constructorCode, String invokeDescriptor,
+                byte[] invokeCode, int stackSize, int localSize, String compiledName, String compiledDescriptor,
+                int compiledStackSize, int compiledLocalSize, byte[] compiledCode) {
+            final int thisIndex = clazz(name);
+            final int superIndex = clazz(superName);
+            final int codeIndex = utf8("Code");
+            final int constructorNameIndex = utf8("<init>");
+            final int constructorDescriptorIndex = utf8("()V");
+            final int invokeNameIndex = utf8("invoke");
+            final int invokeDescriptorIndex = utf8(invokeDescriptor);
+            final int compiledNameIndex = utf8(compiledName);
+            final int compiledDescriptorIndex = utf8(compiledDescriptor);
+
+            return bytes(out -> {
+                out.writeInt(0xcafebabe);
+                out.writeShort(0);
+                out.writeShort(49);
+
+                out.writeShort(constantPoolCount);
+                for (byte[] constant : constantPool) {
+                    out.write(constant);
+                }
+
+                // public final super
+                out.writeShort(0x0031);
+                out.writeShort(thisIndex);
+                out.writeShort(superIndex);
+                out.writeShort(0);
+                out.writeShort(0);
+
+                out.writeShort(3);
+                writeMethod(out, 0x0001, constructorNameIndex, constructorDescriptorIndex, codeIndex, 1, 1,
+                        constructorCode);
+                writeMethod(out, 0x0001, invokeNameIndex, invokeDescriptorIndex, codeIndex, stackSize, localSize,
+                        invokeCode);
+                writeMethod(out, 0x0009, compiledNameIndex, compiledDescriptorIndex, codeIndex, compiledStackSize,
+                        compiledLocalSize, compiledCode);
+
+                out.writeShort(0);
+            });
+        }
+
+        private static void writeMethod(DataOutputStream out, int accessFlags, int nameIndex, int descriptorIndex,
+                int codeIndex, int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(accessFlags);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeIndex);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        private static boolean isWide(String type) {
+            return type.equals("J") || type.equals("D");
+        }
+
+        /**
+         * The type which a value is stored in the OperandStack.
+         */
+        private static char kind(String type) {
+            char c = type.charAt(0);
+            return c == 'J' || c == 'F' || c == 'D' ? c : 'I';
+        }
+
+        private static String typeName(char kind) {
+            switch (kind) {
+                case 'J':
+                    return "Long";
+                case 'F':
+                    return "Float";
+                case 'D':
+                    return "Double";
+                default:
+                    return "Int";
+            }
+        }
+
+        private static byte[] bytes(Writer writer) {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+                writer.write(out);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return byteArrayOutputStream.toByteArray();
+        }
+
+        @FunctionalInterface
+        private interface Writer {
+            void write(DataOutputStream out) throws IOException;
+        }
+    }
+}
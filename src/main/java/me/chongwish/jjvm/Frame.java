@@ -1,7 +1,8 @@
 package me.chongwish.jjvm;
 
-import java.util.Stack;
+import java.util.function.Consumer;
 
+import me.chongwish.jjvm.RuntimeDataArea.JavaStack;
 import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
 import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
 import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
@@ -17,6 +18,7 @@ final class Frame {
     private ThreadResource threadResource;
     private Method method;
     private Bytecode bytecode;
+    private Segment segment;
 
     /**
      * Runtime Constant reference of current method
@@ -48,12 +50,206 @@ final class Frame {
     }
 
     public Frame(Method method, ThreadResource threadResource) {
-        operandStack = new OperandStack();
-        localVariable = new LocalVariable(method.getMaxLocals());
-        this.method = method;
-        this.bytecode = new Bytecode(method.getCode());
-        this.runtimeConstantPool = MethodArea.findRuntimeConstantPool(method.getClazz().getClassName());
+        this(method, threadResource, threadResource.getJavaStack().current(), 0);
+    }
+
+    /**
+     * Create a frame for the method invoked by the caller. The local variable of the frame begins at the top
+     * {@code argumentSize} slots of the operand stack of the caller, so the arguments become the first local variables
+     * in place and the caller does not hold them any more.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @param caller
+     *        the current frame which invokes the method
+     * @param argumentSize
+     *        the quantity of the slots of the arguments
+     */
+    public Frame(Method method, Frame caller, int argumentSize) {
+        this(method, caller.threadResource, caller, argumentSize);
+    }
+
+    private Frame(Method method, ThreadResource threadResource, Frame caller, int argumentSize) {
+        this.threadResource = threadResource;
+        reuse(method, caller, argumentSize);
+    }
+
+    /**
+     * Create a transition frame above the caller.
+     *
+     * @param threadResource
+     *        a instance of class {@code ThreadResource}
+     * @param caller
+     *        the current frame, or {@code null}
+     * @param size
+     *        the quantity of the slots of the operand stack
+     * @see #transit(Frame, int)
+     */
+    Frame(ThreadResource threadResource, Frame caller, int size) {
         this.threadResource = threadResource;
+        transit(caller, size);
+    }
+
+    /**
+     * Make this dropped frame a frame for the method invoked by the caller, just like a new frame.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @param caller
+     *        the current frame which invokes the method, or {@code null}
+     * @param argumentSize
+     *        the quantity of the slots of the arguments
+     */
+    void reuse(Method method, Frame caller, int argumentSize) {
+        final int maxLocals = method.getMaxLocals();
+        final int size = maxLocals + method.getMaxStack();
+
+        segment = caller == null ? threadResource.getJavaStack().getSegment() : caller.segment;
+        int base = caller == null ? 0 : caller.operandStack.top - argumentSize;
+        if (base + size > segment.slots.length) {
+            // the frame begins a new segment with a copy of the arguments
+            final Segment next = segment.next(size);
+            System.arraycopy(segment.slots, base, next.slots, 0, argumentSize);
+            System.arraycopy(segment.references, base, next.references, 0, argumentSize);
+            segment = next;
+            base = 0;
+        }
+        if (caller != null) {
+            caller.operandStack.top -= argumentSize;
+        }
+        open(base, maxLocals);
+
+        if (method != this.method) {
+            this.method = method;
+            this.runtimeConstantPool = MethodArea.findRuntimeConstantPool(method.getClazz().getClassName());
+        }
+        if (bytecode == null) {
+            bytecode = new Bytecode(this);
+        } else {
+            bytecode.reset();
+        }
+    }
+
+    /**
+     * Make this frame a transition frame above the caller. A transition frame is where the jvm or a native method calls
+     * a java method on the java stack of the thread: it has no method and no local variable, the arguments of the call
+     * are pushed to its operand stack and the return value is moved to it. The frames above it are executed until
+     * they are all popped.
+     *
+     * @param caller
+     *        the current frame, or {@code null}
+     * @param size
+     *        the quantity of the slots of the operand stack
+     */
+    void transit(Frame caller, int size) {
+        segment = caller == null ? threadResource.getJavaStack().getSegment() : caller.segment;
+        int base = caller == null ? 0 : caller.operandStack.top;
+        if (base + size > segment.slots.length) {
+            segment = segment.next(size);
+            base = 0;
+        }
+        open(base, 0);
+
+        method = null;
+        runtimeConstantPool = null;
+    }
+
+    public boolean isTransition() {
+        return method == null;
+    }
+
+    /**
+     * Move the local variable and the operand stack to the window which begins at the given base of the segment.
+     */
+    private void open(int base, int maxLocals) {
+        if (localVariable == null) {
+            localVariable = new LocalVariable(segment.slots, segment.references, base);
+            operandStack = new OperandStack(segment.slots, segment.references, base + maxLocals);
+        } else {
+            localVariable.reset(segment.slots, segment.references, base);
+            operandStack.reset(segment.slots, segment.references, base + maxLocals);
+        }
+    }
+
+    /**
+     * Get the quantity of the slots from the bottom of the java stack to the end of the frame of the method which is
+     * invoked by this frame.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @param argumentSize
+     *        the quantity of the slots of the arguments
+     * @return the quantity of the slots
+     */
+    int stackSizeOf(Method method, int argumentSize) {
+        final int size = method.getMaxLocals() + method.getMaxStack();
+        final int base = operandStack.top - argumentSize;
+        if (base + size > segment.slots.length) {
+            return segment.offset + segment.slots.length + size;
+        }
+        return segment.offset + base + size;
+    }
+
+    /**
+     * Visit the references of the local variable and the operand stack, which are a window of the segment. A slot of a
+     * primitive value is visited too.
+     *
+     * @param action
+     *        the action for a reference
+     */
+    void forEachReference(Consumer<Object> action) {
+        final Object[] references = segment.references;
+        for (int i = localVariable.base; i < operandStack.top; ++i) {
+            action.accept(references[i]);
+        }
+    }
+
+    /**
+     * A segment is a slot array of the local variables and the operand stacks of the frames of a thread. Every frame is
+     * a window in a segment: its local variable and then its operand stack. A frame of a invoked method is just above
+     * the operand stack of the caller, so a call only moves some indexes. A frame which can not be put in the rest of
+     * a segment begins the next segment.
+     */
+    final static class Segment {
+        /**
+         * The size of the first segment, the next segment is twice as large as the previous one.
+         */
+        public static final int SIZE = 1024;
+
+        /**
+         * The reference of a slot which holds a primitive value. The local variables and the operand stacks share it,
+         * since a argument on the operand stack of the caller is a local variable of the callee in place.
+         */
+        static final Object PRIMITIVE = new Object();
+
+        private final int[] slots;
+        private final Object[] references;
+        private Segment next;
+
+        /**
+         * The quantity of the slots of the previous segments.
+         */
+        private final int offset;
+
+        public Segment(int offset, int size) {
+            this.offset = offset;
+            slots = new int[size];
+            references = new Object[size];
+        }
+
+        /**
+         * Get the next segment which has the given size at least. The frames which are above the current frame are
+         * dropped, so a small next segment can be replaced. A segment is not larger than the rest of the max size of
+         * the java stack unless a frame needs it.
+         */
+        private Segment next(int size) {
+            if (next == null || next.slots.length < size) {
+                final int nextOffset = offset + slots.length;
+                final long rest = JavaStack.getMaxSize() / JavaStack.SLOT_SIZE - nextOffset;
+                next = new Segment(nextOffset, Math.max((int)Math.min(slots.length * 2L, rest), size));
+            }
+            return next;
+        }
     }
 
     /**
@@ -61,10 +257,33 @@ final class Frame {
      */
     final public static class OperandStack {
         /**
-         * Stack stack can store a value of type boolean, byte, char, short, int, float, reference in a slot, a value of
-         * type long or double in two slots.
+         * Array slots can store a value of type boolean, byte, char, short, int, float in a slot, a value of type long
+         * or double in two slots. Array references stores a reference, or {@link Segment#PRIMITIVE} if the slot is in
+         * array slots. The operand stack of a frame is a window beginning at {@code base} in the segment, so nothing is
+         * boxed or allocated.
+         */
+        private int[] slots;
+        private Object[] references;
+        private int base;
+        private int top;
+
+        public OperandStack(int size) {
+            this(new int[size], new Object[size], 0);
+        }
+
+        public OperandStack(int[] slots, Object[] references, int base) {
+            reset(slots, references, base);
+        }
+
+        /**
+         * Move the operand stack to a window of a segment, and it is empty.
          */
-        private Stack<Object> stack = new Stack<>();
+        void reset(int[] slots, Object[] references, int base) {
+            this.slots = slots;
+            this.references = references;
+            this.base = base;
+            top = base;
+        }
 
         public void push(Object value) {
             if (value instanceof Integer) {
@@ -76,12 +295,13 @@ final class Frame {
             } else if (value instanceof Double) {
                 push((double)value);
             } else {
-                stack.push(value);
+                references[top++] = value;
             }
         }
 
         public void push(int value) {
-            stack.push(value);
+            slots[top] = value;
+            references[top++] = Segment.PRIMITIVE;
         }
 
         public void push(float value) {
@@ -98,23 +318,32 @@ final class Frame {
         }
 
         public Object current() {
-            return stack.peek();
+            return get(top - 1);
         }
 
         public Object bottom(int index) {
-            return stack.get(stack.size() - 1 - index);
+            return get(top - 1 - index);
+        }
+
+        private Object get(int i) {
+            final Object reference = references[i];
+            return reference == Segment.PRIMITIVE ? (Object)slots[i] : reference;
         }
 
         public void clear() {
-            stack.clear();
+            while (top > base) {
+                references[--top] = null;
+            }
         }
 
         public Object pop() {
-            return stack.pop();
+            final Object value = get(--top);
+            references[top] = null;
+            return value;
         }
 
         public int popInt() {
-            return (int)pop();
+            return slots[--top];
         }
 
         public float popFloat() {
@@ -131,8 +360,62 @@ final class Frame {
             return Double.longBitsToDouble(popLong());
         }
 
+        /**
+         * Drop the given quantity of slots without reading them.
+         */
+        public void discard(int count) {
+            for (int i = 0; i < count; ++i) {
+                references[--top] = null;
+            }
+        }
+
+        /**
+         * Insert a copy of the top {@code count} slots below the top {@code count + depth} slots, it is the way of
+         * {@code dup dup_x1 dup_x2 dup2 dup2_x1 dup2_x2}.
+         */
+        public void duplicate(int count, int depth) {
+            final int from = top - count;
+            final int to = from - depth;
+            System.arraycopy(slots, to, slots, to + count, count + depth);
+            System.arraycopy(references, to, references, to + count, count + depth);
+            System.arraycopy(slots, from + count, slots, to, count);
+            System.arraycopy(references, from + count, references, to, count);
+            top += count;
+        }
+
+        /**
+         * Swap the top two slots.
+         */
+        public void swap() {
+            final int slot = slots[top - 1];
+            final Object reference = references[top - 1];
+            slots[top - 1] = slots[top - 2];
+            references[top - 1] = references[top - 2];
+            slots[top - 2] = slot;
+            references[top - 2] = reference;
+        }
+
         public boolean isEmpty() {
-            return stack.isEmpty();
+            return top == base;
+        }
+
+        /**
+         * The window of the segment, for a interpreter which keeps the top in its local variable and writes it back.
+         */
+        int[] getSlots() {
+            return slots;
+        }
+
+        Object[] getReferences() {
+            return references;
+        }
+
+        int getTop() {
+            return top;
+        }
+
+        void setTop(int top) {
+            this.top = top;
         }
     }
 
@@ -141,13 +424,34 @@ final class Frame {
      */
     final public static class LocalVariable {
         /**
-         * Array variables can store a value of type boolean, byte, char, short, int, float, reference in a slot, a
-         * value of type long or double in two slots.
+         * Array slots can store a value of type boolean, byte, char, short, int, float in a slot, a value of type long
+         * or double in two slots. Array references stores a reference, or {@link Segment#PRIMITIVE} if the slot is in
+         * array slots, so a primitive value is never boxed. The local variable of a frame is a window beginning at
+         * {@code base} in the segment.
          */
-        private Object[] variables;
+        private int[] slots;
+        private Object[] references;
+        private int base;
 
         public LocalVariable(int size) {
-            variables = new Object[size];
+            this(new int[size], new Object[size], 0);
+        }
+
+        public LocalVariable(int[] slots, Object[] references, int base) {
+            reset(slots, references, base);
+        }
+
+        /**
+         * Move the local variable to a window of a segment.
+         */
+        void reset(int[] slots, Object[] references, int base) {
+            this.slots = slots;
+            this.references = references;
+            this.base = base;
+        }
+
+        int getBase() {
+            return base;
         }
 
         public void set(int i, Object value) {
@@ -160,12 +464,13 @@ final class Frame {
             } else if (value instanceof Double) {
                 set(i, (double)value);
             } else {
-                variables[i] = value;
+                references[base + i] = value;
             }
         }
 
         public void set(int i, int value) {
-            variables[i] = value;
+            slots[base + i] = value;
+            references[base + i] = Segment.PRIMITIVE;
         }
 
         public void set(int i, float value) {
@@ -182,11 +487,12 @@ final class Frame {
         }
 
         public Object get(int i) {
-            return variables[i];
+            final Object reference = references[base + i];
+            return reference == Segment.PRIMITIVE ? (Object)slots[base + i] : reference;
         }
 
         public int getInt(int i) {
-            return (int)variables[i];
+            return slots[base + i];
         }
 
         public float getFloat(int i) {
@@ -1,14 +1,26 @@
 package me.chongwish.jjvm;
 
-import java.util.AbstractMap;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 import me.chongwish.jjvm.RuntimeDataArea.Heap;
 import me.chongwish.jjvm.RuntimeDataArea.JavaStack;
@@ -19,7 +31,9 @@ import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
  * <p>
  * <b>Usage:</b>
  * <p>
- * {@code   Instruction.Set.get(instruction-code).apply(frame, bytecode)}
+ * {@code   Instruction.Set[instruction-code].execute(frame, bytecode)}
+ * <p>
+ * The operands of a instruction are read from the pre-decoded operation, see {@code Bytecode.decode}.
  * <p>
  * The specifection of instruction:
  * 
@@ -27,738 +41,750 @@ import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
  */
 final class Instruction {
     /**
-     * A map of the instruction set.
+     * The implementation of a instruction.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void execute(Frame frame, Bytecode bytecode);
+    }
+
+    /**
+     * A table of the instruction set, the index is the opcode.
      */
-    final public static Map<Integer, BiConsumer<Frame, Bytecode>> Set = new HashMap<>();
+    final public static Handler[] Set = new Handler[256];
 
     static {
         // nop
-        Set.put(0x00, (frame, bytecode) -> {
-        });
+        Set[0x00] = (frame, bytecode) -> {
+        };
 
         // aconst_null
-        Set.put(0x01, Helper.pushValueToStack(null));
+        Set[0x01] = Helper.pushValueToStack(null);
 
         // iconst_m1
-        Set.put(0x02, Helper.pushValueToStack(-1));
+        Set[0x02] = Helper.pushValueToStack(-1);
 
         // iconst_0
-        Set.put(0x03, Helper.pushValueToStack(0));
+        Set[0x03] = Helper.pushValueToStack(0);
 
         // iconst_1
-        Set.put(0x04, Helper.pushValueToStack(1));
+        Set[0x04] = Helper.pushValueToStack(1);
 
         // iconst_2
-        Set.put(0x05, Helper.pushValueToStack(2));
+        Set[0x05] = Helper.pushValueToStack(2);
 
         // iconst_3
-        Set.put(0x06, Helper.pushValueToStack(3));
+        Set[0x06] = Helper.pushValueToStack(3);
 
         // iconst_4
-        Set.put(0x07, Helper.pushValueToStack(4));
+        Set[0x07] = Helper.pushValueToStack(4);
 
         // iconst_5
-        Set.put(0x08, Helper.pushValueToStack(5));
+        Set[0x08] = Helper.pushValueToStack(5);
 
         // lconst_0
-        Set.put(0x09, Helper.pushValueToStack(0l));
+        Set[0x09] = Helper.pushValueToStack(0l);
 
         // lconst_1
-        Set.put(0x0a, Helper.pushValueToStack(1l));
+        Set[0x0a] = Helper.pushValueToStack(1l);
 
         // fconst_0
-        Set.put(0x0b, Helper.pushValueToStack(0.0f));
+        Set[0x0b] = Helper.pushValueToStack(0.0f);
 
         // fconst_1
-        Set.put(0x0c, Helper.pushValueToStack(1.0f));
+        Set[0x0c] = Helper.pushValueToStack(1.0f);
 
         // fconst_2
-        Set.put(0x0d, Helper.pushValueToStack(2.0f));
+        Set[0x0d] = Helper.pushValueToStack(2.0f);
 
         // dconst_0
-        Set.put(0x0e, Helper.pushValueToStack(0.0));
+        Set[0x0e] = Helper.pushValueToStack(0.0);
 
         // dconst_1
-        Set.put(0x0f, Helper.pushValueToStack(1.0));
+        Set[0x0f] = Helper.pushValueToStack(1.0);
 
         // bipush
-        Set.put(0x10, (frame, bytecode) -> {
-            frame.getOperandStack().push(bytecode.get());
-        });
+        Set[0x10] = (frame, bytecode) -> {
+            frame.getOperandStack().push(bytecode.getOperand());
+        };
 
         // sipush
-        Set.put(0x11, (frame, bytecode) -> {
-            frame.getOperandStack().push(bytecode.getShort());
-        });
+        Set[0x11] = (frame, bytecode) -> {
+            frame.getOperandStack().push(bytecode.getOperand());
+        };
 
         // ldc
-        Set.put(0x12, Helper.LdcOperate(bytecode -> bytecode.getU1()));
+        Set[0x12] = Helper.LdcOperate(bytecode -> bytecode.getOperand());
 
         // ldc_w
-        Set.put(0x13, Helper.LdcOperate(bytecode -> bytecode.getChar()));
+        Set[0x13] = Helper.LdcOperate(bytecode -> bytecode.getOperand());
 
         // ldc2_w
-        Set.put(0x14, Helper.LdcOperate(bytecode -> bytecode.getChar()));
+        Set[0x14] = Helper.LdcOperate(bytecode -> bytecode.getOperand());
 
         // iload
-        Set.put(0x15, Helper.pushToStackFromArray(bytecode -> bytecode.getU1(),
-                (index, localVariable) -> localVariable.getInt(index)));
+        Set[0x15] = Helper.pushToStackFromArray(bytecode -> bytecode.getOperand(), 'I');
 
         // lload
-        Set.put(0x16, Helper.pushToStackFromArray(bytecode -> bytecode.getU1(),
-                (index, localVariable) -> localVariable.getLong(index)));
+        Set[0x16] = Helper.pushToStackFromArray(bytecode -> bytecode.getOperand(), 'J');
 
         // fload
-        Set.put(0x17, Helper.pushToStackFromArray(bytecode -> bytecode.getU1(),
-                (index, localVariable) -> localVariable.getFloat(index)));
+        Set[0x17] = Helper.pushToStackFromArray(bytecode -> bytecode.getOperand(), 'F');
 
         // dload
-        Set.put(0x18, Helper.pushToStackFromArray(bytecode -> bytecode.getU1(),
-                (index, localVariable) -> localVariable.getDouble(index)));
+        Set[0x18] = Helper.pushToStackFromArray(bytecode -> bytecode.getOperand(), 'D');
 
         // aload
-        Set.put(0x19, Helper.pushToStackFromArray(bytecode -> bytecode.getU1(),
-                (index, localVariable) -> localVariable.get(index)));
+        Set[0x19] = Helper.pushToStackFromArray(bytecode -> bytecode.getOperand(), 'L');
 
         // iload_0
-        Set.put(0x1a,
-                Helper.pushToStackFromArray(bytecode -> 0, (index, localVariable) -> localVariable.getInt(index)));
+        Set[0x1a] = Helper.pushToStackFromArray(bytecode -> 0, 'I');
 
         // iload_1
-        Set.put(0x1b,
-                Helper.pushToStackFromArray(bytecode -> 1, (index, localVariable) -> localVariable.getInt(index)));
+        Set[0x1b] = Helper.pushToStackFromArray(bytecode -> 1, 'I');
 
         // iload_2
-        Set.put(0x1c,
-                Helper.pushToStackFromArray(bytecode -> 2, (index, localVariable) -> localVariable.getInt(index)));
+        Set[0x1c] = Helper.pushToStackFromArray(bytecode -> 2, 'I');
 
         // iload_3
-        Set.put(0x1d,
-                Helper.pushToStackFromArray(bytecode -> 3, (index, localVariable) -> localVariable.getInt(index)));
+        Set[0x1d] = Helper.pushToStackFromArray(bytecode -> 3, 'I');
 
         // lload_0
-        Set.put(0x1e,
-                Helper.pushToStackFromArray(bytecode -> 0, (index, localVariable) -> localVariable.getLong(index)));
+        Set[0x1e] = Helper.pushToStackFromArray(bytecode -> 0, 'J');
 
         // lload_1
-        Set.put(0x1f,
-                Helper.pushToStackFromArray(bytecode -> 1, (index, localVariable) -> localVariable.getLong(index)));
+        Set[0x1f] = Helper.pushToStackFromArray(bytecode -> 1, 'J');
 
         // lload_2
-        Set.put(0x20,
-                Helper.pushToStackFromArray(bytecode -> 2, (index, localVariable) -> localVariable.getLong(index)));
+        Set[0x20] = Helper.pushToStackFromArray(bytecode -> 2, 'J');
 
         // lload_3
-        Set.put(0x21,
-                Helper.pushToStackFromArray(bytecode -> 3, (index, localVariable) -> localVariable.getLong(index)));
+        Set[0x21] = Helper.pushToStackFromArray(bytecode -> 3, 'J');
 
         // fload_0
-        Set.put(0x22,
-                Helper.pushToStackFromArray(bytecode -> 0, (index, localVariable) -> localVariable.getFloat(index)));
+        Set[0x22] = Helper.pushToStackFromArray(bytecode -> 0, 'F');
 
         // fload_1
-        Set.put(0x23,
-                Helper.pushToStackFromArray(bytecode -> 1, (index, localVariable) -> localVariable.getFloat(index)));
+        Set[0x23] = Helper.pushToStackFromArray(bytecode -> 1, 'F');
 
         // fload_2
-        Set.put(0x24,
-                Helper.pushToStackFromArray(bytecode -> 2, (index, localVariable) -> localVariable.getFloat(index)));
+        Set[0x24] = Helper.pushToStackFromArray(bytecode -> 2, 'F');
 
         // fload_3
-        Set.put(0x25,
-                Helper.pushToStackFromArray(bytecode -> 3, (index, localVariable) -> localVariable.getFloat(index)));
+        Set[0x25] = Helper.pushToStackFromArray(bytecode -> 3, 'F');
 
         // dload_0
-        Set.put(0x26,
-                Helper.pushToStackFromArray(bytecode -> 0, (index, localVariable) -> localVariable.getDouble(index)));
+        Set[0x26] = Helper.pushToStackFromArray(bytecode -> 0, 'D');
 
         // dload_1
-        Set.put(0x27,
-                Helper.pushToStackFromArray(bytecode -> 1, (index, localVariable) -> localVariable.getDouble(index)));
+        Set[0x27] = Helper.pushToStackFromArray(bytecode -> 1, 'D');
 
         // dload_2
-        Set.put(0x28,
-                Helper.pushToStackFromArray(bytecode -> 2, (index, localVariable) -> localVariable.getDouble(index)));
+        Set[0x28] = Helper.pushToStackFromArray(bytecode -> 2, 'D');
 
         // dload_3
-        Set.put(0x29,
-                Helper.pushToStackFromArray(bytecode -> 3, (index, localVariable) -> localVariable.getDouble(index)));
+        Set[0x29] = Helper.pushToStackFromArray(bytecode -> 3, 'D');
 
         // aload_0
-        Set.put(0x2a, Helper.pushToStackFromArray(bytecode -> 0, (index, localVariable) -> localVariable.get(index)));
+        Set[0x2a] = Helper.pushToStackFromArray(bytecode -> 0, 'L');
 
         // aload_1
-        Set.put(0x2b, Helper.pushToStackFromArray(bytecode -> 1, (index, localVariable) -> localVariable.get(index)));
+        Set[0x2b] = Helper.pushToStackFromArray(bytecode -> 1, 'L');
 
         // aload_2
-        Set.put(0x2c, Helper.pushToStackFromArray(bytecode -> 2, (index, localVariable) -> localVariable.get(index)));
+        Set[0x2c] = Helper.pushToStackFromArray(bytecode -> 2, 'L');
 
         // aload_3
-        Set.put(0x2d, Helper.pushToStackFromArray(bytecode -> 3, (index, localVariable) -> localVariable.get(index)));
+        Set[0x2d] = Helper.pushToStackFromArray(bytecode -> 3, 'L');
 
         // iaload
-        Set.put(0x2e, Helper.arrayLoad(fields -> (int[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x2e] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getInt(index));
+        };
 
         // laload
-        Set.put(0x2f, Helper.arrayLoad(fields -> (long[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x2f] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getLong(index));
+        };
 
         // faload
-        Set.put(0x30, Helper.arrayLoad(fields -> (float[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x30] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getFloat(index));
+        };
 
         // daload
-        Set.put(0x31, Helper.arrayLoad(fields -> (double[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x31] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getDouble(index));
+        };
 
         // aaload
-        Set.put(0x32, Helper.arrayLoad(fields -> (Object[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x32] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getReference(index));
+        };
 
         // baload
-        Set.put(0x33, Helper.arrayLoad(fields -> (int[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x33] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getByte(index));
+        };
 
         // caload
-        Set.put(0x34, Helper.arrayLoad(fields -> (int[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x34] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getChar(index));
+        };
 
         // saload
-        Set.put(0x35, Helper.arrayLoad(fields -> (int[])fields, (fields, index) -> fields.length > index,
-                (fields, index) -> fields[index]));
+        Set[0x35] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int index = operandStack.popInt();
+            operandStack.push(Helper.popArray(operandStack, index).getShort(index));
+        };
 
         // istore
-        Set.put(0x36, Helper.setToArrayFromStack(bytecode -> bytecode.getU1(), operandStack -> operandStack.popInt()));
+        Set[0x36] = Helper.setToArrayFromStack(bytecode -> bytecode.getOperand(), 'I');
 
         // lstore
-        Set.put(0x37, Helper.setToArrayFromStack(bytecode -> bytecode.getU1(), operandStack -> operandStack.popLong()));
+        Set[0x37] = Helper.setToArrayFromStack(bytecode -> bytecode.getOperand(), 'J');
 
         // fstore
-        Set.put(0x38,
-                Helper.setToArrayFromStack(bytecode -> bytecode.getU1(), operandStack -> operandStack.popFloat()));
+        Set[0x38] = Helper.setToArrayFromStack(bytecode -> bytecode.getOperand(), 'F');
 
         // dstore
-        Set.put(0x39,
-                Helper.setToArrayFromStack(bytecode -> bytecode.getU1(), operandStack -> operandStack.popDouble()));
+        Set[0x39] = Helper.setToArrayFromStack(bytecode -> bytecode.getOperand(), 'D');
 
         // astore
-        Set.put(0x3a, Helper.setToArrayFromStack(bytecode -> bytecode.getU1(), operandStack -> operandStack.pop()));
+        Set[0x3a] = Helper.setToArrayFromStack(bytecode -> bytecode.getOperand(), 'L');
 
         // istore_0
-        Set.put(0x3b, Helper.setToArrayFromStack(bytecode -> 0, operandStack -> operandStack.popInt()));
+        Set[0x3b] = Helper.setToArrayFromStack(bytecode -> 0, 'I');
 
         // istore_1
-        Set.put(0x3c, Helper.setToArrayFromStack(bytecode -> 1, operandStack -> operandStack.popInt()));
+        Set[0x3c] = Helper.setToArrayFromStack(bytecode -> 1, 'I');
 
         // istore_2
-        Set.put(0x3d, Helper.setToArrayFromStack(bytecode -> 2, operandStack -> operandStack.popInt()));
+        Set[0x3d] = Helper.setToArrayFromStack(bytecode -> 2, 'I');
 
         // istore_3
-        Set.put(0x3e, Helper.setToArrayFromStack(bytecode -> 3, operandStack -> operandStack.popInt()));
+        Set[0x3e] = Helper.setToArrayFromStack(bytecode -> 3, 'I');
 
         // lstore_0
-        Set.put(0x3f, Helper.setToArrayFromStack(bytecode -> 0, operandStack -> operandStack.popLong()));
+        Set[0x3f] = Helper.setToArrayFromStack(bytecode -> 0, 'J');
 
         // lstore_1
-        Set.put(0x40, Helper.setToArrayFromStack(bytecode -> 1, operandStack -> operandStack.popLong()));
+        Set[0x40] = Helper.setToArrayFromStack(bytecode -> 1, 'J');
 
         // lstore_2
-        Set.put(0x41, Helper.setToArrayFromStack(bytecode -> 2, operandStack -> operandStack.popLong()));
+        Set[0x41] = Helper.setToArrayFromStack(bytecode -> 2, 'J');
 
         // lstore_3
-        Set.put(0x42, Helper.setToArrayFromStack(bytecode -> 3, operandStack -> operandStack.popLong()));
+        Set[0x42] = Helper.setToArrayFromStack(bytecode -> 3, 'J');
 
         // fstore_0
-        Set.put(0x43, Helper.setToArrayFromStack(bytecode -> 0, operandStack -> operandStack.popFloat()));
+        Set[0x43] = Helper.setToArrayFromStack(bytecode -> 0, 'F');
 
         // fstore_1
-        Set.put(0x44, Helper.setToArrayFromStack(bytecode -> 1, operandStack -> operandStack.popFloat()));
+        Set[0x44] = Helper.setToArrayFromStack(bytecode -> 1, 'F');
 
         // fstore_2
-        Set.put(0x45, Helper.setToArrayFromStack(bytecode -> 2, operandStack -> operandStack.popFloat()));
+        Set[0x45] = Helper.setToArrayFromStack(bytecode -> 2, 'F');
 
         // fstore_3
-        Set.put(0x46, Helper.setToArrayFromStack(bytecode -> 3, operandStack -> operandStack.popFloat()));
+        Set[0x46] = Helper.setToArrayFromStack(bytecode -> 3, 'F');
 
         // dstore_0
-        Set.put(0x47, Helper.setToArrayFromStack(bytecode -> 0, operandStack -> operandStack.popDouble()));
+        Set[0x47] = Helper.setToArrayFromStack(bytecode -> 0, 'D');
 
         // dstore_1
-        Set.put(0x48, Helper.setToArrayFromStack(bytecode -> 1, operandStack -> operandStack.popDouble()));
+        Set[0x48] = Helper.setToArrayFromStack(bytecode -> 1, 'D');
 
         // dstore_2
-        Set.put(0x49, Helper.setToArrayFromStack(bytecode -> 2, operandStack -> operandStack.popDouble()));
+        Set[0x49] = Helper.setToArrayFromStack(bytecode -> 2, 'D');
 
         // dstore_3
-        Set.put(0x4a, Helper.setToArrayFromStack(bytecode -> 3, operandStack -> operandStack.popDouble()));
+        Set[0x4a] = Helper.setToArrayFromStack(bytecode -> 3, 'D');
 
         // astore_0
-        Set.put(0x4b, Helper.setToArrayFromStack(bytecode -> 0, operandStack -> operandStack.pop()));
+        Set[0x4b] = Helper.setToArrayFromStack(bytecode -> 0, 'L');
 
         // astore_1
-        Set.put(0x4c, Helper.setToArrayFromStack(bytecode -> 1, operandStack -> operandStack.pop()));
+        Set[0x4c] = Helper.setToArrayFromStack(bytecode -> 1, 'L');
 
         // astore_2
-        Set.put(0x4d, Helper.setToArrayFromStack(bytecode -> 2, operandStack -> operandStack.pop()));
+        Set[0x4d] = Helper.setToArrayFromStack(bytecode -> 2, 'L');
 
         // astore_3
-        Set.put(0x4e, Helper.setToArrayFromStack(bytecode -> 3, operandStack -> operandStack.pop()));
+        Set[0x4e] = Helper.setToArrayFromStack(bytecode -> 3, 'L');
 
         // iastore
-        Set.put(0x4f, Helper.arrayStore(operandStack -> operandStack.popInt(), fields -> (int[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x4f] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int value = operandStack.popInt();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setInt(index, value);
+        };
 
         // lastore
-        Set.put(0x50, Helper.arrayStore(operandStack -> operandStack.popLong(), fields -> (long[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x50] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final long value = operandStack.popLong();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setLong(index, value);
+        };
 
         // fastore
-        Set.put(0x51, Helper.arrayStore(operandStack -> operandStack.popFloat(), fields -> (float[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x51] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final float value = operandStack.popFloat();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setFloat(index, value);
+        };
 
         // dastore
-        Set.put(0x52, Helper.arrayStore(operandStack -> operandStack.popDouble(), fields -> (double[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x52] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final double value = operandStack.popDouble();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setDouble(index, value);
+        };
 
         // aastore
-        Set.put(0x53, Helper.arrayStore(operandStack -> operandStack.pop(), fields -> (Object[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x53] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final Object value = operandStack.pop();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setReference(index, value);
+        };
 
         // bastore
-        Set.put(0x54, Helper.arrayStore(operandStack -> operandStack.popInt(), fields -> (int[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x54] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int value = operandStack.popInt();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setByte(index, (byte)value);
+        };
 
         // castore
-        Set.put(0x55, Helper.arrayStore(operandStack -> operandStack.popInt(), fields -> (int[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x55] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int value = operandStack.popInt();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setChar(index, (char)value);
+        };
 
         // sastore
-        Set.put(0x56, Helper.arrayStore(operandStack -> operandStack.popInt(), fields -> (int[])fields,
-                (fields, index) -> fields.length > index, (fields, map) -> fields[map.getKey()] = map.getValue()));
+        Set[0x56] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            final int value = operandStack.popInt();
+            final int index = operandStack.popInt();
+            Helper.popArray(operandStack, index).setShort(index, (short)value);
+        };
 
         // pop
-        Set.put(0x57, (frame, bytecode) -> {
-            frame.getOperandStack().pop();
-        });
+        Set[0x57] = (frame, bytecode) -> {
+            frame.getOperandStack().discard(1);
+        };
 
         // pop2
-        Set.put(0x58, (frame, bytecode) -> {
-            frame.getOperandStack().pop();
-            frame.getOperandStack().pop();
-        });
+        Set[0x58] = (frame, bytecode) -> {
+            frame.getOperandStack().discard(2);
+        };
 
         // dup
-        Set.put(0x59, (frame, bytecode) -> {
-            frame.getOperandStack().push(frame.getOperandStack().current());
-        });
+        Set[0x59] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(1, 0);
+        };
 
         // dup_x1
-        Set.put(0x5a, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.pop();
-            operandStack.push(a);
-            operandStack.push(b);
-            operandStack.push(a);
-        });
+        Set[0x5a] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(1, 1);
+        };
 
         // dup_x2
-        Set.put(0x5b, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.pop();
-            final Object c = operandStack.pop();
-            operandStack.push(a);
-            operandStack.push(c);
-            operandStack.push(b);
-            operandStack.push(a);
-        });
+        Set[0x5b] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(1, 2);
+        };
 
         // dup2
-        Set.put(0x5c, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.current();
-            operandStack.push(a);
-            operandStack.push(b);
-            operandStack.push(a);
-        });
+        Set[0x5c] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(2, 0);
+        };
 
         // dup2_x1
-        Set.put(0x5d, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.pop();
-            final Object c = operandStack.pop();
-            operandStack.push(b);
-            operandStack.push(a);
-            operandStack.push(c);
-            operandStack.push(b);
-            operandStack.push(a);
-        });
+        Set[0x5d] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(2, 1);
+        };
 
-        // dup_x2
-        Set.put(0x5e, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.pop();
-            final Object c = operandStack.pop();
-            final Object d = operandStack.pop();
-            operandStack.push(b);
-            operandStack.push(a);
-            operandStack.push(d);
-            operandStack.push(c);
-            operandStack.push(b);
-            operandStack.push(a);
-        });
+        // dup2_x2
+        Set[0x5e] = (frame, bytecode) -> {
+            frame.getOperandStack().duplicate(2, 2);
+        };
 
         // swap
-        Set.put(0x5f, (frame, bytecode) -> {
-            final Frame.OperandStack operandStack = frame.getOperandStack();
-            final Object a = operandStack.pop();
-            final Object b = operandStack.pop();
-            operandStack.push(a);
-            operandStack.push(b);
-        });
+        Set[0x5f] = (frame, bytecode) -> {
+            frame.getOperandStack().swap();
+        };
 
         // iadd
-        Set.put(0x60, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a + b));
+        Set[0x60] = Helper.arithmeticIntOperate((a, b) -> a + b);
 
         // ladd
-        Set.put(0x61, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a + b));
+        Set[0x61] = Helper.arithmeticLongOperate((a, b) -> a + b);
 
         // fadd
-        Set.put(0x62, Helper.arithmeticOperate(operandStack -> operandStack.popFloat(), (a, b) -> a + b));
+        Set[0x62] = Helper.arithmeticFloatOperate((a, b) -> a + b);
 
         // dadd
-        Set.put(0x63, Helper.arithmeticOperate(operandStack -> operandStack.popDouble(), (a, b) -> a + b));
+        Set[0x63] = Helper.arithmeticDoubleOperate((a, b) -> a + b);
 
         // isub
-        Set.put(0x64, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a - b));
+        Set[0x64] = Helper.arithmeticIntOperate((a, b) -> a - b);
 
         // lsub
-        Set.put(0x65, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a - b));
+        Set[0x65] = Helper.arithmeticLongOperate((a, b) -> a - b);
 
         // fsub
-        Set.put(0x66, Helper.arithmeticOperate(operandStack -> operandStack.popFloat(), (a, b) -> a - b));
+        Set[0x66] = Helper.arithmeticFloatOperate((a, b) -> a - b);
 
         // dsub
-        Set.put(0x67, Helper.arithmeticOperate(operandStack -> operandStack.popDouble(), (a, b) -> a - b));
+        Set[0x67] = Helper.arithmeticDoubleOperate((a, b) -> a - b);
 
         // imul
-        Set.put(0x68, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a * b));
+        Set[0x68] = Helper.arithmeticIntOperate((a, b) -> a * b);
 
         // lmul
-        Set.put(0x69, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a * b));
+        Set[0x69] = Helper.arithmeticLongOperate((a, b) -> a * b);
 
         // fmul
-        Set.put(0x6a, Helper.arithmeticOperate(operandStack -> operandStack.popFloat(), (a, b) -> a * b));
+        Set[0x6a] = Helper.arithmeticFloatOperate((a, b) -> a * b);
 
         // dmul
-        Set.put(0x6b, Helper.arithmeticOperate(operandStack -> operandStack.popDouble(), (a, b) -> a * b));
+        Set[0x6b] = Helper.arithmeticDoubleOperate((a, b) -> a * b);
 
         // idiv
-        Set.put(0x6c, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a / b, a -> a == 0));
+        Set[0x6c] = Helper.arithmeticIntOperate((a, b) -> a / b, a -> a == 0);
 
         // ldiv
-        Set.put(0x6d, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a / b, a -> a == 0));
+        Set[0x6d] = Helper.arithmeticLongOperate((a, b) -> a / b, a -> a == 0);
 
         // fdiv
-        Set.put(0x6e, Helper.arithmeticOperate(operandStack -> operandStack.popFloat(), (a, b) -> a / b, a -> a == 0));
+        Set[0x6e] = Helper.arithmeticFloatOperate((a, b) -> a / b, a -> a == 0);
 
         // ddiv
-        Set.put(0x6f, Helper.arithmeticOperate(operandStack -> operandStack.popDouble(), (a, b) -> a / b, a -> a == 0));
+        Set[0x6f] = Helper.arithmeticDoubleOperate((a, b) -> a / b, a -> a == 0);
 
         // irem
-        Set.put(0x70, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a % b, a -> a == 0));
+        Set[0x70] = Helper.arithmeticIntOperate((a, b) -> a % b, a -> a == 0);
 
         // lrem
-        Set.put(0x71, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a % b, a -> a == 0));
+        Set[0x71] = Helper.arithmeticLongOperate((a, b) -> a % b, a -> a == 0);
 
         // frem
-        Set.put(0x72, Helper.arithmeticOperate(operandStack -> operandStack.popFloat(), (a, b) -> a % b, a -> a == 0));
+        Set[0x72] = Helper.arithmeticFloatOperate((a, b) -> a % b, a -> a == 0);
 
         // drem
-        Set.put(0x73, Helper.arithmeticOperate(operandStack -> operandStack.popDouble(), (a, b) -> a % b, a -> a == 0));
+        Set[0x73] = Helper.arithmeticDoubleOperate((a, b) -> a % b, a -> a == 0);
 
         // ineg
-        Set.put(0x74, Helper.unaryOperate(operandStack -> operandStack.popInt(), a -> -a));
+        Set[0x74] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push(-operandStack.popInt());
+        };
 
         // lneg
-        Set.put(0x75, Helper.unaryOperate(operandStack -> operandStack.popLong(), a -> -a));
+        Set[0x75] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push(-operandStack.popLong());
+        };
 
         // fneg
-        Set.put(0x76, Helper.unaryOperate(operandStack -> operandStack.popFloat(), a -> -a));
+        Set[0x76] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push(-operandStack.popFloat());
+        };
 
         // dneg
-        Set.put(0x77, Helper.unaryOperate(operandStack -> operandStack.popDouble(), a -> -a));
+        Set[0x77] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push(-operandStack.popDouble());
+        };
 
         // ishl
-        Set.put(0x78, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x1f,
-                operandStack -> operandStack.popInt(), (a, b) -> a << b));
+        Set[0x78] = Helper.arithmeticIntOperate((a, b) -> a << (b & 0x1f));
 
         // lshl
-        Set.put(0x79, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x3f,
-                operandStack -> operandStack.popLong(), (a, b) -> a << b));
+        Set[0x79] = Helper.shiftLongOperate((a, b) -> a << b);
 
         // ishr
-        Set.put(0x7a, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x1f,
-                operandStack -> operandStack.popInt(), (a, b) -> a >> b));
+        Set[0x7a] = Helper.arithmeticIntOperate((a, b) -> a >> (b & 0x1f));
 
         // lshr
-        Set.put(0x7b, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x3f,
-                operandStack -> operandStack.popLong(), (a, b) -> a >> b));
+        Set[0x7b] = Helper.shiftLongOperate((a, b) -> a >> b);
 
         // iushr
-        Set.put(0x7c, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x1f,
-                operandStack -> operandStack.popInt(), (a, b) -> a >>> b));
+        Set[0x7c] = Helper.arithmeticIntOperate((a, b) -> a >>> (b & 0x1f));
 
         // lushr
-        Set.put(0x7d, Helper.arithmeticOperate(operandStack -> operandStack.popInt() & 0x3f,
-                operandStack -> operandStack.popLong(), (a, b) -> a >>> b));
+        Set[0x7d] = Helper.shiftLongOperate((a, b) -> a >>> b);
 
         // iand
-        Set.put(0x7e, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a & b));
+        Set[0x7e] = Helper.arithmeticIntOperate((a, b) -> a & b);
 
         // land
-        Set.put(0x7f, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a & b));
+        Set[0x7f] = Helper.arithmeticLongOperate((a, b) -> a & b);
 
         // ior
-        Set.put(0x80, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a | b));
+        Set[0x80] = Helper.arithmeticIntOperate((a, b) -> a | b);
 
         // lor
-        Set.put(0x81, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a | b));
+        Set[0x81] = Helper.arithmeticLongOperate((a, b) -> a | b);
 
         // ixor
-        Set.put(0x82, Helper.arithmeticOperate(operandStack -> operandStack.popInt(), (a, b) -> a ^ b));
+        Set[0x82] = Helper.arithmeticIntOperate((a, b) -> a ^ b);
 
         // lxor
-        Set.put(0x83, Helper.arithmeticOperate(operandStack -> operandStack.popLong(), (a, b) -> a ^ b));
+        Set[0x83] = Helper.arithmeticLongOperate((a, b) -> a ^ b);
 
         // iinc
-        Set.put(0x84, (frame, bytecode) -> {
-            final int index = bytecode.getU1();
-            final int value = bytecode.get();
+        Set[0x84] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
+            final int value = bytecode.getSecondOperand();
             final Frame.LocalVariable localVariable = frame.getLocalVariable();
             localVariable.set(index, localVariable.getInt(index) + value);
-        });
+        };
 
         // i2l
-        Set.put(0x85, Helper.unaryOperate(operandStack -> operandStack.popInt(), a -> (long)a.intValue()));
+        Set[0x85] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((long)operandStack.popInt());
+        };
 
         // i2f
-        Set.put(0x86, Helper.unaryOperate(operandStack -> operandStack.popInt(), a -> (float)a.intValue()));
+        Set[0x86] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((float)operandStack.popInt());
+        };
 
         // i2d
-        Set.put(0x87, Helper.unaryOperate(operandStack -> operandStack.popInt(), a -> (double)a.intValue()));
+        Set[0x87] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((double)operandStack.popInt());
+        };
 
         // l2i
-        Set.put(0x88, Helper.unaryOperate(operandStack -> operandStack.popLong(), a -> (int)a.longValue()));
+        Set[0x88] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)operandStack.popLong());
+        };
 
         // l2f
-        Set.put(0x89, Helper.unaryOperate(operandStack -> operandStack.popLong(), a -> (float)a.longValue()));
+        Set[0x89] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((float)operandStack.popLong());
+        };
 
         // l2d
-        Set.put(0x8a, Helper.unaryOperate(operandStack -> operandStack.popLong(), a -> (double)a.longValue()));
+        Set[0x8a] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((double)operandStack.popLong());
+        };
 
         // f2i
-        Set.put(0x8b, Helper.unaryOperate(operandStack -> operandStack.popFloat(), a -> (int)a.floatValue()));
+        Set[0x8b] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)operandStack.popFloat());
+        };
 
         // f2l
-        Set.put(0x8c, Helper.unaryOperate(operandStack -> operandStack.popFloat(), a -> (long)a.floatValue()));
+        Set[0x8c] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((long)operandStack.popFloat());
+        };
 
         // f2d
-        Set.put(0x8d, Helper.unaryOperate(operandStack -> operandStack.popFloat(), a -> (double)a.floatValue()));
+        Set[0x8d] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((double)operandStack.popFloat());
+        };
 
         // d2i
-        Set.put(0x8e, Helper.unaryOperate(operandStack -> operandStack.popDouble(), a -> (int)a.doubleValue()));
+        Set[0x8e] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)operandStack.popDouble());
+        };
 
         // d2l
-        Set.put(0x8f, Helper.unaryOperate(operandStack -> operandStack.popDouble(), a -> (long)a.doubleValue()));
+        Set[0x8f] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((long)operandStack.popDouble());
+        };
 
         // d2f
-        Set.put(0x90, Helper.unaryOperate(operandStack -> operandStack.popDouble(), a -> (float)a.doubleValue()));
+        Set[0x90] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((float)operandStack.popDouble());
+        };
 
         // i2b
-        Set.put(0x91, (frame, bytecode) -> {
-        });
+        Set[0x91] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)(byte)operandStack.popInt());
+        };
 
         // i2c
-        Set.put(0x92, (frame, bytecode) -> {
-        });
+        Set[0x92] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)(char)operandStack.popInt());
+        };
 
         // i2s
-        Set.put(0x93, (frame, bytecode) -> {
-        });
+        Set[0x93] = (frame, bytecode) -> {
+            final Frame.OperandStack operandStack = frame.getOperandStack();
+            operandStack.push((int)(short)operandStack.popInt());
+        };
 
         // lcmp
-        Set.put(0x94, (frame, bytecode) -> {
+        Set[0x94] = (frame, bytecode) -> {
             final Frame.OperandStack operandStack = frame.getOperandStack();
             final long a = operandStack.popLong();
             final long b = operandStack.popLong();
             operandStack.push(Long.compare(b, a));
-        });
+        };
 
         // fcmpl
-        Set.put(0x95, Helper.compareFromStack(-1, operandStack -> operandStack.popFloat(), a -> a.isNaN()));
+        Set[0x95] = Helper.compareFromStack(-1, operandStack -> operandStack.popFloat());
 
         // fcmpg
-        Set.put(0x96, Helper.compareFromStack(1, operandStack -> operandStack.popFloat(), a -> a.isNaN()));
+        Set[0x96] = Helper.compareFromStack(1, operandStack -> operandStack.popFloat());
 
         // dcmpl
-        Set.put(0x97, Helper.compareFromStack(-1, operandStack -> operandStack.popDouble(), a -> a.isNaN()));
+        Set[0x97] = Helper.compareFromStack(-1, operandStack -> operandStack.popDouble());
 
         // dcmpg
-        Set.put(0x98, Helper.compareFromStack(1, operandStack -> operandStack.popDouble(), a -> a.isNaN()));
+        Set[0x98] = Helper.compareFromStack(1, operandStack -> operandStack.popDouble());
 
         // ifeq
-        Set.put(0x99, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a == 0));
+        Set[0x99] = Helper.jumpBranchByComparation(a -> a == 0);
 
         // ifne
-        Set.put(0x9a, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a != 0));
+        Set[0x9a] = Helper.jumpBranchByComparation(a -> a != 0);
 
         // iflt
-        Set.put(0x9b, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a < 0));
+        Set[0x9b] = Helper.jumpBranchByComparation(a -> a < 0);
 
         // ifge
-        Set.put(0x9c, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a >= 0));
+        Set[0x9c] = Helper.jumpBranchByComparation(a -> a >= 0);
 
         // ifgt
-        Set.put(0x9d, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a > 0));
+        Set[0x9d] = Helper.jumpBranchByComparation(a -> a > 0);
 
         // ifle
-        Set.put(0x9e, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), a -> a <= 0));
+        Set[0x9e] = Helper.jumpBranchByComparation(a -> a <= 0);
 
         // if_icmpeq
-        Set.put(0x9f, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a == b));
+        Set[0x9f] = Helper.jumpBranchByComparation((a, b) -> a == b);
 
         // if_icmpne
-        Set.put(0xa0, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a != b));
+        Set[0xa0] = Helper.jumpBranchByComparation((a, b) -> a != b);
 
         // if_icmplt
-        Set.put(0xa1, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a < b));
+        Set[0xa1] = Helper.jumpBranchByComparation((a, b) -> a < b);
 
         // if_icmpge
-        Set.put(0xa2, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a >= b));
+        Set[0xa2] = Helper.jumpBranchByComparation((a, b) -> a >= b);
 
         // if_icmpgt
-        Set.put(0xa3, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a > b));
+        Set[0xa3] = Helper.jumpBranchByComparation((a, b) -> a > b);
 
         // if_icmple
-        Set.put(0xa4, Helper.jumpBranchByComparation(operandStack -> operandStack.popInt(), (a, b) -> a <= b));
+        Set[0xa4] = Helper.jumpBranchByComparation((a, b) -> a <= b);
 
         // if_acmpeq
-        Set.put(0xa5, Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), (a, b) -> a.equals(b)));
+        Set[0xa5] = Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), (a, b) -> a == b);
 
         // if_acmpne
-        Set.put(0xa6, Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), (a, b) -> !a.equals(b)));
+        Set[0xa6] = Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), (a, b) -> a != b);
 
         // goto
-        Set.put(0xa7, (frame, bytecode) -> {
+        Set[0xa7] = (frame, bytecode) -> {
             bytecode.jump();
-        });
+        };
 
         // @todo jsr
-        Set.put(0xa8, Helper.Unsupport());
+        Set[0xa8] = Helper.Unsupport();
 
         // @todo ret
-        Set.put(0xa9, Helper.Unsupport());
+        Set[0xa9] = Helper.Unsupport();
 
         // tableswitch
-        Set.put(0xaa, (frame, bytecode) -> {
-            int pc = bytecode.getPc();
-            Helper.skipPadding(bytecode);
+        Set[0xaa] = (frame, bytecode) -> {
             final int index = frame.getOperandStack().popInt();
-            int offset = bytecode.getInt();
-            final int low = bytecode.getInt();
-            final int high = bytecode.getInt();
-            final int n = high - low + 1;
-            final int array[] = new int[n];
-            for (int i = 0; i < n; ++i) {
-                array[i] = bytecode.getInt();
-            }
-            if (index >= low && index <= high) {
-                offset = array[index - low];
+            final int low = bytecode.getSecondOperand();
+            final int[] targets = bytecode.getTargets();
+            if (index >= low && index <= low + targets.length - 1) {
+                bytecode.jump(targets[index - low]);
+            } else {
+                bytecode.jump();
             }
-            bytecode.setPc(pc + offset - 1);
-        });
+        };
 
         // lookupswitch
-        Set.put(0xab, (frame, bytecode) -> {
-            int pc = bytecode.getPc();
-            Helper.skipPadding(bytecode);
+        Set[0xab] = (frame, bytecode) -> {
             final int key = frame.getOperandStack().popInt();
-            int offset = bytecode.getInt();
-            final int n = bytecode.getInt();
-            final int map[] = new int[2 * n];
-            for (int i = 0; i < 2 * n; ++i) {
-                map[i] = bytecode.getInt();
-            }
-            for (int i = 0; i < 2 * n; i += 2) {
-                if (map[i] == key) {
-                    offset = map[i + 1];
-                    break;
+            final int[] keys = bytecode.getKeys();
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] == key) {
+                    bytecode.jump(bytecode.getTargets()[i]);
+                    return;
                 }
             }
-            bytecode.setPc(pc + offset - 1);
-        });
+            bytecode.jump();
+        };
 
         // ireturn
-        Set.put(0xac, Helper.returnOperate(operandStack -> operandStack.popInt()));
+        Set[0xac] = Helper.returnOperate('I');
 
         // lreturn
-        Set.put(0xad, Helper.returnOperate(operandStack -> operandStack.popLong()));
+        Set[0xad] = Helper.returnOperate('J');
 
         // freturn
-        Set.put(0xae, Helper.returnOperate(operandStack -> operandStack.popFloat()));
+        Set[0xae] = Helper.returnOperate('F');
 
         // dreturn
-        Set.put(0xaf, Helper.returnOperate(operandStack -> operandStack.popDouble()));
+        Set[0xaf] = Helper.returnOperate('D');
 
         // areturn
-        Set.put(0xb0, Helper.returnOperate(operandStack -> operandStack.pop()));
+        Set[0xb0] = Helper.returnOperate('L');
 
         // return
-        Set.put(0xb1, (frame, bytecode) -> {
+        Set[0xb1] = (frame, bytecode) -> {
             frame.getThreadResource().getJavaStack().pop();
-        });
+        };
 
         // getstatic
-        Set.put(0xb2, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb2] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Field field = runtimeConstantPool.dereferenceField(index);
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
-            switch (field.getDescriptor().charAt(0)) {
-                case 'Z':
-                case 'B':
-                case 'C':
-                case 'S':
-                case 'I':
-                    operandStack.push(field.getIntValue());
-                    break;
-                case 'F':
-                    operandStack.push(field.getFloatValue());
-                    break;
-                case 'J':
-                    operandStack.push(field.getLongValue());
-                    break;
-                case 'D':
-                    operandStack.push(field.getDoubleValue());
-                    break;
-                case 'L':
-                case '[':
-                    operandStack.push(field.getValue());
-                    break;
-            }
-        });
+            Helper.quicken(bytecode, Helper.quickGetStatic(field)).execute(frame, bytecode);
+        };
 
         // putstatic
-        Set.put(0xb3, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb3] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Field field = runtimeConstantPool.dereferenceField(index);
 
@@ -766,187 +792,68 @@ final class Instruction {
                 // @todo
             }
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
-            switch (field.getDescriptor().charAt(0)) {
-                case 'Z':
-                case 'B':
-                case 'C':
-                case 'S':
-                case 'I':
-                    field.setValue(operandStack.popInt());
-                    break;
-                case 'F':
-                    field.setValue(operandStack.popFloat());
-                    break;
-                case 'J':
-                    field.setValue(operandStack.popLong());
-                    break;
-                case 'D':
-                    field.setValue(operandStack.popDouble());
-                    break;
-                case 'L':
-                case '[':
-                    field.setValue(operandStack.pop());
-                    break;
-            }
-        });
+            Helper.quicken(bytecode, Helper.quickPutStatic(field)).execute(frame, bytecode);
+        };
 
         // getfield
-        Set.put(0xb4, (frame, bytecode) -> {
-            // ref
-            final int refIndex = bytecode.getChar();
+        Set[0xb4] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
-            int[] ref = runtimeConstantPool.dereferenceReference(refIndex);
-
-            // name and type
-            String[] nameAndType = runtimeConstantPool.dereferenceNameAndType(ref[1]);
-
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
-            Heap.Instance instance = (Heap.Instance)operandStack.pop();
-
-            if (instance == null) {
-                throw new RuntimeException(
-                        "Can not get field[" + nameAndType[0] + "," + nameAndType[1] + "] from a null instance.");
-            }
-            MethodArea.Field field = instance.findField(nameAndType[0], nameAndType[1]);
+            MethodArea.Field field = runtimeConstantPool.dereferenceInstanceField(index);
 
-            switch (nameAndType[1].charAt(0)) {
-                case 'Z':
-                case 'B':
-                case 'C':
-                case 'S':
-                case 'I':
-                    operandStack.push(field.getIntValue());
-                    break;
-                case 'F':
-                    operandStack.push(field.getFloatValue());
-                    break;
-                case 'J':
-                    operandStack.push(field.getLongValue());
-                    break;
-                case 'D':
-                    operandStack.push(field.getDoubleValue());
-                    break;
-                case 'L':
-                case '[':
-                    operandStack.push(field.getValue());
-                    break;
-            }
-        });
+            Helper.quicken(bytecode, Helper.quickGetField(field)).execute(frame, bytecode);
+        };
 
         // putfield
-        Set.put(0xb5, (frame, bytecode) -> {
-            // ref
-            final int refIndex = bytecode.getChar();
+        Set[0xb5] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
-            int[] ref = runtimeConstantPool.dereferenceReference(refIndex);
-
-            // name and type
-            String[] nameAndType = runtimeConstantPool.dereferenceNameAndType(ref[1]);
-
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
-            Object value = null;
-            switch (nameAndType[1].charAt(0)) {
-                case 'Z':
-                case 'B':
-                case 'C':
-                case 'S':
-                case 'I':
-                    value = operandStack.popInt();
-                    break;
-                case 'F':
-                    value = operandStack.popFloat();
-                    break;
-                case 'J':
-                    value = operandStack.popLong();
-                    break;
-                case 'D':
-                    value = operandStack.popDouble();
-                    break;
-                case 'L':
-                case '[':
-                    value = operandStack.pop();
-                    break;
-            }
-
-            Heap.Instance instance = (Heap.Instance)operandStack.pop();
-            if (instance == null) {
-                throw new RuntimeException(
-                        "Can not get field[" + nameAndType[0] + "," + nameAndType[1] + "] from a null instance.");
-            }
-            MethodArea.Field field = instance.findField(nameAndType[0], nameAndType[1]);
+            MethodArea.Field field = runtimeConstantPool.dereferenceInstanceField(index);
 
             if (field.getClassfileField().isFinal()) {
                 // @todo
             }
 
-            field.setValue(value);
-        });
+            Helper.quicken(bytecode, Helper.quickPutField(field)).execute(frame, bytecode);
+        };
 
         // invokevirtual
-        Set.put(0xb6, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb6] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Method method = runtimeConstantPool.dereferenceMethod(index);
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
             if (method.getClassfileMethod().isStatic()) {
                 throw new RuntimeException("Instruction invokevirtual can not invoke a static method.");
             }
 
-            String[] argumentTypes = method.getArgumentTypes();
-            int localVariableIndex = Helper.countArgumentTypesSpace(argumentTypes,
-                    method.getClassfileMethod().isStatic()) - 1;
+            int localVariableIndex = method.getSignature().getArgumentSize() - 1;
 
-            Object object = operandStack.bottom(localVariableIndex);
-            if (object == null) {
-                // @todo hook for System.out.println & System.out.print
-                if (Helper.printHook(method, argumentTypes, operandStack)) {
-                    return;
-                }
-                throw new RuntimeException("Method " + method.getName() + " can not be called by a null instance.");
-            } else if (object instanceof Heap.Instance) {
-                Heap.Instance instance = (Heap.Instance)object;
-                method = instance.getClazz().findMethod(method.getName(), method.getDescriptor());
-            } else if (object instanceof Heap.ArrayInstance) {
-                // just like: new String[0].getClass()
-                method = ((Heap.ArrayInstance)object).getArrayClazz().findMethod(method.getName(),
-                        method.getDescriptor());
+            // cache the class of the first receiver
+            Object object = frame.getOperandStack().bottom(localVariableIndex);
+            Handler handler;
+            if (object instanceof Heap.Instance) {
+                MethodArea.Clazz clazz = ((Heap.Instance)object).getClazz();
+                handler = Helper.quickInvokeVirtual(method, localVariableIndex, clazz,
+                        Helper.findVirtualMethod(method, object));
             } else {
-                throw new RuntimeException("Call a method from a unknown instance.");
-            }
-
-            if (method.getClassfileMethod().isAbstract()) {
-                throw new RuntimeException("Instruction invokevirtual call a abstract method.");
+                handler = Helper.quickInvokeVirtual(method, localVariableIndex, null, null);
             }
 
-            Helper.createNewFrame(method, frame, operandStack, argumentTypes, localVariableIndex);
-        });
+            Helper.quicken(bytecode, handler).execute(frame, bytecode);
+        };
 
         // invokespecial
-        Set.put(0xb7, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb7] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Method method = runtimeConstantPool.dereferenceMethod(index);
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
             if (method.getClassfileMethod().isStatic()) {
                 throw new RuntimeException("Instruction invokespecial can not invoke a static method.");
             }
 
-            String[] argumentTypes = method.getArgumentTypes();
-            int localVariableIndex = Helper.countArgumentTypesSpace(argumentTypes,
-                    method.getClassfileMethod().isStatic()) - 1;
-
-            Heap.Instance instance = (Heap.Instance)operandStack.bottom(localVariableIndex);
-            if (instance == null) {
-                throw new RuntimeException("Method " + method.getName() + " can not be called by a null instance.");
-            }
+            int localVariableIndex = method.getSignature().getArgumentSize() - 1;
 
             MethodArea.Clazz currentClazz = runtimeConstantPool.getClazz();
             if (!method.getName().equals("<init>") && currentClazz.getClassfileInformation().isSuper()
@@ -959,76 +866,66 @@ final class Instruction {
                 throw new RuntimeException("Instruction invokespecial call a abstract method.");
             }
 
-            Helper.createNewFrame(method, frame, operandStack, argumentTypes, localVariableIndex);
-        });
+            Helper.quicken(bytecode, Helper.quickInvokeSpecial(method, localVariableIndex))
+                    .execute(frame, bytecode);
+        };
 
         // invokestatic
-        Set.put(0xb8, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb8] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Method method = runtimeConstantPool.dereferenceMethod(index);
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
-            String[] argumentTypes = method.getArgumentTypes();
-            int localVariableIndex = Helper.countArgumentTypesSpace(argumentTypes,
-                    method.getClassfileMethod().isStatic()) - 1;
+            int localVariableIndex = method.getSignature().getArgumentSize() - 1;
 
-            Helper.createNewFrame(method, frame, operandStack, argumentTypes, localVariableIndex);
-        });
+            Helper.quicken(bytecode, Helper.quickInvokeStatic(method, localVariableIndex))
+                    .execute(frame, bytecode);
+        };
 
         // invokeinterface
-        Set.put(0xb9, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xb9] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Method interfaceMethod = runtimeConstantPool.dereferenceInterfaceMethod(index);
 
-            Frame.OperandStack operandStack = frame.getOperandStack();
-
             if (interfaceMethod.getClassfileMethod().isStatic()) {
                 throw new RuntimeException("Instruction invokevinterface can not invoke a static method.");
             }
 
-            String[] argumentTypes = interfaceMethod.getArgumentTypes();
-            int localVariableIndex = bytecode.getU1() - 1;
-            bytecode.getU1();
+            int localVariableIndex = bytecode.getSecondOperand() - 1;
 
-            Heap.Instance instance = (Heap.Instance)operandStack.bottom(localVariableIndex);
+            Heap.Instance instance = (Heap.Instance)frame.getOperandStack().bottom(localVariableIndex);
             if (instance == null) {
                 throw new RuntimeException(
                         "Method " + interfaceMethod.getName() + " can not be called by a null instance.");
             }
 
-            if (!instance.getClazz().isImplementOf(interfaceMethod.getClazz())) {
-                throw new RuntimeException("Class " + instance.getClazz().getClassName()
-                        + " is not a implementation of interface " + interfaceMethod.getClazz().getClassName() + ".");
-            }
-
-            MethodArea.Method method = instance.getClazz().findMethod(interfaceMethod.getName(),
-                    interfaceMethod.getDescriptor());
-
-            if (method.getClassfileMethod().isAbstract()) {
-                throw new RuntimeException("Instruction invokeinterface call a abstract method.");
-            }
-
-            Helper.createNewFrame(method, frame, operandStack, argumentTypes, localVariableIndex);
-        });
+            // cache the class of the first receiver
+            MethodArea.Method method = Helper.findInterfaceMethod(interfaceMethod, instance);
+            Helper.quicken(bytecode, Helper.quickInvokeInterface(interfaceMethod, localVariableIndex,
+                    instance.getClazz(), method)).execute(frame, bytecode);
+        };
 
         // @todo invokedynamic
-        Set.put(0xba, Helper.Unsupport());
+        Set[0xba] = Helper.Unsupport();
 
         // new
-        Set.put(0xbb, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xbb] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             MethodArea.Clazz clazz = runtimeConstantPool.dereferenceClazz(index);
 
+            // it is the safepoint of the managed heap, the instances which the thread holds are all in its java stack
+            if (Heap.getSpace() != null && !Helper.reserve(frame, Heap.Space.sizeOf(clazz))) {
+                return;
+            }
+
             frame.getOperandStack().push(clazz.makeInstance());
-        });
+        };
 
         // newarray
-        Set.put(0xbc, (frame, bytecode) -> {
-            final int type = bytecode.getU1();
+        Set[0xbc] = (frame, bytecode) -> {
+            final int type = bytecode.getOperand();
             Frame.OperandStack operandStack = frame.getOperandStack();
 
             int size = operandStack.popInt();
@@ -1037,12 +934,16 @@ final class Instruction {
             }
 
             MethodArea.ArrayClazz arrayClazz = MethodArea.findArrayClazz(Helper.convertArrayTypeToArrayClazzName(type));
+            if (Heap.getSpace() != null && !Helper.reserve(frame, Heap.Space.sizeOf(arrayClazz, size))) {
+                return;
+            }
+
             operandStack.push(arrayClazz.makeInstance(size));
-        });
+        };
 
         // anewarray
-        Set.put(0xbd, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xbd] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             MethodArea.Clazz clazz = frame.getRuntimeConstantPool().dereferenceClazz(index);
 
             Frame.OperandStack operandStack = frame.getOperandStack();
@@ -1054,54 +955,35 @@ final class Instruction {
 
             MethodArea.ArrayClazz arrayClazz = MethodArea
                     .findArrayClazz(Helper.convertClassNameToArrayClazzName(clazz.getClassName()));
+            if (Heap.getSpace() != null && !Helper.reserve(frame, Heap.Space.sizeOf(arrayClazz, size))) {
+                return;
+            }
+
             operandStack.push(arrayClazz.makeInstance(size));
-        });
+        };
 
         // arraylength
-        Set.put(0xbe, (frame, bytecode) -> {
+        Set[0xbe] = (frame, bytecode) -> {
             Frame.OperandStack operandStack = frame.getOperandStack();
 
             Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)operandStack.pop();
 
             operandStack.push(arrayInstance.getSize());
-        });
+        };
 
         // athrow
-        Set.put(0xbf, (frame, bytecode) -> {
+        Set[0xbf] = (frame, bytecode) -> {
             Heap.Instance instance = (Heap.Instance)frame.getOperandStack().pop();
             if (instance == null) {
                 throw new RuntimeException("Can not throw a null exception!");
             }
 
-            RuntimeDataArea.JavaStack javaStack = frame.getThreadResource().getJavaStack();
-
-            do {
-                Frame currentFrame = javaStack.current();
-                Frame.OperandStack operandStack = currentFrame.getOperandStack();
-
-                int pc = currentFrame.getBytecode().getPc();
-                MethodArea.Exception exception = currentFrame.getMethod().findException(instance.getClazz(), pc);
-
-                if (exception != null && exception.getHandlePc() > 0) {
-                    operandStack.clear();
-                    operandStack.push(instance);
-                    currentFrame.getBytecode().setPc(exception.getHandlePc());
-                    return;
-                }
-
-                javaStack.pop();
-            } while (!javaStack.isEmpty());
-
-            // UncaughtException
-            MethodArea.Field messageField = instance.findField("detailMessage", "Ljava/lang/String;");
-            String message = String.format("Call %s.%s\n occur\t %s:%s", frame.getMethod().getClazz().getClassName(),
-                    frame.getMethod().getName(), instance.getClazz().getClassName(), messageField.getValue());
-            throw new RuntimeException(message);
-        });
+            Helper.throwException(frame, instance);
+        };
 
         // checkcast
-        Set.put(0xc0, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xc0] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             Frame.OperandStack operandStack = frame.getOperandStack();
 
             Object instance = operandStack.pop();
@@ -1124,11 +1006,11 @@ final class Instruction {
                 }
             }
 
-        });
+        };
 
         // instanceof
-        Set.put(0xc1, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
+        Set[0xc1] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
             Frame.OperandStack operandStack = frame.getOperandStack();
 
             Object instance = operandStack.pop();
@@ -1142,50 +1024,21 @@ final class Instruction {
                 String name = frame.getRuntimeConstantPool().dereferenceString(index);
                 operandStack.push(((Heap.ArrayInstance)instance).isInstanceOf(name) ? 1 : 0);
             }
-        });
+        };
 
         // @todo monitorenter
-        Set.put(0xc2, Helper.Unsupport());
+        Set[0xc2] = Helper.Unsupport();
 
         // @todo monitorexit
-        Set.put(0xc3, Helper.Unsupport());
-
-        // wide
-        Set.put(0xc4, (frame, bytecode) -> {
-            final int opcode = bytecode.getU1();
-            switch (opcode) {
-                case 0x15:
-                case 0x16:
-                case 0x17:
-                case 0x18:
-                case 0x19:
-                    Helper.pushToStackFromArray(bytecode1 -> bytecode1.getChar(), Helper.MapFunctionOfLoad.get(opcode))
-                            .accept(frame, bytecode);
-                    break;
-                case 0x36:
-                case 0x37:
-                case 0x38:
-                case 0x39:
-                case 0x3a:
-                    Helper.setToArrayFromStack(bytecode1 -> bytecode1.getChar(), Helper.MapFunctionOfStore.get(opcode))
-                            .accept(frame, bytecode);
-                    break;
-                case 0x84:
-                    final int index = bytecode.getChar();
-                    final int value = bytecode.getChar();
-                    final Frame.LocalVariable localVariable = frame.getLocalVariable();
-                    localVariable.set(index, localVariable.getInt(index) + value);
-                    break;
-                case 0xa9:
-                    Helper.Unsupport().accept(frame, bytecode);
-                    break;
-            }
-        });
+        Set[0xc3] = Helper.Unsupport();
+
+        // wide, it is decoded together with the instruction which it modifies, see Bytecode.decode
+        Set[0xc4] = Helper.Unsupport();
 
         // multianewarray
-        Set.put(0xc5, (frame, bytecode) -> {
-            final int index = bytecode.getChar();
-            final int dimension = bytecode.getU1();
+        Set[0xc5] = (frame, bytecode) -> {
+            final int index = bytecode.getOperand();
+            final int dimension = bytecode.getSecondOperand();
             MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
             final int arrayClazzNameIndex = (int)runtimeConstantPool.dereference(index).getValue();
             final String arrayClazzName = (String)runtimeConstantPool.dereference(arrayClazzNameIndex).getValue();
@@ -1200,125 +1053,200 @@ final class Instruction {
                 }
             }
             MethodArea.ArrayClazz arrayClazz = MethodArea.findArrayClazz(arrayClazzName);
+
+            // the room of all the dimensions is reserved at once, the inner arrays are not in the java stack
+            if (Heap.getSpace() != null) {
+                long size = 0;
+                long count = 1;
+                MethodArea.ArrayClazz dimensionClazz = arrayClazz;
+                for (int i = 0; i < dimension && count > 0 && size <= Heap.Space.MAX_CAPACITY; ++i) {
+                    size += count * Math.min(Heap.Space.sizeOf(dimensionClazz, dimensionSize[i]),
+                            Heap.Space.MAX_CAPACITY + 1);
+                    count *= dimensionSize[i];
+                    if (i + 1 < dimension) {
+                        dimensionClazz = MethodArea.findArrayClazz(dimensionClazz.getFieldType());
+                    }
+                }
+                if (!Helper.reserve(frame, size)) {
+                    return;
+                }
+            }
+
             Heap.ArrayInstance arrayInstance = arrayClazz.makeInstance(dimensionSize[0]);
 
             Helper.createMultiArray(arrayClazz, arrayInstance, dimensionSize, 1);
 
             operandStack.push(arrayInstance);
-        });
+        };
 
         // ifnull
-        Set.put(0xc6, Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), a -> a == null));
+        Set[0xc6] = Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), a -> a == null);
 
         // ifnonnull
-        Set.put(0xc7, Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), a -> a != null));
+        Set[0xc7] = Helper.jumpBranchByComparation(operandStack -> operandStack.pop(), a -> a != null);
 
         // goto_w
-        Set.put(0xc8, (frame, bytecode) -> {
-            bytecode.jump(bytecode::peekInt);
-        });
+        Set[0xc8] = (frame, bytecode) -> {
+            bytecode.jump();
+        };
 
         // @todo jsr_w
-        Set.put(0xc9, Helper.Unsupport());
+        Set[0xc9] = Helper.Unsupport();
 
         // @todo breakpoint
-        Set.put(0xca, Helper.Unsupport());
+        Set[0xca] = Helper.Unsupport();
 
         // @todo impdep1
-        Set.put(0xfe, Helper.Unsupport());
+        Set[0xfe] = Helper.Unsupport();
 
         // @todo impdep2
-        Set.put(0xff, Helper.Unsupport());
+        Set[0xff] = Helper.Unsupport();
+
+        // undefined opcode
+        for (int opcode = 0; opcode < Set.length; ++opcode) {
+            if (Set[opcode] == null) {
+                Set[opcode] = Helper.Unsupport();
+            }
+        }
     }
 
     /**
      * Class Instruction.Helper include a lot of static method which can generate a lambda function which a instruction
      * need, so that implementing a instruction is a very esay way.
      */
-    final private static class Helper {
+    final static class Helper {
         /**
-         * A map of the lambda function which the load instructions need
+         * Generate a lambda function that push a value to the OperandStack. The value type is generic.
+         * <p>
+         * These instructions below use it: {@code aconst_null}
          */
-        private static Map<Integer, BiFunction<Integer, Frame.LocalVariable, ?>> MapFunctionOfLoad = new HashMap<>();
+        private static <T> Handler pushValueToStack(final T value) {
+            return (frame, bytecode) -> {
+                frame.getOperandStack().push(value);
+            };
+        }
 
         /**
-         * A map of the lambda function which the store instructions need
+         * Generate a lambda function that push a int value to the OperandStack.
+         * <p>
+         * These instructions below use it: {@code iconst_xx}
          */
-        private static Map<Integer, Function<Frame.OperandStack, ?>> MapFunctionOfStore = new HashMap<>();
+        private static Handler pushValueToStack(final int value) {
+            return (frame, bytecode) -> {
+                frame.getOperandStack().push(value);
+            };
+        }
 
         /**
-         * Generate a lambda function that push a value to the OperandStack. The value type is generic.
+         * Generate a lambda function that push a long value to the OperandStack.
          * <p>
-         * These instructions below use it: {@code aconst_null [i|l|f|d]const_xx}
+         * These instructions below use it: {@code lconst_xx}
          */
-        private static <T> BiConsumer<Frame, Bytecode> pushValueToStack(final T value) {
+        private static Handler pushValueToStack(final long value) {
             return (frame, bytecode) -> {
                 frame.getOperandStack().push(value);
             };
         }
 
         /**
-         * Generate a lambda function that get a generic value from the LocalVariable and push it to the OperandStack.
+         * Generate a lambda function that push a float value to the OperandStack.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d|a]load [i|l|f|d|a]load_xx}
+         * These instructions below use it: {@code fconst_xx}
          */
-        private static <T> BiConsumer<Frame, Bytecode> pushToStackFromArray(final Function<Bytecode, Integer> f1,
-                final BiFunction<Integer, Frame.LocalVariable, T> f2) {
+        private static Handler pushValueToStack(final float value) {
             return (frame, bytecode) -> {
-                final int index = f1.apply(bytecode);
-                frame.getOperandStack().push(f2.apply(index, frame.getLocalVariable()));
+                frame.getOperandStack().push(value);
             };
         }
 
         /**
-         * Generate a lambda function that pop a generic value from the OperandStack and set it to the LocalVariable.
+         * Generate a lambda function that push a double value to the OperandStack.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d|a]store [i|l|f|d|a]store_xx}
+         * These instructions below use it: {@code dconst_xx}
          */
-        private static <T> BiConsumer<Frame, Bytecode> setToArrayFromStack(final Function<Bytecode, Integer> f1,
-                final Function<Frame.OperandStack, T> f2) {
+        private static Handler pushValueToStack(final double value) {
             return (frame, bytecode) -> {
-                final int index = f1.apply(bytecode);
-                frame.getLocalVariable().set(index, f2.apply(frame.getOperandStack()));
+                frame.getOperandStack().push(value);
             };
         }
 
+        /**
+         * Generate a lambda function that get a value of the given type from the LocalVariable and push it to the
+         * OperandStack. A float is moved as its bits, so it is the same as a int.
+         * <p>
+         * These instructions below use it: {@code [i|l|f|d|a]load [i|l|f|d|a]load_xx}
+         */
+        private static Handler pushToStackFromArray(final ToIntFunction<Bytecode> f, final char type) {
+            switch (type) {
+                case 'I':
+                case 'F':
+                    return (frame, bytecode) -> {
+                        frame.getOperandStack().push(frame.getLocalVariable().getInt(f.applyAsInt(bytecode)));
+                    };
+                case 'J':
+                case 'D':
+                    return (frame, bytecode) -> {
+                        frame.getOperandStack().push(frame.getLocalVariable().getLong(f.applyAsInt(bytecode)));
+                    };
+                default:
+                    return (frame, bytecode) -> {
+                        frame.getOperandStack().push(frame.getLocalVariable().get(f.applyAsInt(bytecode)));
+                    };
+            }
+        }
+
+        /**
+         * Generate a lambda function that pop a value of the given type from the OperandStack and set it to the
+         * LocalVariable.
+         * <p>
+         * These instructions below use it: {@code [i|l|f|d|a]store [i|l|f|d|a]store_xx}
+         */
+        private static Handler setToArrayFromStack(final ToIntFunction<Bytecode> f, final char type) {
+            switch (type) {
+                case 'I':
+                case 'F':
+                    return (frame, bytecode) -> {
+                        frame.getLocalVariable().set(f.applyAsInt(bytecode), frame.getOperandStack().popInt());
+                    };
+                case 'J':
+                case 'D':
+                    return (frame, bytecode) -> {
+                        frame.getLocalVariable().set(f.applyAsInt(bytecode), frame.getOperandStack().popLong());
+                    };
+                default:
+                    return (frame, bytecode) -> {
+                        frame.getLocalVariable().set(f.applyAsInt(bytecode), frame.getOperandStack().pop());
+                    };
+            }
+        }
+
         /**
          * Generate a lambda function that compare two values from the OperandStack and push the result to the
-         * OperandStack.
+         * OperandStack. A float is compared as a double, and the result is the given one if any of them is NaN.
          * <p>
          * These instructions below use it: {@code fcmpl fcmpg dcmpl dcmpg}
          */
-        private static <T extends Number & Comparable<? super T>> BiConsumer<Frame, Bytecode> compareFromStack(
-                final int defaultResult, Function<Frame.OperandStack, T> f, Predicate<T> p) {
+        private static Handler compareFromStack(final int defaultResult, ToDoubleFunction<Frame.OperandStack> f) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
-                int result;
-                T a = f.apply(operandStack);
-                T b = f.apply(operandStack);
-                if (p.test(a) || p.test(b)) {
-                    result = defaultResult;
-                } else {
-                    result = b.compareTo(a);
-                }
-                operandStack.push(result);
+                final double a = f.applyAsDouble(operandStack);
+                final double b = f.applyAsDouble(operandStack);
+                operandStack.push(b > a ? 1 : b == a ? 0 : b < a ? -1 : defaultResult);
             };
         }
 
         /**
          * Generate a lambda function that jump a offset by comparing two value from the OperandStack.
          * <p>
-         * These instructions below use it: {@code if_icmpxx}
+         * These instructions below use it: {@code if_acmpxx}
          */
-        private static <T> BiConsumer<Frame, Bytecode> jumpBranchByComparation(Function<Frame.OperandStack, T> f,
+        private static <T> Handler jumpBranchByComparation(Function<Frame.OperandStack, T> f,
                 BiPredicate<T, T> p) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
                 T a = f.apply(operandStack);
                 if (p.test(f.apply(operandStack), a)) {
                     bytecode.jump();
-                } else {
-                    bytecode.getChar();
                 }
             };
         }
@@ -1326,90 +1254,200 @@ final class Instruction {
         /**
          * Generate a lambda function that jump a offset by comparing the value from OperandStack and the given value.
          * <p>
-         * These instructions below use it: {@code ifxx}
+         * These instructions below use it: {@code ifnull ifnonnull}
          */
-        private static <T> BiConsumer<Frame, Bytecode> jumpBranchByComparation(Function<Frame.OperandStack, T> f,
+        private static <T> Handler jumpBranchByComparation(Function<Frame.OperandStack, T> f,
                 Predicate<T> p) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
                 if (p.test(f.apply(operandStack))) {
                     bytecode.jump();
-                } else {
-                    bytecode.getChar();
                 }
             };
         }
 
         /**
-         * Generate a lambda function that map a value from the OperandStack to the other value.
+         * Generate a lambda function that jump a offset by comparing two int from the OperandStack.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d]neg [i|l|f|d]2[i|l|f|d]}
+         * These instructions below use it: {@code if_icmpxx}
          */
-        private static <T, R> BiConsumer<Frame, Bytecode> unaryOperate(Function<Frame.OperandStack, T> f1,
-                Function<T, R> f2) {
+        private static Handler jumpBranchByComparation(IntBiPredicate p) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
-                T a = f1.apply(operandStack);
-                operandStack.push(f2.apply(a));
+                final int a = operandStack.popInt();
+                if (p.test(operandStack.popInt(), a)) {
+                    bytecode.jump();
+                }
             };
         }
 
         /**
-         * Generate a lambda function that calc two value from the OperandStack, and a exception is throwed when the
-         * given function p is not satisfied.
+         * Generate a lambda function that jump a offset by comparing the int from OperandStack and zero.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d]div [i|l|f|d]rem}
+         * These instructions below use it: {@code ifxx}
+         */
+        private static Handler jumpBranchByComparation(IntPredicate p) {
+            return (frame, bytecode) -> {
+                if (p.test(frame.getOperandStack().popInt())) {
+                    bytecode.jump();
+                }
+            };
+        }
+
+        /**
+         * A predicate of two int, there is no such one in {@code java.util.function}.
+         */
+        @FunctionalInterface
+        private interface IntBiPredicate {
+            boolean test(int a, int b);
+        }
+
+        /**
+         * A operator of two float, there is no such one in {@code java.util.function}.
+         */
+        @FunctionalInterface
+        private interface FloatBinaryOperator {
+            float applyAsFloat(float a, float b);
+        }
+
+        /**
+         * Generate a lambda function that calc two int from the OperandStack, and a exception is throwed when the
+         * given function p is not satisfied.
+         * <p>
+         * These instructions below use it: {@code iadd isub imul idiv irem ishl ishr iushr iand ior ixor}
          */
-        private static <T> BiConsumer<Frame, Bytecode> arithmeticOperate(Function<Frame.OperandStack, T> f1,
-                BiFunction<T, T, T> f2, Predicate<T> p) {
+        private static Handler arithmeticIntOperate(IntBinaryOperator f, IntPredicate p) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
-                T a = f1.apply(operandStack);
+                final int a = operandStack.popInt();
                 if (p.test(a)) {
                     throw new RuntimeException("Divisor can not be zero!");
                 }
-                operandStack.push(f2.apply(f1.apply(operandStack), a));
+                operandStack.push(f.applyAsInt(operandStack.popInt(), a));
+            };
+        }
+
+        private static Handler arithmeticIntOperate(IntBinaryOperator f) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final int a = operandStack.popInt();
+                operandStack.push(f.applyAsInt(operandStack.popInt(), a));
+            };
+        }
+
+        /**
+         * Generate a lambda function that calc two long from the OperandStack, and a exception is throwed when the
+         * given function p is not satisfied.
+         * <p>
+         * These instructions below use it: {@code ladd lsub lmul ldiv lrem land lor lxor}
+         */
+        private static Handler arithmeticLongOperate(LongBinaryOperator f, LongPredicate p) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final long a = operandStack.popLong();
+                if (p.test(a)) {
+                    throw new RuntimeException("Divisor can not be zero!");
+                }
+                operandStack.push(f.applyAsLong(operandStack.popLong(), a));
+            };
+        }
+
+        private static Handler arithmeticLongOperate(LongBinaryOperator f) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final long a = operandStack.popLong();
+                operandStack.push(f.applyAsLong(operandStack.popLong(), a));
+            };
+        }
+
+        /**
+         * Generate a lambda function that shift a long from the OperandStack by a int from the OperandStack.
+         * <p>
+         * These instructions below use it: {@code lshl lshr lushr}
+         */
+        private static Handler shiftLongOperate(LongBinaryOperator f) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final int a = operandStack.popInt() & 0x3f;
+                operandStack.push(f.applyAsLong(operandStack.popLong(), a));
             };
         }
 
         /**
-         * Generate a lambda function that calc two value from the OperandStack.
+         * Generate a lambda function that calc two float from the OperandStack, and a exception is throwed when the
+         * given function p is not satisfied.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d]add [i|l|f|d]sub [i|l|f|d]mul [i|l]and [i|l]or [i|l]xor}
+         * These instructions below use it: {@code fadd fsub fmul fdiv frem}
          */
-        private static <T> BiConsumer<Frame, Bytecode> arithmeticOperate(Function<Frame.OperandStack, T> f1,
-                BiFunction<T, T, T> f2) {
-            return arithmeticOperate(f1, f2, a -> false);
+        private static Handler arithmeticFloatOperate(FloatBinaryOperator f, DoublePredicate p) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final float a = operandStack.popFloat();
+                if (p.test(a)) {
+                    throw new RuntimeException("Divisor can not be zero!");
+                }
+                operandStack.push(f.applyAsFloat(operandStack.popFloat(), a));
+            };
+        }
+
+        private static Handler arithmeticFloatOperate(FloatBinaryOperator f) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final float a = operandStack.popFloat();
+                operandStack.push(f.applyAsFloat(operandStack.popFloat(), a));
+            };
         }
 
         /**
-         * Generate a lambda function that calc two value from the OperandStack, and these two value can be a different
-         * way to deal.
+         * Generate a lambda function that calc two double from the OperandStack, and a exception is throwed when the
+         * given function p is not satisfied.
          * <p>
-         * These instructions below use it: {@code [i|l]shl [i|l]shr [i|l]ushr}
+         * These instructions below use it: {@code dadd dsub dmul ddiv drem}
          */
-        private static <T, R> BiConsumer<Frame, Bytecode> arithmeticOperate(Function<Frame.OperandStack, R> f1,
-                Function<Frame.OperandStack, T> f2, BiFunction<T, R, T> f3) {
+        private static Handler arithmeticDoubleOperate(DoubleBinaryOperator f, DoublePredicate p) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                final double a = operandStack.popDouble();
+                if (p.test(a)) {
+                    throw new RuntimeException("Divisor can not be zero!");
+                }
+                operandStack.push(f.applyAsDouble(operandStack.popDouble(), a));
+            };
+        }
+
+        private static Handler arithmeticDoubleOperate(DoubleBinaryOperator f) {
             return (frame, bytecode) -> {
                 Frame.OperandStack operandStack = frame.getOperandStack();
-                R a = f1.apply(operandStack);
-                operandStack.push(f3.apply(f2.apply(operandStack), a));
+                final double a = operandStack.popDouble();
+                operandStack.push(f.applyAsDouble(operandStack.popDouble(), a));
             };
         }
 
         /**
-         * Generate a lambda function that create a new frame to java stack and drop the current frame from java stack.
+         * Generate a lambda function that drop the current frame from java stack, and move the return value of the
+         * given type to the OperandStack of the next frame.
          * <p>
          * These instructions below use it: {@code [i|l|f|d|a]return}
          */
-        private static <T> BiConsumer<Frame, Bytecode> returnOperate(Function<Frame.OperandStack, T> f1) {
+        private static Handler returnOperate(final char type) {
             return (frame, bytecode) -> {
-                frame.getOperandStack().current();
                 JavaStack javaStack = frame.getThreadResource().getJavaStack();
                 javaStack.pop();
                 Frame nextFrame = javaStack.current();
                 if (nextFrame != null) {
-                    nextFrame.getOperandStack().push(f1.apply(frame.getOperandStack()));
+                    Frame.OperandStack operandStack = frame.getOperandStack();
+                    switch (type) {
+                        case 'I':
+                        case 'F':
+                            nextFrame.getOperandStack().push(operandStack.popInt());
+                            break;
+                        case 'J':
+                        case 'D':
+                            nextFrame.getOperandStack().push(operandStack.popLong());
+                            break;
+                        default:
+                            nextFrame.getOperandStack().push(operandStack.pop());
+                    }
                 }
             };
         }
@@ -1419,7 +1457,7 @@ final class Instruction {
          * <p>
          * These instructions below use it: {@code ldc ldc_w ldc2_w}
          */
-        private static BiConsumer<Frame, Bytecode> LdcOperate(Function<Bytecode, Integer> f1) {
+        private static Handler LdcOperate(Function<Bytecode, Integer> f1) {
             return (frame, bytecode) -> {
                 final int index = f1.apply(bytecode);
                 MethodArea.RuntimeConstantPool runtimeConstantPool = frame.getRuntimeConstantPool();
@@ -1442,7 +1480,7 @@ final class Instruction {
                         break;
                     case Classfile.CONSTANTPOOL_TABLE.STRING:
                         String stringValue = runtimeConstantPool.dereference((int)value).getValue().toString();
-                        operandStack.push(MethodArea.Clazz.makeInstanceFrom(stringValue));
+                        operandStack.push(MethodArea.findString(stringValue));
                         break;
                     case Classfile.CONSTANTPOOL_TABLE.CLASS:
                         String name = runtimeConstantPool.dereference((int)value).getValue().toString();
@@ -1460,78 +1498,32 @@ final class Instruction {
         }
 
         /**
-         * Generate a lambda function that get a array from OperandStack and push its generic value to LocalVariable.
+         * Pop a array from the OperandStack, the given index must be in the array.
          * <p>
-         * These instructions below use it: {@code [i|l|f|d|a|b|c|s]aload}
+         * These instructions below use it: {@code [i|l|f|d|a|b|c|s]aload [i|l|f|d|a|b|c|s]astore}
          */
-        private static <T, R> BiConsumer<Frame, Bytecode> arrayLoad(Function<Object, T> f1, BiPredicate<T, Integer> p,
-                BiFunction<T, Integer, R> f2) {
-            return (frame, bytecode) -> {
-                Frame.OperandStack operandStack = frame.getOperandStack();
-                int index = operandStack.popInt();
-
-                if (index < 0) {
-                    throw new RuntimeException("Array index can not a negative number.");
-                }
-
-                Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)operandStack.pop();
-
-                if (arrayInstance == null) {
-                    throw new RuntimeException("Can not store a value to a null array.");
-                }
-
-                T fields = f1.apply(arrayInstance.getFields());
-
-                if (!p.test(fields, index)) {
-                    throw new RuntimeException("Index " + index + " is larger than the size of array.");
-                }
-
-                operandStack.push(f2.apply(fields, index));
-            };
-        }
-
-        /**
-         * Generate a lambda function that store a generic value from OperandStack to class `Field`.
-         * <p>
-         * These instructions below use it: {@code [i|l|f|d|a|b|c|s]astore}
-         */
-        private static <T, R> BiConsumer<Frame, Bytecode> arrayStore(Function<Frame.OperandStack, T> f1,
-                Function<Object, R> f2, BiPredicate<R, Integer> p, BiConsumer<R, Map.Entry<Integer, T>> c) {
-            return (frame, bytecode) -> {
-                Frame.OperandStack operandStack = frame.getOperandStack();
-                T value = f1.apply(operandStack);
-                int index = operandStack.popInt();
-
-                if (index < 0) {
-                    throw new RuntimeException("Array index can not a negative number.");
-                }
-
-                Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)operandStack.pop();
-
-                if (arrayInstance == null) {
-                    throw new RuntimeException("Can not store a value to a null array.");
-                }
-
-                R fields = f2.apply(arrayInstance.getFields());
+        private static Heap.ArrayInstance popArray(Frame.OperandStack operandStack, int index) {
+            if (index < 0) {
+                throw new RuntimeException("Array index can not a negative number.");
+            }
 
-                if (!p.test(fields, index)) {
-                    throw new RuntimeException("Index " + index + " is larger than the size of array.");
-                }
+            Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)operandStack.pop();
 
-                c.accept(fields, new AbstractMap.SimpleEntry<>(index, value));
-            };
-        }
+            if (arrayInstance == null) {
+                throw new RuntimeException("Can not store a value to a null array.");
+            }
 
-        private static void skipPadding(final Bytecode bytecode) {
-            while (bytecode.getPc() % 4 != 0) {
-                bytecode.get();
+            if (index >= arrayInstance.getSize()) {
+                throw new RuntimeException("Index " + index + " is larger than the size of array.");
             }
+
+            return arrayInstance;
         }
 
         /**
          * Generate a lambda function that throw a exception.
          */
-        private static BiConsumer<Frame, Bytecode> Unsupport() {
+        private static Handler Unsupport() {
             return (frame, bytecode) -> {
                 throw new RuntimeException("This instruction is unsupported now!");
             };
@@ -1567,79 +1559,393 @@ final class Instruction {
                 int[] dimensionSize, int index) {
             if (index < dimensionSize.length) {
                 arrayClazz = MethodArea.findArrayClazz(arrayClazz.getFieldType());
-                Object[] fieldInstances = (Object[])arrayInstance.getFields();
-                for (int i = 0; i < fieldInstances.length; ++i) {
-                    fieldInstances[i] = arrayClazz.makeInstance(dimensionSize[index]);
-                    createMultiArray(arrayClazz, (Heap.ArrayInstance)fieldInstances[i], dimensionSize, index + 1);
+                for (int i = 0; i < arrayInstance.getSize(); ++i) {
+                    Heap.ArrayInstance fieldInstance = arrayClazz.makeInstance(dimensionSize[index]);
+                    arrayInstance.setReference(i, fieldInstance);
+                    createMultiArray(arrayClazz, fieldInstance, dimensionSize, index + 1);
                 }
             }
         }
 
-        private static int countArgumentTypesSpace(String[] argumentTypes, boolean isStatic) {
-            int size = isStatic ? argumentTypes.length : argumentTypes.length + 1;
-            for (String argumentType : argumentTypes) {
-                if (argumentType.equals("J") || argumentType.equals("D")) {
-                    ++size;
+        /**
+         * Rewrite the current operation into its quick variant, so that a instruction is resolved only once.
+         * <p>
+         * The resolved field or method is captured by the quick handler, a handler is only replaced as a whole, so
+         * another thread which executes the same operation never sees a half resolved instruction.
+         */
+        private static Handler quicken(Bytecode bytecode, Handler handler) {
+            bytecode.quicken(handler);
+            return handler;
+        }
+
+        /**
+         * Generate the quick variant of getstatic which holds the resolved field, it is specialized by the type of the
+         * field, so a primitive value is never boxed.
+         */
+        private static Handler quickGetStatic(final MethodArea.Field field) {
+            switch (field.getType()) {
+                case 'F':
+                    return (frame, bytecode) -> frame.getOperandStack().push(field.getFloatValue());
+                case 'J':
+                    return (frame, bytecode) -> frame.getOperandStack().push(field.getLongValue());
+                case 'D':
+                    return (frame, bytecode) -> frame.getOperandStack().push(field.getDoubleValue());
+                case 'L':
+                case '[':
+                    return (frame, bytecode) -> frame.getOperandStack().push(field.getReferenceValue());
+                default:
+                    return (frame, bytecode) -> frame.getOperandStack().push(field.getIntValue());
+            }
+        }
+
+        /**
+         * Generate the quick variant of putstatic which holds the resolved field.
+         */
+        private static Handler quickPutStatic(final MethodArea.Field field) {
+            switch (field.getType()) {
+                case 'F':
+                    return (frame, bytecode) -> field.setFloatValue(frame.getOperandStack().popFloat());
+                case 'J':
+                    return (frame, bytecode) -> field.setLongValue(frame.getOperandStack().popLong());
+                case 'D':
+                    return (frame, bytecode) -> field.setDoubleValue(frame.getOperandStack().popDouble());
+                case 'L':
+                case '[':
+                    return (frame, bytecode) -> field.setReferenceValue(frame.getOperandStack().pop());
+                default:
+                    return (frame, bytecode) -> field.setIntValue(frame.getOperandStack().popInt());
+            }
+        }
+
+        /**
+         * Pop the instance which holds a field from the OperandStack.
+         */
+        private static Heap.Instance popFieldOwner(Frame.OperandStack operandStack, MethodArea.Field field) {
+            Heap.Instance object = (Heap.Instance)operandStack.pop();
+            if (object == null) {
+                throw new RuntimeException("Can not get field[" + field.getName() + "," + field.getDescriptor()
+                        + "] from a null instance.");
+            }
+            return object;
+        }
+
+        /**
+         * Generate the quick variant of getfield which holds the slot of the field, it is specialized by the type of
+         * the field.
+         */
+        private static Handler quickGetField(final MethodArea.Field field) {
+            final int slot = field.getSlot();
+            switch (field.getType()) {
+                case 'F':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        long bits = popFieldOwner(operandStack, field).getPrimitive(slot);
+                        operandStack.push(Float.intBitsToFloat((int)bits));
+                    };
+                case 'J':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        operandStack.push(popFieldOwner(operandStack, field).getPrimitive(slot));
+                    };
+                case 'D':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        long bits = popFieldOwner(operandStack, field).getPrimitive(slot);
+                        operandStack.push(Double.longBitsToDouble(bits));
+                    };
+                case 'L':
+                case '[':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        operandStack.push(popFieldOwner(operandStack, field).getReference(slot));
+                    };
+                default:
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        operandStack.push((int)popFieldOwner(operandStack, field).getPrimitive(slot));
+                    };
+            }
+        }
+
+        /**
+         * Generate the quick variant of putfield which holds the slot of the field, it is specialized by the type of
+         * the field.
+         */
+        private static Handler quickPutField(final MethodArea.Field field) {
+            final int slot = field.getSlot();
+            switch (field.getType()) {
+                case 'F':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        int bits = Float.floatToRawIntBits(operandStack.popFloat());
+                        popFieldOwner(operandStack, field).setPrimitive(slot, bits);
+                    };
+                case 'J':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        long value = operandStack.popLong();
+                        popFieldOwner(operandStack, field).setPrimitive(slot, value);
+                    };
+                case 'D':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        long bits = Double.doubleToRawLongBits(operandStack.popDouble());
+                        popFieldOwner(operandStack, field).setPrimitive(slot, bits);
+                    };
+                case 'L':
+                case '[':
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        Object value = operandStack.pop();
+                        popFieldOwner(operandStack, field).setReference(slot, value);
+                    };
+                default:
+                    return (frame, bytecode) -> {
+                        Frame.OperandStack operandStack = frame.getOperandStack();
+                        int value = operandStack.popInt();
+                        popFieldOwner(operandStack, field).setPrimitive(slot, value);
+                    };
+            }
+        }
+
+        /**
+         * Get the method which a instance really invokes by a virtual method.
+         */
+        private static MethodArea.Method findVirtualMethod(MethodArea.Method method, Object object) {
+            MethodArea.Method virtualMethod;
+            if (object instanceof Heap.Instance) {
+                Heap.Instance instance = (Heap.Instance)object;
+                virtualMethod = instance.getClazz().findMethod(method.getName(), method.getDescriptor());
+            } else if (object instanceof Heap.ArrayInstance) {
+                // just like: new String[0].getClass()
+                virtualMethod = ((Heap.ArrayInstance)object).getArrayClazz().findMethod(method.getName(),
+                        method.getDescriptor());
+            } else {
+                throw new RuntimeException("Call a method from a unknown instance.");
+            }
+
+            if (virtualMethod.getClassfileMethod().isAbstract()) {
+                throw new RuntimeException("Instruction invokevirtual call a abstract method.");
+            }
+            return virtualMethod;
+        }
+
+        /**
+         * Generate the quick variant of invokevirtual which holds the resolved method and a monomorphic inline cache.
+         * <p>
+         * The inline cache is the class of a receiver and the method which is found for it. When a receiver of another
+         * class comes, the operation is rewritten into a quick variant without the inline cache which finds the method
+         * every time.
+         */
+        private static Handler quickInvokeVirtual(final MethodArea.Method method, final int localVariableIndex,
+                final MethodArea.Clazz cachedClazz, final MethodArea.Method cachedMethod) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                Object object = operandStack.bottom(localVariableIndex);
+                if (cachedClazz != null && object instanceof Heap.Instance
+                        && ((Heap.Instance)object).getClazz() == cachedClazz) {
+                    createNewFrame(cachedMethod, frame, operandStack, localVariableIndex);
+                    return;
+                }
+
+                if (object == null) {
+                    // @todo hook for System.out.println & System.out.print
+                    if (printHook(method, operandStack)) {
+                        return;
+                    }
+                    throw new RuntimeException("Method " + method.getName() + " can not be called by a null instance.");
+                }
+
+                if (cachedClazz != null) {
+                    quicken(bytecode, quickInvokeVirtual(method, localVariableIndex, null, null));
+                }
+                createNewFrame(findVirtualMethod(method, object), frame, operandStack, localVariableIndex);
+            };
+        }
+
+        /**
+         * Generate the quick variant of invokespecial which holds the resolved method.
+         */
+        private static Handler quickInvokeSpecial(final MethodArea.Method method, final int localVariableIndex) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                if (operandStack.bottom(localVariableIndex) == null) {
+                    throw new RuntimeException("Method " + method.getName() + " can not be called by a null instance.");
                 }
+                createNewFrame(method, frame, operandStack, localVariableIndex);
+            };
+        }
+
+        /**
+         * Generate the quick variant of invokestatic which holds the resolved method.
+         */
+        private static Handler quickInvokeStatic(final MethodArea.Method method, final int localVariableIndex) {
+            return (frame, bytecode) -> {
+                createNewFrame(method, frame, frame.getOperandStack(), localVariableIndex);
+            };
+        }
+
+        /**
+         * Get the method which a instance really invokes by a interface method.
+         */
+        private static MethodArea.Method findInterfaceMethod(MethodArea.Method interfaceMethod,
+                Heap.Instance instance) {
+            if (!instance.getClazz().isImplementOf(interfaceMethod.getClazz())) {
+                throw new RuntimeException("Class " + instance.getClazz().getClassName()
+                        + " is not a implementation of interface " + interfaceMethod.getClazz().getClassName() + ".");
+            }
+
+            MethodArea.Method method = instance.getClazz().findMethod(interfaceMethod.getName(),
+                    interfaceMethod.getDescriptor());
+
+            if (method.getClassfileMethod().isAbstract()) {
+                throw new RuntimeException("Instruction invokeinterface call a abstract method.");
             }
-            return size;
+            return method;
+        }
+
+        /**
+         * Generate the quick variant of invokeinterface which holds the resolved interface method and a monomorphic
+         * inline cache, just like the quick variant of invokevirtual.
+         */
+        private static Handler quickInvokeInterface(final MethodArea.Method interfaceMethod,
+                final int localVariableIndex, final MethodArea.Clazz cachedClazz,
+                final MethodArea.Method cachedMethod) {
+            return (frame, bytecode) -> {
+                Frame.OperandStack operandStack = frame.getOperandStack();
+                Heap.Instance instance = (Heap.Instance)operandStack.bottom(localVariableIndex);
+                if (cachedClazz != null && instance != null && instance.getClazz() == cachedClazz) {
+                    createNewFrame(cachedMethod, frame, operandStack, localVariableIndex);
+                    return;
+                }
+
+                if (instance == null) {
+                    throw new RuntimeException(
+                            "Method " + interfaceMethod.getName() + " can not be called by a null instance.");
+                }
+
+                if (cachedClazz != null) {
+                    quicken(bytecode, quickInvokeInterface(interfaceMethod, localVariableIndex, null, null));
+                }
+                createNewFrame(findInterfaceMethod(interfaceMethod, instance), frame, operandStack, localVariableIndex);
+            };
+        }
+
+        /**
+         * Throw a exception from the given frame. The java stack is unwound to the frame whose exception table handles
+         * the exception, and its handler becomes the next operation of that frame. A transition frame has no exception
+         * table, so a exception which is thrown from it is not caught.
+         */
+        static void throwException(Frame frame, Heap.Instance instance) {
+            RuntimeDataArea.JavaStack javaStack = frame.getThreadResource().getJavaStack();
+
+            while (!javaStack.isEmpty()) {
+                Frame currentFrame = javaStack.current();
+                Frame.OperandStack operandStack = currentFrame.getOperandStack();
+
+                // the current operation of a frame below the top one is the invoke instruction
+                int pc = currentFrame.getBytecode().getCurrentPc();
+                MethodArea.Exception exception = currentFrame.getMethod().findException(instance.getClazz(), pc);
+
+                if (exception != null && exception.getHandlePc() > 0) {
+                    operandStack.clear();
+                    operandStack.push(instance);
+                    currentFrame.getBytecode().setPc(exception.getHandlePc());
+                    return;
+                }
+
+                javaStack.pop();
+            }
+
+            // UncaughtException
+            MethodArea.Field messageField = instance.findField("detailMessage", "Ljava/lang/String;");
+            String source = frame.isTransition() ? "<transition>"
+                    : frame.getMethod().getClazz().getClassName() + "." + frame.getMethod().getName();
+            String message = String.format("Call %s\n occur\t %s:%s", source, instance.getClazz().getClassName(),
+                    instance.getValue(messageField));
+            throw new RuntimeException(message);
+        }
+
+        /**
+         * Make room in the managed heap for a allocation of the given size, or throw a OutOfMemoryError. The room which
+         * is kept for the jvm is used when the jvm makes a throwable, such as the initializer of its class.
+         * 
+         * @return is there room for the allocation
+         */
+        static boolean reserve(Frame frame, long size) {
+            if (Heap.getSpace().reserve(size, frame.getThreadResource().getJavaStack().isReserved())) {
+                return true;
+            }
+            throwException(frame, makeThrowable(frame, "java/lang/OutOfMemoryError"));
+            return false;
+        }
+
+        /**
+         * Make a instance of the given throwable class which is thrown by the jvm itself in the given frame, its
+         * constructor is not called, but its backtrace is still recorded.
+         */
+        static Heap.Instance makeThrowable(Frame frame, String className) {
+            RuntimeDataArea.JavaStack javaStack = frame.getThreadResource().getJavaStack();
+            // a transition frame has no method, the class is loaded by the loader of java/lang/Object then
+            MethodArea.Clazz clazz = frame.isTransition() ? MethodArea.findClazz(MethodArea.FIRST_CLASS_NANE)
+                    : frame.getMethod().getClazz();
+            // the class is initialized on the java stack, which may be overflowed
+            final boolean reserved = javaStack.isReserved();
+            javaStack.setReserved(true);
+            try {
+                clazz.getClassLoader().load(className);
+            } finally {
+                javaStack.setReserved(reserved);
+            }
+            Heap.Instance instance = MethodArea.findClazz(className).makeInstance();
+            NativeMethod.fillInStackTrace(instance, javaStack);
+            return instance;
         }
 
         private static void createNewFrame(MethodArea.Method method, Frame currentFrame,
-                Frame.OperandStack operandStack, String[] argumentTypes, int localVariableIndex) {
+                Frame.OperandStack operandStack, int localVariableIndex) {
             // System.out.println("class: " + method.getClazz().getClassName());
             // System.out.println("method: " + method.getName());
             // System.out.println("sign: " + method.getDescriptor());
             // System.out.println("is native: " + method.getClassfileMethod().isNative());
 
+            // compiled method and register code, they invoke the other methods by the stack of the host jvm
+            try {
+                Compiler.Entry entry = Compiler.entryOf(method);
+                if (entry != null) {
+                    entry.invoke(operandStack);
+                    return;
+                }
+
+                if (Interpreter.getEngine() == Interpreter.Engine.REGISTER) {
+                    RegisterInterpreter.Code code = RegisterInterpreter.codeOf(method);
+                    if (code != null) {
+                        RegisterInterpreter.invoke(code, operandStack);
+                        return;
+                    }
+                }
+            } catch (StackOverflowError e) {
+                throwException(currentFrame, makeThrowable(currentFrame, "java/lang/StackOverflowError"));
+                return;
+            }
+
             // native method
             if (method.getClassfileMethod().isNative()) {
-                NativeMethod.run(method.getClazz().getClassName(), method.getName(), operandStack);
+                NativeMethod.run(method.getClazz().getClassName(), method.getName(), currentFrame, operandStack);
                 return;
             }
 
             // operandStack.current();
 
-            // java method
-            Frame nextFrame = new Frame(method, currentFrame.getThreadResource());
-            Frame.LocalVariable nextLocalVariable = nextFrame.getLocalVariable();
-            currentFrame.getThreadResource().getJavaStack().push(nextFrame);
-
-            for (int i = argumentTypes.length - 1; i >= 0; --i) {
-                switch (argumentTypes[i].charAt(0)) {
-                    case 'Z':
-                    case 'B':
-                    case 'C':
-                    case 'S':
-                    case 'I':
-                        nextLocalVariable.set(localVariableIndex, operandStack.popInt());
-                        break;
-                    case 'F':
-                        nextLocalVariable.set(localVariableIndex, operandStack.popFloat());
-                        break;
-                    case 'J':
-                        --localVariableIndex;
-                        nextLocalVariable.set(localVariableIndex, operandStack.popLong());
-                        break;
-                    case 'D':
-                        --localVariableIndex;
-                        nextLocalVariable.set(localVariableIndex, operandStack.popDouble());
-                        break;
-                    case 'L':
-                    case '[':
-                        nextLocalVariable.set(localVariableIndex, operandStack.pop());
-                        break;
-                }
-                --localVariableIndex;
-            }
-
-            if (!method.getClassfileMethod().isStatic()) {
-                nextLocalVariable.set(localVariableIndex, operandStack.pop());
+            // java method, the arguments on the operand stack become its local variables
+            if (currentFrame.getThreadResource().getJavaStack().push(method, currentFrame,
+                    localVariableIndex + 1) == null) {
+                throwException(currentFrame, makeThrowable(currentFrame, "java/lang/StackOverflowError"));
             }
         }
 
-        private static boolean printHook(MethodArea.Method method, String[] argumentTypes,
-                Frame.OperandStack operandStack) {
+        private static boolean printHook(MethodArea.Method method, Frame.OperandStack operandStack) {
+            String[] argumentTypes = method.getArgumentTypes();
             Map<String, Consumer<Object>> fnMap = new HashMap<>();
             fnMap.put("println", System.out::println);
             fnMap.put("print", System.out::print);
@@ -1664,21 +1970,7 @@ final class Instruction {
                                 if (result instanceof Heap.Instance) {
                                     Heap.Instance instance = (Heap.Instance)result;
                                     if (instance.getClazz().getClassName().equals("java/lang/String")) {
-                                        // Heap.ArrayInstance charsInstance = (Heap.ArrayInstance)
-                                        // instance.findField("value", "[B").getValue();
-                                        Heap.ArrayInstance charsInstance = null;
-                                        for (MethodArea.Field stringField : instance.getFields()) {
-                                            if (stringField.getName().equals("value")) {
-                                                charsInstance = (Heap.ArrayInstance)stringField.getValue();
-                                                break;
-                                            }
-                                        }
-                                        int[] ints = (int[])charsInstance.getFields();
-                                        char[] chars = new char[ints.length];
-                                        for (int i = 0; i < chars.length; ++i) {
-                                            chars[i] = (char)ints[i];
-                                        }
-                                        fnMap.get(methodName).accept(new String(chars));
+                                        fnMap.get(methodName).accept(instance.toString());
                                     } else {
                                         fnMap.get(methodName).accept(instance);
                                     }
@@ -1687,10 +1979,290 @@ final class Instruction {
                                 }
                         }
                     }
+                    // the null instance of System.out
+                    operandStack.discard(1);
                     return true;
                 }
             }
             return false;
         }
     }
+
+    /**
+     * Class Instruction.Superinstruction fuses a sequence of operations into one handler when the code of a method is
+     * decoded, so that the interpreter dispatches once for the whole sequence.
+     * <p>
+     * The operations which are fused are kept in their places, a branch to the middle of a sequence still works. A
+     * fused handler leaves the cursor of class {@code Bytecode} just like the operations were executed one by one.
+     * <p>
+     * <b>Usage:</b>
+     * <p>
+     * {@code Instruction.Superinstruction.configure(Instruction.Superinstruction.Mode.PROFILE, "pair.histogram")}
+     */
+    final public static class Superinstruction {
+        private Superinstruction() {}
+
+        /**
+         * The way to choose the sequences which are fused.
+         */
+        public enum Mode {
+            /**
+             * Nothing is fused.
+             */
+            NONE,
+
+            /**
+             * These sequences are fused: {@code aload_0 getfield}, {@code iload iload if_icmpxx}, {@code iinc goto}.
+             */
+            DEFAULT,
+
+            /**
+             * Nothing is fused, and the opcode pairs which are executed one after another are counted and saved to the
+             * histogram file.
+             */
+            RECORD,
+
+            /**
+             * The most frequent opcode pairs of the histogram file are fused, a pair which has a specialized handler
+             * in mode {@code DEFAULT} uses it.
+             */
+            PROFILE
+        }
+
+        /**
+         * The maximum quantity of opcode pairs which are fused in mode {@code PROFILE}.
+         */
+        private static final int MAX_PROFILED_PAIRS = 32;
+
+        /**
+         * A opcode pair whose count is less than this ratio of all the pairs is not fused in mode {@code PROFILE}.
+         */
+        private static final double MIN_PROFILED_RATIO = 0.01;
+
+        private static volatile Mode mode = Mode.DEFAULT;
+
+        private static volatile String histogram;
+
+        /**
+         * Count of the opcode pairs, the index is {@code first << 8 | second}.
+         */
+        private static final long[] pairCounts = new long[256 * 256];
+
+        /**
+         * The opcode pairs which are fused in mode {@code PROFILE}, the index is {@code first << 8 | second}.
+         */
+        private static final boolean[] profiledPairs = new boolean[256 * 256];
+
+        public static Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * Set the mode, it only affects the code which is decoded later.
+         * 
+         * @param mode
+         *        the way to choose the sequences which are fused
+         * @param histogram
+         *        the path of the histogram file, it is required by mode {@code RECORD} and {@code PROFILE}
+         */
+        public static void configure(Mode mode, String histogram) {
+            if ((mode == Mode.RECORD || mode == Mode.PROFILE) && histogram == null) {
+                throw new RuntimeException("Superinstruction mode " + mode + " needs a histogram file.");
+            }
+
+            Superinstruction.histogram = histogram;
+            if (mode == Mode.PROFILE) {
+                loadHistogram(histogram);
+            }
+            Superinstruction.mode = mode;
+        }
+
+        /**
+         * Count a opcode pair which is executed one after another.
+         */
+        public static void record(int first, int second) {
+            ++pairCounts[first << 8 | second];
+        }
+
+        /**
+         * Save the count of the opcode pairs to the histogram file in mode {@code RECORD}. A line of the file is a
+         * opcode pair and its count, such as {@code 0x2a 0xb4 1024}.
+         */
+        public static void saveHistogram() {
+            if (mode != Mode.RECORD) {
+                return;
+            }
+
+            List<Integer> pairs = new ArrayList<>();
+            for (int pair = 0; pair < pairCounts.length; ++pair) {
+                if (pairCounts[pair] > 0) {
+                    pairs.add(pair);
+                }
+            }
+            pairs.sort((a, b) -> Long.compare(pairCounts[b], pairCounts[a]));
+
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(histogram)))) {
+                for (int pair : pairs) {
+                    writer.printf("0x%02x 0x%02x %d%n", pair >> 8, pair & 0xff, pairCounts[pair]);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Can not save the histogram file " + histogram + ".", e);
+            }
+        }
+
+        /**
+         * Read the histogram file and choose the most frequent opcode pairs.
+         */
+        private static void loadHistogram(String histogram) {
+            List<long[]> pairs = new ArrayList<>();
+            long total = 0;
+            try {
+                for (String line : Files.readAllLines(Paths.get(histogram))) {
+                    String[] columns = line.trim().split("\\s+");
+                    if (columns.length != 3) {
+                        continue;
+                    }
+                    long count = Long.parseLong(columns[2]);
+                    pairs.add(new long[] { Integer.decode(columns[0]) << 8 | Integer.decode(columns[1]), count });
+                    total += count;
+                }
+            } catch (IOException | NumberFormatException e) {
+                throw new RuntimeException("Can not read the histogram file " + histogram + ".", e);
+            }
+            pairs.sort((a, b) -> Long.compare(b[1], a[1]));
+
+            Arrays.fill(profiledPairs, false);
+            for (int i = 0; i < pairs.size() && i < MAX_PROFILED_PAIRS; ++i) {
+                if (pairs.get(i)[1] < total * MIN_PROFILED_RATIO) {
+                    break;
+                }
+                profiledPairs[(int)pairs.get(i)[0] & 0xffff] = true;
+            }
+        }
+
+        /**
+         * Fuse the operations of a method by the mode.
+         * 
+         * @param operations
+         *        the operations of a method
+         */
+        public static void fuse(Bytecode.Operation[] operations) {
+            if (mode == Mode.NONE || mode == Mode.RECORD) {
+                return;
+            }
+
+            for (int i = 0; i + 1 < operations.length; ++i) {
+                final int first = operations[i].getOpcode();
+                final int second = operations[i + 1].getOpcode();
+                if (mode == Mode.PROFILE && !profiledPairs[first << 8 | second]) {
+                    continue;
+                }
+
+                Handler handler = fuseSpecialized(operations, i);
+                if (handler == null && mode == Mode.PROFILE && isStraight(first)) {
+                    handler = fusePair(operations[i].getHandler());
+                }
+                if (handler != null) {
+                    operations[i].setHandler(handler);
+                    // the fused sequences never overlap, a fused handler never calls another fused handler
+                    ++i;
+                }
+            }
+        }
+
+        /**
+         * Generate a specialized handler for the sequence which starts at the given index, or return null.
+         */
+        private static Handler fuseSpecialized(Bytecode.Operation[] operations, int i) {
+            final Bytecode.Operation first = operations[i];
+            final Bytecode.Operation second = operations[i + 1];
+
+            // aload_0 getfield
+            if (first.getOpcode() == 0x2a && second.getOpcode() == 0xb4) {
+                return (frame, bytecode) -> {
+                    frame.getOperandStack().push(frame.getLocalVariable().get(0));
+                    bytecode.next().getHandler().execute(frame, bytecode);
+                };
+            }
+
+            // iinc goto
+            if (first.getOpcode() == 0x84 && second.getOpcode() == 0xa7) {
+                final int index = first.getOperand();
+                final int value = first.getSecondOperand();
+                final int target = second.getOperand();
+                return (frame, bytecode) -> {
+                    final Frame.LocalVariable localVariable = frame.getLocalVariable();
+                    localVariable.set(index, localVariable.getInt(index) + value);
+                    bytecode.jump(target);
+                };
+            }
+
+            // iload iload if_icmpxx
+            if (i + 2 < operations.length && isIload(first.getOpcode()) && isIload(second.getOpcode())) {
+                final Bytecode.Operation third = operations[i + 2];
+                if (third.getOpcode() < 0x9f || third.getOpcode() > 0xa4) {
+                    return null;
+                }
+                final int index1 = iloadIndex(first);
+                final int index2 = iloadIndex(second);
+                final int opcode = third.getOpcode();
+                final int target = third.getOperand();
+                final int next = i + 3;
+                return (frame, bytecode) -> {
+                    final Frame.LocalVariable localVariable = frame.getLocalVariable();
+                    final int a = localVariable.getInt(index1);
+                    final int b = localVariable.getInt(index2);
+                    final boolean jump;
+                    switch (opcode) {
+                        case 0x9f:
+                            jump = a == b;
+                            break;
+                        case 0xa0:
+                            jump = a != b;
+                            break;
+                        case 0xa1:
+                            jump = a < b;
+                            break;
+                        case 0xa2:
+                            jump = a >= b;
+                            break;
+                        case 0xa3:
+                            jump = a > b;
+                            break;
+                        default:
+                            jump = a <= b;
+                    }
+                    bytecode.jump(jump ? target : next);
+                };
+            }
+
+            return null;
+        }
+
+        /**
+         * Generate a handler which executes a operation and the operation after it.
+         */
+        private static Handler fusePair(final Handler first) {
+            return (frame, bytecode) -> {
+                first.execute(frame, bytecode);
+                bytecode.next().getHandler().execute(frame, bytecode);
+            };
+        }
+
+        /**
+         * Is the instruction always followed by the next instruction in the same frame, and never rewritten into its
+         * quick variant. Only such instruction can be the first one of a generic fused pair.
+         */
+        private static boolean isStraight(int opcode) {
+            return opcode < 0x99;
+        }
+
+        private static boolean isIload(int opcode) {
+            return opcode == 0x15 || (opcode >= 0x1a && opcode <= 0x1d);
+        }
+
+        private static int iloadIndex(Bytecode.Operation operation) {
+            return operation.getOpcode() == 0x15 ? operation.getOperand() : operation.getOpcode() - 0x1a;
+        }
+    }
 }
@@ -14,8 +14,42 @@ import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
 final class Interpreter {
     private Interpreter() {}
 
+    /**
+     * The way to execute the bytecode.
+     */
+    public enum Engine {
+        /**
+         * Every instruction is dispatched to its handler in {@code Instruction.Set}.
+         */
+        LAMBDA,
+
+        /**
+         * The instructions are executed in one big {@code switch} loop of class {@code SwitchInterpreter}.
+         */
+        SWITCH,
+
+        /**
+         * The method which only computes primitive values is translated into the register code of class
+         * {@code RegisterInterpreter}, the other methods are executed like {@code LAMBDA}.
+         */
+        REGISTER
+    }
+
+    /**
+     * The engine used by every instance of class {@code Interpreter}.
+     */
+    private static volatile Engine engine = Engine.LAMBDA;
+
     private ThreadResource threadResource;
 
+    public static Engine getEngine() {
+        return engine;
+    }
+
+    public static void setEngine(Engine engine) {
+        Interpreter.engine = engine;
+    }
+
     /**
      * Create a instance of class {@code Interpreter}.
      * 
@@ -65,16 +99,73 @@ final class Interpreter {
      * Exceute the bytecode.
      */
     public void execute() {
+        execute(threadResource);
+    }
+
+    /**
+     * Exceute the frames of the java stack of the given thread until the frames of the current call are all popped.
+     * 
+     * @param threadResource
+     *        a instance of class {@code ThreadResource}
+     */
+    public static void execute(ThreadResource threadResource) {
         JavaStack javaStack = threadResource.getJavaStack();
 
+        // the opcode pairs are always counted by the handlers in Instruction.Set
+        if (Instruction.Superinstruction.getMode() == Instruction.Superinstruction.Mode.RECORD) {
+            executeAndRecord(javaStack);
+            return;
+        }
+
+        if (engine == Engine.SWITCH) {
+            SwitchInterpreter.execute(threadResource);
+            return;
+        }
+
+        if (engine == Engine.REGISTER) {
+            RegisterInterpreter.Code code = RegisterInterpreter.codeOf(javaStack.current().getMethod());
+            if (code != null) {
+                RegisterInterpreter.invoke(code, javaStack);
+                if (javaStack.isEmpty()) {
+                    return;
+                }
+            }
+        }
+
         do {
             Frame frame = javaStack.current();
 
             Bytecode bytecode = frame.getBytecode();
 
-            int opcode = bytecode.getU1();
-            // System.out.printf("Instruction 0x%02x\n", opcode);
-            Instruction.Set.get(opcode).accept(frame, bytecode);
+            Bytecode.Operation operation = bytecode.next();
+            // System.out.printf("Instruction 0x%02x\n", operation.getOpcode());
+            operation.getHandler().execute(frame, bytecode);
+        } while (!javaStack.isEmpty());
+    }
+
+    /**
+     * Execute the bytecode and count the opcode pairs which are executed one after another in the same frame.
+     */
+    private static void executeAndRecord(JavaStack javaStack) {
+        Frame lastFrame = null;
+        int lastIndex = -1;
+        int lastOpcode = 0;
+
+        do {
+            Frame frame = javaStack.current();
+
+            Bytecode bytecode = frame.getBytecode();
+
+            int index = bytecode.getIndex();
+            Bytecode.Operation operation = bytecode.next();
+            if (frame == lastFrame && index == lastIndex + 1) {
+                Instruction.Superinstruction.record(lastOpcode, operation.getOpcode());
+            }
+            lastFrame = frame;
+            lastIndex = index;
+            lastOpcode = operation.getOpcode();
+
+            operation.getHandler().execute(frame, bytecode);
         } while (!javaStack.isEmpty());
     }
 }
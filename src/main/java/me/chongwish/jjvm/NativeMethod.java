@@ -2,11 +2,12 @@ package me.chongwish.jjvm;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import me.chongwish.jjvm.RuntimeDataArea.Heap;
+import me.chongwish.jjvm.RuntimeDataArea.JavaStack;
 import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
-import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
 
 /**
  * Native Method
@@ -14,26 +15,81 @@ import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
  * @todo
  */
 final class NativeMethod {
-    final private static Map<String, Consumer<Frame.OperandStack>> Set = new HashMap<>();
+    final private static Map<String, BiConsumer<Frame, Frame.OperandStack>> Set = new HashMap<>();
 
-    public static Consumer<Frame.OperandStack> find(String className, String methodName) {
+    public static BiConsumer<Frame, Frame.OperandStack> find(String className, String methodName) {
         return Set.get(className + "." + methodName);
     }
 
-    public static void run(String className, String methodName, Frame.OperandStack operandStack) {
+    /**
+     * Run a native method.
+     * 
+     * @param frame
+     *        the frame which invokes the native method
+     * @param operandStack
+     *        the operand stack which holds the arguments
+     */
+    public static void run(String className, String methodName, Frame frame, Frame.OperandStack operandStack) {
         if (!methodName.equals("registerNatives")) {
-            Consumer<Frame.OperandStack> method = find(className, methodName);
+            BiConsumer<Frame, Frame.OperandStack> method = find(className, methodName);
             if (method == null) {
                 throw new RuntimeException("Native Method: " + className + "." + methodName + " can not be found.");
             }
-            method.accept(operandStack);
+            method.accept(frame, operandStack);
         }
     }
 
     private static void fill(String className, String methodName, Consumer<Frame.OperandStack> fn) {
+        Set.put(className + "." + methodName, (frame, operandStack) -> fn.accept(operandStack));
+    }
+
+    /**
+     * Fill a native method which needs the frame invoking it.
+     */
+    private static void fill(String className, String methodName, BiConsumer<Frame, Frame.OperandStack> fn) {
         Set.put(className + "." + methodName, fn);
     }
 
+    /**
+     * Record the backtrace of the current frames to a throwable, only the methods and the pcs are captured.
+     * 
+     * @param throwable
+     *        the instance of the throwable
+     * @param javaStack
+     *        the java stack of the thread which creates the throwable
+     */
+    public static void fillInStackTrace(Heap.Instance throwable, JavaStack javaStack) {
+        JavaStack.Backtrace backtrace = javaStack.backtrace(throwable);
+        throwable.setValue(throwable.findField("backtrace", "Ljava/lang/Object;"), backtrace);
+
+        // java 9+ reads the depth of the backtrace from the field
+        for (MethodArea.Field field : throwable.getClazz().getInstanceFields()) {
+            if (field.getName().equals("depth") && field.getClazz().getClassName().equals("java/lang/Throwable")) {
+                throwable.setValue(field, backtrace.getDepth());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Assign the information of a frame of the backtrace to a instance of {@code StackTraceElement}.
+     */
+    private static void fillStackTraceElement(Heap.Instance element, JavaStack.Backtrace backtrace, int index) {
+        MethodArea.Method method = backtrace.getMethod(index);
+        String fileName = method.getClazz().getClassfileInformation().getSourceFileName();
+        element.setValue(element.findField("declaringClass", "Ljava/lang/String;"),
+                MethodArea.Clazz.makeInstanceFrom(method.getClazz().getClassName().replace('/', '.')));
+        element.setValue(element.findField("methodName", "Ljava/lang/String;"),
+                MethodArea.Clazz.makeInstanceFrom(method.getName()));
+        element.setValue(element.findField("fileName", "Ljava/lang/String;"),
+                fileName == null ? null : MethodArea.Clazz.makeInstanceFrom(fileName));
+        element.setValue(element.findField("lineNumber", "I"), backtrace.getLineNumber(index));
+    }
+
+    private static JavaStack.Backtrace backtraceOf(Heap.Instance throwable) {
+        return (JavaStack.Backtrace)throwable.getValue(throwable.findField("backtrace", "Ljava/lang/Object;"));
+    }
+
     static {
         fill("java/lang/Class", "registerNatives", operandStack -> {
         });
@@ -48,15 +104,14 @@ final class NativeMethod {
             field.setValue(MethodArea.findClazz("java/util/HashMap").makeInstance());
         });
 
-        fill("sun/misc/VM", "initialize", operandStack -> {
+        fill("sun/misc/VM", "initialize", (frame, operandStack) -> {
             MethodArea.Clazz vm = MethodArea.findClazz("sun/misc/VM");
             vm.getClassLoader().load("java/util/Properties");
             MethodArea.Field field = vm.findField("savedProps", "Ljava/util/Properties;");
             Heap.Instance propsInstance = (Heap.Instance)field.getValue();
             MethodArea.Method method = propsInstance.getClazz().findMethod("setProperty",
                     "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/Object;");
-            Interpreter.init(new ThreadResource()).read(method).with(propsInstance, propsInstance, propsInstance)
-                    .execute();
+            frame.getThreadResource().getNativeMethodStack().call(method, propsInstance, propsInstance, propsInstance);
         });
 
         // @todo
@@ -105,8 +160,42 @@ final class NativeMethod {
             operandStack.push(Double.longBitsToDouble(operandStack.popLong()));
         });
 
-        fill("java/lang/Throwable", "fillInStackTrace", operandStack -> {
+        fill("java/lang/Throwable", "fillInStackTrace", (frame, operandStack) -> {
             operandStack.popInt();
+            // the throwable itself is returned
+            fillInStackTrace((Heap.Instance)operandStack.current(), frame.getThreadResource().getJavaStack());
+        });
+
+        // java 9+, the stack trace elements are resolved when they are required at the first time
+        fill("java/lang/StackTraceElement", "initStackTraceElements", operandStack -> {
+            JavaStack.Backtrace backtrace = backtraceOf((Heap.Instance)operandStack.pop());
+            Heap.ArrayInstance elements = (Heap.ArrayInstance)operandStack.pop();
+            for (int i = 0; i < elements.getSize(); ++i) {
+                Heap.Instance element = (Heap.Instance)elements.getReference(i);
+                fillStackTraceElement(element, backtrace, i);
+                element.setValue(element.findField("declaringClassObject", "Ljava/lang/Class;"),
+                        backtrace.getMethod(i).getClazz().getClazzInstance());
+            }
+        });
+
+        // java 8-
+        fill("java/lang/Throwable", "getStackTraceDepth", operandStack -> {
+            JavaStack.Backtrace backtrace = backtraceOf((Heap.Instance)operandStack.pop());
+            operandStack.push(backtrace == null ? 0 : backtrace.getDepth());
+        });
+
+        fill("java/lang/Throwable", "getStackTraceElement", (frame, operandStack) -> {
+            int index = operandStack.popInt();
+            Heap.Instance throwable = (Heap.Instance)operandStack.pop();
+            JavaStack.Backtrace backtrace = backtraceOf(throwable);
+            throwable.getClazz().getClassLoader().load("java/lang/StackTraceElement");
+            MethodArea.Clazz clazz = MethodArea.findClazz("java/lang/StackTraceElement");
+            if (Heap.getSpace() != null && !Instruction.Helper.reserve(frame, Heap.Space.sizeOf(clazz))) {
+                return;
+            }
+            Heap.Instance element = clazz.makeInstance();
+            fillStackTraceElement(element, backtrace, index);
+            operandStack.push(element);
         });
 
         fill("java/lang/Class", "forName0", operandStack -> {
@@ -144,10 +233,10 @@ final class NativeMethod {
         // operandStack.push(1);
         // });
 
-        // // @todo
-        // fill("java/lang/StringUTF16", "isBigEndian", operandStack -> {
-        // operandStack.push(1);
-        // });
+        // a utf16 string made by the virtual machine is big endian
+        fill("java/lang/StringUTF16", "isBigEndian", operandStack -> {
+            operandStack.push(1);
+        });
 
         // // @todo
         // fill("java/lang/Runtime", "maxMemory", operandStack -> {
@@ -184,24 +273,48 @@ final class NativeMethod {
 
         fill("java/lang/System", "arraycopy", operandStack -> {
             // @todo check
-
             int argument5 = operandStack.popInt();
             int argument4 = operandStack.popInt();
-            int[] argument3 = (int[])((Heap.ArrayInstance)operandStack.pop()).getFields();
+            Heap.ArrayInstance argument3 = (Heap.ArrayInstance)operandStack.pop();
             int argument2 = operandStack.popInt();
-            int[] argument1 = (int[])((Heap.ArrayInstance)operandStack.pop()).getFields();
+            Heap.ArrayInstance argument1 = (Heap.ArrayInstance)operandStack.pop();
 
-            for (int i = argument4, j = argument2, k = 0; k < argument5; ++i, ++j, ++k) {
-                argument3[i] = argument1[j];
-            }
+            Heap.ArrayInstance.copy(argument1, argument2, argument3, argument4, argument5);
         });
 
-        // @todo
         fill("java/lang/String", "intern", operandStack -> {
+            operandStack.push(MethodArea.internString((Heap.Instance)operandStack.pop()));
+        });
+
+        // the caller is at a safepoint of the managed heap
+        fill("java/lang/Runtime", "gc", operandStack -> {
+            operandStack.pop();
+            Heap.Space space = Heap.getSpace();
+            if (space != null) {
+                space.collect();
+            }
         });
 
         fill("java/lang/Object", "hashCode", operandStack -> {
             operandStack.push(operandStack.pop().hashCode());
         });
+
+        // @todo clone a instance of a cloneable class
+        fill("java/lang/Object", "clone", (frame, operandStack) -> {
+            // the array stays on the operand stack while the room is reserved, which may collect the garbage
+            Object object = operandStack.current();
+            if (!(object instanceof Heap.ArrayInstance)) {
+                throw new RuntimeException("Native Method: java/lang/Object.clone only can clone a array.");
+            }
+            Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)object;
+            if (Heap.getSpace() != null && !Instruction.Helper.reserve(frame,
+                    Heap.Space.sizeOf(arrayInstance.getArrayClazz(), arrayInstance.getSize()))) {
+                return;
+            }
+            operandStack.pop();
+            Heap.ArrayInstance copy = arrayInstance.getArrayClazz().makeInstance(arrayInstance.getSize());
+            Heap.ArrayInstance.copy(arrayInstance, 0, copy, 0, arrayInstance.getSize());
+            operandStack.push(copy);
+        });
     }
 }
@@ -0,0 +1,1032 @@
+package me.chongwish.jjvm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.chongwish.jjvm.RuntimeDataArea.JavaStack;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+/**
+ * A interpreter which executes the register code of a method.
+ * <p>
+ * The stack bytecode of a method is translated into register code when the method is invoked at the first time. Every
+ * local variable is a register, every slot of the OperandStack is a register, and every constant is a register which
+ * is filled when the method is invoked. A instruction of register code is four ints: the opcode, which is the opcode
+ * of the java bytecode doing the same operation, and three register operands. A load or a constant does not generate
+ * a instruction, the register of the local variable or the constant is used by the instruction which consumes it, and
+ * a store is merged into the instruction which produces the value, so {@code iload_1 iload_2 iadd istore_3} is only
+ * one instruction {@code iadd r3 r1 r2}.
+ * <p>
+ * The registers are kept in a {@code long[]}, a int, a float or a double is stored as its bits, so nothing is boxed.
+ * Only a static method whose argument and return types are primitive, which does not touch any object, field, array
+ * or exception, and which only invokes such methods can be translated, the other methods are executed by the frames.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * {@code Interpreter.setEngine(Interpreter.Engine.REGISTER)}
+ * <p>
+ * {@code RegisterInterpreter.invoke(RegisterInterpreter.codeOf(method), operandStack)}
+ */
+final class RegisterInterpreter {
+    private RegisterInterpreter() {}
+
+    /**
+     * Copy a register: {@code a = b}
+     */
+    private static final int MOVE = 0x15;
+
+    /**
+     * Add a constant to a int register: {@code a += b}
+     */
+    private static final int IINC = 0x84;
+
+    /**
+     * Jump to the instruction c.
+     */
+    private static final int GOTO = 0xa7;
+
+    /**
+     * Return the register a.
+     */
+    private static final int RETURN = 0xac;
+
+    /**
+     * Return nothing.
+     */
+    private static final int RETURN_VOID = 0xb1;
+
+    /**
+     * Call the method of call site b and store its result in the register a.
+     */
+    private static final int CALL = 0xb8;
+
+    /**
+     * The register code of a method which can not be translated
+     */
+    private static final Code NONE = new Code();
+
+    /**
+     * The register code of a method.
+     */
+    final public static class Code {
+        /**
+         * Every instruction takes four ints: opcode, a, b, c
+         */
+        private int[] instructions;
+
+        /**
+         * The value of the constant registers
+         */
+        private long[] constants;
+
+        /**
+         * The first constant register
+         */
+        private int constantBase;
+
+        private int registerCount;
+
+        /**
+         * The register of every argument
+         */
+        private int[] argumentRegisters;
+
+        /**
+         * The type of every argument, {@code I}, {@code J}, {@code F} or {@code D}
+         */
+        private char[] argumentKinds;
+
+        /**
+         * The return type, {@code I}, {@code J}, {@code F}, {@code D} or {@code V}
+         */
+        private char returnKind;
+
+        private CallSite[] callSites;
+
+        /**
+         * Get the quantity of instruction.
+         */
+        public int size() {
+            return instructions.length / 4;
+        }
+    }
+
+    /**
+     * A invokestatic instruction.
+     */
+    private static class CallSite {
+        private Code code;
+
+        /**
+         * The register of every argument in the caller
+         */
+        private int[] arguments;
+    }
+
+    /**
+     * Get the register code of a method, it is translated at the first time.
+     *
+     * @param method
+     *        a instance of class {@code Method}
+     * @return a instance of class {@code RegisterInterpreter.Code}, or null if the method can not be translated
+     */
+    public static Code codeOf(Method method) {
+        Code code = method.getRegisterCode();
+        if (code == null) {
+            code = translate(method);
+        }
+        return code == NONE ? null : code;
+    }
+
+    /**
+     * Pop the arguments from the OperandStack, execute the register code and push its result.
+     *
+     * @param code
+     *        a instance of class {@code RegisterInterpreter.Code}
+     * @param operandStack
+     *        the OperandStack of the caller
+     */
+    public static void invoke(Code code, Frame.OperandStack operandStack) {
+        long[] registers = newRegisters(code);
+        for (int i = code.argumentKinds.length - 1; i >= 0; --i) {
+            registers[code.argumentRegisters[i]] = code.argumentKinds[i] == 'J' || code.argumentKinds[i] == 'D'
+                    ? operandStack.popLong() : operandStack.popInt();
+        }
+        push(code, execute(code, registers), operandStack);
+    }
+
+    /**
+     * Take the arguments from the LocalVariable of the current frame which has not been executed, pop the frame,
+     * execute the register code and push its result to the caller.
+     *
+     * @param code
+     *        a instance of class {@code RegisterInterpreter.Code}
+     * @param javaStack
+     *        the java stack whose current frame is the frame of the method
+     */
+    public static void invoke(Code code, JavaStack javaStack) {
+        final Frame.LocalVariable localVariable = javaStack.current().getLocalVariable();
+        long[] registers = newRegisters(code);
+        for (int i = 0; i < code.argumentKinds.length; ++i) {
+            final int register = code.argumentRegisters[i];
+            registers[register] = code.argumentKinds[i] == 'J' || code.argumentKinds[i] == 'D'
+                    ? localVariable.getLong(register) : localVariable.getInt(register);
+        }
+
+        // the window of the popped frame is reused by the next frame, so the arguments are taken before
+        javaStack.pop();
+        final Frame caller = javaStack.current();
+        final long result = execute(code, registers);
+        // the transition frame of a call gets the return value
+        if (caller != null) {
+            push(code, result, caller.getOperandStack());
+        }
+    }
+
+    private static long[] newRegisters(Code code) {
+        long[] registers = new long[code.registerCount];
+        System.arraycopy(code.constants, 0, registers, code.constantBase, code.constants.length);
+        return registers;
+    }
+
+    private static void push(Code code, long result, Frame.OperandStack operandStack) {
+        switch (code.returnKind) {
+            case 'V':
+                break;
+            case 'J':
+            case 'D':
+                operandStack.push(result);
+                break;
+            default:
+                operandStack.push((int)result);
+        }
+    }
+
+    /**
+     * Execute the register code with the given registers.
+     *
+     * @return the bits of the result
+     */
+    private static long execute(Code code, long[] r) {
+        final int[] instructions = code.instructions;
+        int pc = 0;
+
+        while (true) {
+            final int opcode = instructions[pc];
+            final int a = instructions[pc + 1];
+            final int b = instructions[pc + 2];
+            final int c = instructions[pc + 3];
+            pc += 4;
+
+            switch (opcode) {
+                // move
+                case MOVE:
+                    r[a] = r[b];
+                    break;
+
+                // iadd ladd fadd dadd
+                case 0x60:
+                    r[a] = (int)r[b] + (int)r[c];
+                    break;
+                case 0x61:
+                    r[a] = r[b] + r[c];
+                    break;
+                case 0x62:
+                    r[a] = ofFloat(toFloat(r[b]) + toFloat(r[c]));
+                    break;
+                case 0x63:
+                    r[a] = ofDouble(toDouble(r[b]) + toDouble(r[c]));
+                    break;
+
+                // isub lsub fsub dsub
+                case 0x64:
+                    r[a] = (int)r[b] - (int)r[c];
+                    break;
+                case 0x65:
+                    r[a] = r[b] - r[c];
+                    break;
+                case 0x66:
+                    r[a] = ofFloat(toFloat(r[b]) - toFloat(r[c]));
+                    break;
+                case 0x67:
+                    r[a] = ofDouble(toDouble(r[b]) - toDouble(r[c]));
+                    break;
+
+                // imul lmul fmul dmul
+                case 0x68:
+                    r[a] = (int)r[b] * (int)r[c];
+                    break;
+                case 0x69:
+                    r[a] = r[b] * r[c];
+                    break;
+                case 0x6a:
+                    r[a] = ofFloat(toFloat(r[b]) * toFloat(r[c]));
+                    break;
+                case 0x6b:
+                    r[a] = ofDouble(toDouble(r[b]) * toDouble(r[c]));
+                    break;
+
+                // fdiv ddiv frem drem
+                case 0x6e:
+                    r[a] = ofFloat(toFloat(r[b]) / toFloat(r[c]));
+                    break;
+                case 0x6f:
+                    r[a] = ofDouble(toDouble(r[b]) / toDouble(r[c]));
+                    break;
+                case 0x72:
+                    r[a] = ofFloat(toFloat(r[b]) % toFloat(r[c]));
+                    break;
+                case 0x73:
+                    r[a] = ofDouble(toDouble(r[b]) % toDouble(r[c]));
+                    break;
+
+                // ineg lneg fneg dneg
+                case 0x74:
+                    r[a] = -(int)r[b];
+                    break;
+                case 0x75:
+                    r[a] = -r[b];
+                    break;
+                case 0x76:
+                    r[a] = ofFloat(-toFloat(r[b]));
+                    break;
+                case 0x77:
+                    r[a] = ofDouble(-toDouble(r[b]));
+                    break;
+
+                // ishl lshl ishr lshr iushr lushr
+                case 0x78:
+                    r[a] = (int)r[b] << (int)r[c];
+                    break;
+                case 0x79:
+                    r[a] = r[b] << (int)r[c];
+                    break;
+                case 0x7a:
+                    r[a] = (int)r[b] >> (int)r[c];
+                    break;
+                case 0x7b:
+                    r[a] = r[b] >> (int)r[c];
+                    break;
+                case 0x7c:
+                    r[a] = (int)r[b] >>> (int)r[c];
+                    break;
+                case 0x7d:
+                    r[a] = r[b] >>> (int)r[c];
+                    break;
+
+                // iand land ior lor ixor lxor
+                case 0x7e:
+                    r[a] = (int)r[b] & (int)r[c];
+                    break;
+                case 0x7f:
+                    r[a] = r[b] & r[c];
+                    break;
+                case 0x80:
+                    r[a] = (int)r[b] | (int)r[c];
+                    break;
+                case 0x81:
+                    r[a] = r[b] | r[c];
+                    break;
+                case 0x82:
+                    r[a] = (int)r[b] ^ (int)r[c];
+                    break;
+                case 0x83:
+                    r[a] = r[b] ^ r[c];
+                    break;
+
+                // iinc
+                case IINC:
+                    r[a] = (int)r[a] + b;
+                    break;
+
+                // i2l i2f i2d
+                case 0x85:
+                    r[a] = (int)r[b];
+                    break;
+                case 0x86:
+                    r[a] = ofFloat((int)r[b]);
+                    break;
+                case 0x87:
+                    r[a] = ofDouble((int)r[b]);
+                    break;
+
+                // l2i l2f l2d
+                case 0x88:
+                    r[a] = (int)r[b];
+                    break;
+                case 0x89:
+                    r[a] = ofFloat(r[b]);
+                    break;
+                case 0x8a:
+                    r[a] = ofDouble(r[b]);
+                    break;
+
+                // f2i f2l f2d
+                case 0x8b:
+                    r[a] = (int)toFloat(r[b]);
+                    break;
+                case 0x8c:
+                    r[a] = (long)toFloat(r[b]);
+                    break;
+                case 0x8d:
+                    r[a] = ofDouble(toFloat(r[b]));
+                    break;
+
+                // d2i d2l d2f
+                case 0x8e:
+                    r[a] = (int)toDouble(r[b]);
+                    break;
+                case 0x8f:
+                    r[a] = (long)toDouble(r[b]);
+                    break;
+                case 0x90:
+                    r[a] = ofFloat((float)toDouble(r[b]));
+                    break;
+
+                // i2b i2c i2s
+                case 0x91:
+                    r[a] = (byte)r[b];
+                    break;
+                case 0x92:
+                    r[a] = (char)r[b];
+                    break;
+                case 0x93:
+                    r[a] = (short)r[b];
+                    break;
+
+                // lcmp
+                case 0x94:
+                    r[a] = Long.compare(r[b], r[c]);
+                    break;
+
+                // fcmpl fcmpg
+                case 0x95:
+                case 0x96: {
+                    final float x = toFloat(r[b]);
+                    final float y = toFloat(r[c]);
+                    r[a] = x > y ? 1 : x == y ? 0 : x < y ? -1 : opcode == 0x95 ? -1 : 1;
+                    break;
+                }
+
+                // dcmpl dcmpg
+                case 0x97:
+                case 0x98: {
+                    final double x = toDouble(r[b]);
+                    final double y = toDouble(r[c]);
+                    r[a] = x > y ? 1 : x == y ? 0 : x < y ? -1 : opcode == 0x97 ? -1 : 1;
+                    break;
+                }
+
+                // ifeq ifne iflt ifge ifgt ifle
+                case 0x99:
+                    if ((int)r[a] == 0) {
+                        pc = c;
+                    }
+                    break;
+                case 0x9a:
+                    if ((int)r[a] != 0) {
+                        pc = c;
+                    }
+                    break;
+                case 0x9b:
+                    if ((int)r[a] < 0) {
+                        pc = c;
+                    }
+                    break;
+                case 0x9c:
+                    if ((int)r[a] >= 0) {
+                        pc = c;
+                    }
+                    break;
+                case 0x9d:
+                    if ((int)r[a] > 0) {
+                        pc = c;
+                    }
+                    break;
+                case 0x9e:
+                    if ((int)r[a] <= 0) {
+                        pc = c;
+                    }
+                    break;
+
+                // if_icmpeq if_icmpne if_icmplt if_icmpge if_icmpgt if_icmple
+                case 0x9f:
+                    if ((int)r[a] == (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+                case 0xa0:
+                    if ((int)r[a] != (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+                case 0xa1:
+                    if ((int)r[a] < (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+                case 0xa2:
+                    if ((int)r[a] >= (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+                case 0xa3:
+                    if ((int)r[a] > (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+                case 0xa4:
+                    if ((int)r[a] <= (int)r[b]) {
+                        pc = c;
+                    }
+                    break;
+
+                // goto
+                case GOTO:
+                    pc = c;
+                    break;
+
+                // return
+                case RETURN:
+                    return r[a];
+                case RETURN_VOID:
+                    return 0;
+
+                // invokestatic
+                case CALL: {
+                    final CallSite callSite = code.callSites[b];
+                    final Code callee = callSite.code;
+                    final long[] registers = newRegisters(callee);
+                    final int[] arguments = callSite.arguments;
+                    for (int i = 0; i < arguments.length; ++i) {
+                        registers[callee.argumentRegisters[i]] = r[arguments[i]];
+                    }
+                    final long result = execute(callee, registers);
+                    if (a >= 0) {
+                        r[a] = result;
+                    }
+                    break;
+                }
+
+                default:
+                    throw new RuntimeException(String.format("Register code can not execute 0x%02x.", opcode));
+            }
+        }
+    }
+
+    private static float toFloat(long bits) {
+        return Float.intBitsToFloat((int)bits);
+    }
+
+    private static long ofFloat(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    private static double toDouble(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long ofDouble(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Translate a method and the methods it invokes, the register code is kept in the method.
+     */
+    private static synchronized Code translate(Method method) {
+        Code code = method.getRegisterCode();
+        if (code != null) {
+            return code;
+        }
+
+        // the methods which are translated together, they are kept only if all of them can be translated
+        Map<Method, Code> translated = new IdentityHashMap<>();
+        code = translate(method, translated);
+        if (code == null) {
+            method.setRegisterCode(NONE);
+            return NONE;
+        }
+        translated.forEach(Method::setRegisterCode);
+        return code;
+    }
+
+    private static Code translate(Method method, Map<Method, Code> translated) {
+        Code code = method.getRegisterCode();
+        if (code != null) {
+            return code == NONE ? null : code;
+        }
+        if (translated.containsKey(method)) {
+            return translated.get(method);
+        }
+
+        Classfile.Method classfileMethod = method.getClassfileMethod();
+        if (!classfileMethod.isStatic() || classfileMethod.isNative() || classfileMethod.isAbstract()
+                || method.getCode() == null || method.getExceptionTable().length > 0) {
+            return null;
+        }
+        String[] argumentTypes = method.getArgumentTypes();
+        for (String argumentType : argumentTypes) {
+            if (kind(argumentType) == 0) {
+                return null;
+            }
+        }
+        if (!method.getReturnType().equals("V") && kind(method.getReturnType()) == 0) {
+            return null;
+        }
+
+        // a method may invoke itself, so its code is known before it is translated
+        code = new Code();
+        translated.put(method, code);
+        code.argumentRegisters = new int[argumentTypes.length];
+        code.argumentKinds = new char[argumentTypes.length];
+        int slot = 0;
+        for (int i = 0; i < argumentTypes.length; ++i) {
+            code.argumentRegisters[i] = slot;
+            code.argumentKinds[i] = kind(argumentTypes[i]);
+            slot += code.argumentKinds[i] == 'J' || code.argumentKinds[i] == 'D' ? 2 : 1;
+        }
+        code.returnKind = method.getReturnType().equals("V") ? 'V' : kind(method.getReturnType());
+
+        if (!new Translator(method, code, translated).translate()) {
+            translated.remove(method);
+            return null;
+        }
+        return code;
+    }
+
+    /**
+     * The type which a value is stored in a register, or 0 if the type is not primitive.
+     */
+    private static char kind(String type) {
+        if (type.length() != 1) {
+            return 0;
+        }
+        switch (type.charAt(0)) {
+            case 'Z':
+            case 'B':
+            case 'C':
+            case 'S':
+            case 'I':
+                return 'I';
+            case 'J':
+            case 'F':
+            case 'D':
+                return type.charAt(0);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Translate the stack bytecode of a method into register code.
+     */
+    private static class Translator {
+        private Method method;
+        private Code code;
+        private Map<Method, Code> translated;
+        private Bytecode.Operation[] operations;
+        private MethodArea.RuntimeConstantPool runtimeConstantPool;
+
+        /**
+         * The depth of the OperandStack before every operation, it counts a value rather than a slot
+         */
+        private int[] depths;
+
+        /**
+         * Is the operation a branch target
+         */
+        private boolean[] targets;
+
+        /**
+         * The register of every value on the OperandStack, it is the register of a local variable or a constant
+         * until the value has to be stored in its own stack register
+         */
+        private int[] stack;
+        private int size;
+
+        private int[] instructions = new int[64];
+        private int length;
+
+        /**
+         * The position of the last instruction which produces a stack value, and the position of the last label
+         */
+        private int producer = -1;
+        private int label = -1;
+
+        /**
+         * The position of the instruction by the operation index
+         */
+        private int[] labels;
+
+        /**
+         * The positions of the branch instruction whose target is a operation index
+         */
+        private List<Integer> fixups = new ArrayList<>();
+
+        private Map<Long, Integer> constants = new LinkedHashMap<>();
+        private List<CallSite> callSites = new ArrayList<>();
+
+        Translator(Method method, Code code, Map<Method, Code> translated) {
+            this.method = method;
+            this.code = code;
+            this.translated = translated;
+            this.operations = method.getDecodedCode().getOperations();
+            this.runtimeConstantPool = MethodArea.findRuntimeConstantPool(method.getClazz().getClassName());
+        }
+
+        boolean translate() {
+            if (!computeDepths()) {
+                return false;
+            }
+
+            stack = new int[method.getMaxStack() + 1];
+            labels = new int[operations.length];
+            boolean reachable = false;
+            for (int i = 0; i < operations.length; ++i) {
+                if (depths[i] < 0) {
+                    reachable = false;
+                    continue;
+                }
+
+                // the values on the OperandStack are in their own stack registers at a branch target
+                if (targets[i] && reachable) {
+                    flush();
+                }
+                if (targets[i] || !reachable) {
+                    size = depths[i];
+                    for (int j = 0; j < size; ++j) {
+                        stack[j] = stackRegister(j);
+                    }
+                    label = length;
+                }
+                labels[i] = length;
+
+                reachable = translate(operations[i]);
+            }
+
+            for (int fixup : fixups) {
+                instructions[fixup] = labels[instructions[fixup]];
+            }
+
+            code.instructions = Arrays.copyOf(instructions, length);
+            code.constantBase = method.getMaxLocals() + method.getMaxStack();
+            code.constants = new long[constants.size()];
+            int i = 0;
+            for (long constant : constants.keySet()) {
+                code.constants[i++] = constant;
+            }
+            code.registerCount = code.constantBase + code.constants.length;
+            code.callSites = callSites.toArray(new CallSite[0]);
+            return true;
+        }
+
+        /**
+         * Compute the depth of the OperandStack before every operation, and find the branch targets.
+         *
+         * @return is every instruction supported
+         */
+        private boolean computeDepths() {
+            depths = new int[operations.length];
+            targets = new boolean[operations.length];
+            Arrays.fill(depths, -1);
+
+            Deque<Integer> worklist = new ArrayDeque<>();
+            depths[0] = 0;
+            worklist.push(0);
+            while (!worklist.isEmpty()) {
+                final int index = worklist.pop();
+                final Bytecode.Operation operation = operations[index];
+                final int opcode = operation.getOpcode();
+                final int[] effect = effect(operation);
+                if (effect == null) {
+                    return false;
+                }
+                final int depth = depths[index] - effect[0] + effect[1];
+
+                List<Integer> nexts = new ArrayList<>();
+                if ((opcode >= 0x99 && opcode <= 0xa4) || opcode == 0xa7 || opcode == 0xc8) {
+                    targets[operation.getOperand()] = true;
+                    nexts.add(operation.getOperand());
+                }
+                if (opcode != 0xa7 && opcode != 0xc8 && (opcode < 0xac || opcode > 0xb1)) {
+                    nexts.add(index + 1);
+                }
+                for (int next : nexts) {
+                    if (next >= operations.length) {
+                        return false;
+                    }
+                    if (depths[next] < 0) {
+                        depths[next] = depth;
+                        worklist.push(next);
+                    } else if (depths[next] != depth) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get the quantity of value which a operation pops and pushes, or null if the operation is not supported.
+         */
+        private int[] effect(Bytecode.Operation operation) {
+            final int opcode = operation.getOpcode();
+
+            // const bipush sipush
+            if (opcode >= 0x02 && opcode <= 0x11) {
+                return new int[] { 0, 1 };
+            }
+            // ldc ldc_w ldc2_w
+            if (opcode >= 0x12 && opcode <= 0x14) {
+                byte tag = runtimeConstantPool.dereference(operation.getOperand()).getTag();
+                return tag == Classfile.CONSTANTPOOL_TABLE.INTEGER || tag == Classfile.CONSTANTPOOL_TABLE.FLOAT
+                        || tag == Classfile.CONSTANTPOOL_TABLE.LONG || tag == Classfile.CONSTANTPOOL_TABLE.DOUBLE
+                                ? new int[] { 0, 1 }
+                                : null;
+            }
+            // [i|l|f|d]load [i|l|f|d]load_n
+            if ((opcode >= 0x15 && opcode <= 0x18) || (opcode >= 0x1a && opcode <= 0x29)) {
+                return new int[] { 0, 1 };
+            }
+            // [i|l|f|d]store [i|l|f|d]store_n pop
+            if ((opcode >= 0x36 && opcode <= 0x39) || (opcode >= 0x3b && opcode <= 0x4a) || opcode == 0x57) {
+                return new int[] { 1, 0 };
+            }
+            // dup
+            if (opcode == 0x59) {
+                return new int[] { 1, 2 };
+            }
+            // arithmetic except the division and remainder of int and long, shift, logic, compare
+            if ((opcode >= 0x60 && opcode <= 0x6b) || opcode == 0x6e || opcode == 0x6f || opcode == 0x72
+                    || opcode == 0x73 || (opcode >= 0x78 && opcode <= 0x83) || (opcode >= 0x94 && opcode <= 0x98)) {
+                return new int[] { 2, 1 };
+            }
+            // neg, conversion
+            if ((opcode >= 0x74 && opcode <= 0x77) || (opcode >= 0x85 && opcode <= 0x93)) {
+                return new int[] { 1, 1 };
+            }
+            // iinc goto goto_w return
+            if (opcode == 0x84 || opcode == 0xa7 || opcode == 0xc8 || opcode == 0xb1) {
+                return new int[] { 0, 0 };
+            }
+            // ifxx
+            if (opcode >= 0x99 && opcode <= 0x9e) {
+                return new int[] { 1, 0 };
+            }
+            // if_icmpxx
+            if (opcode >= 0x9f && opcode <= 0xa4) {
+                return new int[] { 2, 0 };
+            }
+            // [i|l|f|d]return
+            if (opcode >= 0xac && opcode <= 0xaf) {
+                return new int[] { 1, 0 };
+            }
+            // invokestatic
+            if (opcode == 0xb8) {
+                Method target = runtimeConstantPool.dereferenceMethod(operation.getOperand());
+                if (RegisterInterpreter.translate(target, translated) == null) {
+                    return null;
+                }
+                return new int[] { target.getArgumentTypes().length, target.getReturnType().equals("V") ? 0 : 1 };
+            }
+            return null;
+        }
+
+        /**
+         * Translate a operation.
+         *
+         * @return can the next operation be reached from this operation
+         */
+        private boolean translate(Bytecode.Operation operation) {
+            final int opcode = operation.getOpcode();
+
+            // iconst_m1 ~ iconst_5
+            if (opcode >= 0x02 && opcode <= 0x08) {
+                push(constantRegister(opcode - 0x03));
+            // lconst_0 lconst_1
+            } else if (opcode == 0x09 || opcode == 0x0a) {
+                push(constantRegister(opcode - 0x09));
+            // fconst_0 ~ fconst_2
+            } else if (opcode >= 0x0b && opcode <= 0x0d) {
+                push(constantRegister(ofFloat(opcode - 0x0b)));
+            // dconst_0 dconst_1
+            } else if (opcode == 0x0e || opcode == 0x0f) {
+                push(constantRegister(ofDouble(opcode - 0x0e)));
+            // bipush sipush
+            } else if (opcode == 0x10 || opcode == 0x11) {
+                push(constantRegister(operation.getOperand()));
+            // ldc ldc_w ldc2_w
+            } else if (opcode >= 0x12 && opcode <= 0x14) {
+                Object value = runtimeConstantPool.dereference(operation.getOperand()).getValue();
+                if (value instanceof Float) {
+                    push(constantRegister(ofFloat((float)value)));
+                } else if (value instanceof Double) {
+                    push(constantRegister(ofDouble((double)value)));
+                } else {
+                    push(constantRegister(((Number)value).longValue()));
+                }
+            // [i|l|f|d]load
+            } else if (opcode >= 0x15 && opcode <= 0x18) {
+                push(operation.getOperand());
+            // [i|l|f|d]load_n
+            } else if (opcode >= 0x1a && opcode <= 0x29) {
+                push((opcode - 0x1a) % 4);
+            // [i|l|f|d]store
+            } else if (opcode >= 0x36 && opcode <= 0x39) {
+                store(operation.getOperand());
+            // [i|l|f|d]store_n
+            } else if (opcode >= 0x3b && opcode <= 0x4a) {
+                store((opcode - 0x3b) % 4);
+            // pop
+            } else if (opcode == 0x57) {
+                size--;
+            // dup
+            } else if (opcode == 0x59) {
+                push(stack[size - 1]);
+            // binary operation
+            } else if ((opcode >= 0x60 && opcode <= 0x73) || (opcode >= 0x78 && opcode <= 0x83)
+                    || (opcode >= 0x94 && opcode <= 0x98)) {
+                final int c = stack[--size];
+                final int b = stack[--size];
+                produce(opcode, b, c);
+            // unary operation
+            } else if ((opcode >= 0x74 && opcode <= 0x77) || (opcode >= 0x85 && opcode <= 0x93)) {
+                final int b = stack[--size];
+                produce(opcode, b, 0);
+            // iinc
+            } else if (opcode == 0x84) {
+                materialize(operation.getOperand());
+                emit(IINC, operation.getOperand(), operation.getSecondOperand(), 0);
+            // ifxx
+            } else if (opcode >= 0x99 && opcode <= 0x9e) {
+                final int a = stack[--size];
+                flush();
+                branch(opcode, a, 0, operation.getOperand());
+            // if_icmpxx
+            } else if (opcode >= 0x9f && opcode <= 0xa4) {
+                final int b = stack[--size];
+                final int a = stack[--size];
+                flush();
+                branch(opcode, a, b, operation.getOperand());
+            // goto goto_w
+            } else if (opcode == 0xa7 || opcode == 0xc8) {
+                flush();
+                branch(GOTO, 0, 0, operation.getOperand());
+                return false;
+            // [i|l|f|d]return
+            } else if (opcode >= 0xac && opcode <= 0xaf) {
+                emit(RETURN, stack[--size], 0, 0);
+                return false;
+            // return
+            } else if (opcode == 0xb1) {
+                emit(RETURN_VOID, 0, 0, 0);
+                return false;
+            // invokestatic
+            } else if (opcode == 0xb8) {
+                Method target = runtimeConstantPool.dereferenceMethod(operation.getOperand());
+                CallSite callSite = new CallSite();
+                callSite.code = RegisterInterpreter.translate(target, translated);
+                callSite.arguments = new int[target.getArgumentTypes().length];
+                for (int i = callSite.arguments.length - 1; i >= 0; --i) {
+                    callSite.arguments[i] = stack[--size];
+                }
+                callSites.add(callSite);
+                if (target.getReturnType().equals("V")) {
+                    emit(CALL, -1, callSites.size() - 1, 0);
+                } else {
+                    produce(CALL, callSites.size() - 1, 0);
+                }
+            }
+            return true;
+        }
+
+        private int stackRegister(int index) {
+            return method.getMaxLocals() + index;
+        }
+
+        private int constantRegister(long value) {
+            Integer register = constants.get(value);
+            if (register == null) {
+                register = method.getMaxLocals() + method.getMaxStack() + constants.size();
+                constants.put(value, register);
+            }
+            return register;
+        }
+
+        private void push(int register) {
+            stack[size++] = register;
+        }
+
+        /**
+         * Emit a instruction which stores its result in the stack register of the next value, and push it.
+         */
+        private void produce(int opcode, int b, int c) {
+            final int a = stackRegister(size);
+            emit(opcode, a, b, c);
+            producer = length - 4;
+            push(a);
+        }
+
+        /**
+         * Store the top value to a local variable, the instruction which produces the value stores it directly if
+         * it is the last instruction.
+         */
+        private void store(int local) {
+            final int value = stack[--size];
+            materialize(local);
+            if (producer == length - 4 && label != length && instructions[producer + 1] == value
+                    && value == stackRegister(size)) {
+                instructions[producer + 1] = local;
+            } else {
+                emit(MOVE, local, value, 0);
+            }
+        }
+
+        /**
+         * Move the values which are the register of a local variable to their own stack registers, because the local
+         * variable is going to be changed.
+         */
+        private void materialize(int local) {
+            for (int i = 0; i < size; ++i) {
+                if (stack[i] == local) {
+                    emit(MOVE, stackRegister(i), local, 0);
+                    stack[i] = stackRegister(i);
+                }
+            }
+        }
+
+        /**
+         * Move every value to its own stack register.
+         */
+        private void flush() {
+            for (int i = 0; i < size; ++i) {
+                if (stack[i] != stackRegister(i)) {
+                    emit(MOVE, stackRegister(i), stack[i], 0);
+                    stack[i] = stackRegister(i);
+                }
+            }
+        }
+
+        private void branch(int opcode, int a, int b, int target) {
+            emit(opcode, a, b, target);
+            fixups.add(length - 1);
+        }
+
+        private void emit(int opcode, int a, int b, int c) {
+            if (length + 4 > instructions.length) {
+                instructions = Arrays.copyOf(instructions, instructions.length * 2);
+            }
+            instructions[length++] = opcode;
+            instructions[length++] = a;
+            instructions[length++] = b;
+            instructions[length++] = c;
+        }
+    }
+}
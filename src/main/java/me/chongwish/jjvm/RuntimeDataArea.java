@@ -1,13 +1,18 @@
 package me.chongwish.jjvm;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Deque;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Runtime data areas for java.
@@ -57,154 +62,1322 @@ final class RuntimeDataArea {
          */
         private JavaStack javaStack = new JavaStack();
 
+        /**
+         * Native Method Stack
+         */
+        private NativeMethodStack nativeMethodStack = new NativeMethodStack(this);
+
         public int getPcRegister() {
             return pcRegister;
         }
 
-        public JavaStack getJavaStack() {
-            return javaStack;
+        public JavaStack getJavaStack() {
+            return javaStack;
+        }
+
+        public NativeMethodStack getNativeMethodStack() {
+            return nativeMethodStack;
+        }
+
+        /**
+         * Create a instance of class `ThreadResource` for a thread. Every thread only can hold one instance.
+         */
+        public static void createThreadResource() {
+            long currentId = Thread.currentThread().getId();
+            if (!_threadResourceCache.containsKey(currentId)) {
+                ThreadResource threadResource = new ThreadResource();
+                _threadResourceCache.put(Thread.currentThread().getId(), threadResource);
+            }
+        }
+    }
+
+    /**
+     * Class JavaStack is used to store Frame of methods. The spec of java said that
+     * a StackOverflowError or a OutOfMemoryError was happend when memory was
+     * insuffient. A frame which makes the java stack larger than the max size is
+     * not pushed, and the invoker throws a StackOverflowError, but a
+     * OutOfMemoryError is ignored.
+     */
+    final public static class JavaStack {
+        /**
+         * The size of a slot of a frame, a int and a reference.
+         */
+        public static final int SLOT_SIZE = 8;
+
+        /**
+         * The size of the other data of a frame.
+         */
+        public static final int FRAME_SIZE = 64;
+
+        public static final long DEFAULT_MAX_SIZE = 1024 * 1024;
+
+        /**
+         * The size which the java stack can be larger than the max size by when it is reserved.
+         */
+        public static final long RESERVED_SIZE = 64 * 1024;
+
+        /**
+         * The max quantity of the frames which a backtrace records.
+         */
+        public static final int MAX_BACKTRACE_DEPTH = 1024;
+
+        /**
+         * The max size of the java stack of every thread, it is set by {@code -Xss}.
+         */
+        private static volatile long maxSize = DEFAULT_MAX_SIZE;
+
+        public static long getMaxSize() {
+            return maxSize;
+        }
+
+        public static void setMaxSize(long maxSize) {
+            JavaStack.maxSize = maxSize;
+        }
+
+        private Deque<Frame> stack = new ArrayDeque<>();
+
+        /**
+         * The first segment of the slots of the frames.
+         */
+        private Frame.Segment segment = new Frame.Segment(0, Frame.Segment.SIZE);
+
+        /**
+         * The dropped frames. Their slots are in the segments, so any of them can be reused by any method.
+         */
+        private Deque<Frame> pool = new ArrayDeque<>();
+
+        /**
+         * The quantity of the frames up to the transition frame of the current upcall, the java stack looks empty
+         * when the frames above it are all popped.
+         */
+        private int floor;
+
+        /**
+         * The java stack can be larger than the max size, when the jvm makes a StackOverflowError whose class may be
+         * initialized on it.
+         */
+        private boolean reserved;
+
+        public Frame.Segment getSegment() {
+            return segment;
+        }
+
+        public void push(Frame frame) {
+            stack.push(frame);
+        }
+
+        /**
+         * Push a frame of the method invoked by the caller, a dropped frame is reused if there is one.
+         *
+         * @param method
+         *        a instance of class {@code Method}
+         * @param caller
+         *        the current frame which invokes the method
+         * @param argumentSize
+         *        the quantity of the slots of the arguments
+         * @return the pushed frame, or {@code null} if the java stack would be larger than the max size
+         */
+        public Frame push(MethodArea.Method method, Frame caller, int argumentSize) {
+            if ((long)caller.stackSizeOf(method, argumentSize) * SLOT_SIZE + (stack.size() + 1L) * FRAME_SIZE
+                    > (reserved ? maxSize + RESERVED_SIZE : maxSize)) {
+                return null;
+            }
+
+            Frame frame = pool.poll();
+            if (frame == null) {
+                frame = new Frame(method, caller, argumentSize);
+            } else {
+                frame.reuse(method, caller, argumentSize);
+            }
+            stack.push(frame);
+            return frame;
+        }
+
+        /**
+         * Pop the current frame. The frame is dropped to be reused, so it is only valid until the next frame is pushed.
+         */
+        public Frame pop() {
+            final Frame frame = stack.pop();
+            pool.push(frame);
+            return frame;
+        }
+
+        public void clear() {
+            stack.clear();
+        }
+
+        /**
+         * Push a transition frame above the current frame, a dropped frame is reused if there is one.
+         *
+         * @param threadResource
+         *        the instance of class {@code ThreadResource} which owns the java stack
+         * @param size
+         *        the quantity of the slots of the operand stack
+         * @return the pushed frame
+         * @see Frame#transit(Frame, int)
+         */
+        public Frame pushTransition(ThreadResource threadResource, int size) {
+            Frame frame = pool.poll();
+            if (frame == null) {
+                frame = new Frame(threadResource, stack.peek(), size);
+            } else {
+                frame.transit(stack.peek(), size);
+            }
+            stack.push(frame);
+            return frame;
+        }
+
+        /**
+         * Is every frame of the current upcall popped.
+         */
+        public boolean isEmpty() {
+            return stack.size() == floor;
+        }
+
+        public Frame current() {
+            return stack.peek();
+        }
+
+        public int size() {
+            return stack.size();
+        }
+
+        public int getFloor() {
+            return floor;
+        }
+
+        public void setFloor(int floor) {
+            this.floor = floor;
+        }
+
+        public boolean isReserved() {
+            return reserved;
+        }
+
+        public void setReserved(boolean reserved) {
+            this.reserved = reserved;
+        }
+
+        /**
+         * Capture the backtrace of a throwable from the current frames. The frames of
+         * {@code Throwable.fillInStackTrace} and of the constructors of the throwable are not recorded.
+         * 
+         * @param throwable
+         *        the instance of the throwable
+         * @return a instance of class {@code Backtrace}
+         */
+        public Backtrace backtrace(Heap.Instance throwable) {
+            Iterator<Frame> frames = stack.iterator();
+            Frame frame = frames.hasNext() ? frames.next() : null;
+            int skipped = 0;
+            while (frame != null && !frame.isTransition() && frame.getMethod().getName().equals("fillInStackTrace")) {
+                frame = frames.hasNext() ? frames.next() : null;
+                ++skipped;
+            }
+            while (frame != null && !frame.isTransition() && frame.getMethod().getName().equals("<init>")
+                    && throwable.isInstanceOf(frame.getMethod().getClazz())) {
+                frame = frames.hasNext() ? frames.next() : null;
+                ++skipped;
+            }
+
+            // the transition frames of the upcalls are not recorded
+            Backtrace backtrace = new Backtrace(Math.min(stack.size() - skipped, MAX_BACKTRACE_DEPTH));
+            int depth = 0;
+            for (; frame != null && depth < backtrace.methods.length; frame = frames.hasNext() ? frames.next() : null) {
+                if (!frame.isTransition()) {
+                    backtrace.methods[depth] = frame.getMethod();
+                    backtrace.pcs[depth] = frame.getBytecode().getCurrentPc();
+                    ++depth;
+                }
+            }
+            if (depth < backtrace.methods.length) {
+                backtrace.methods = Arrays.copyOf(backtrace.methods, depth);
+                backtrace.pcs = Arrays.copyOf(backtrace.pcs, depth);
+            }
+            return backtrace;
+        }
+
+        /**
+         * The methods and the pcs of the frames when a throwable is created, from the top frame. The stack trace
+         * elements are resolved from them only when they are required.
+         */
+        final public static class Backtrace {
+            private MethodArea.Method[] methods;
+            private int[] pcs;
+
+            private Backtrace(int depth) {
+                methods = new MethodArea.Method[depth];
+                pcs = new int[depth];
+            }
+
+            public int getDepth() {
+                return methods.length;
+            }
+
+            public MethodArea.Method getMethod(int index) {
+                return methods[index];
+            }
+
+            public int getPc(int index) {
+                return pcs[index];
+            }
+
+            public int getLineNumber(int index) {
+                return methods[index].getLineNumber(pcs[index]);
+            }
+        }
+    }
+
+    /**
+     * Class NativeMethodStack is used when the jvm or a native method calls a java method, such as a static
+     * initializer. The call is made on the java stack of the same thread: a transition frame is pushed above the
+     * current frame, and the frames above it are executed until they are all popped, so the backtrace of a exception
+     * still has the frames below it.
+     */
+    final public static class NativeMethodStack {
+        private ThreadResource threadResource;
+
+        /**
+         * The quantity of the nested calls.
+         */
+        private int depth;
+
+        public NativeMethodStack(ThreadResource threadResource) {
+            this.threadResource = threadResource;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Call a java method on the java stack of the thread.
+         *
+         * @param method
+         *        a instance of class {@code Method}
+         * @param arguments
+         *        the arguments, the receiver of a instance method is the first one
+         * @return the return value, or {@code null} if the method returns void
+         */
+        public Object call(MethodArea.Method method, Object... arguments) {
+            MethodArea.Signature signature = method.getSignature();
+            JavaStack javaStack = threadResource.getJavaStack();
+            final int floor = javaStack.getFloor();
+
+            Frame transition = javaStack.pushTransition(threadResource, Math.max(signature.getArgumentSize(), 2));
+            Frame.OperandStack operandStack = transition.getOperandStack();
+            for (Object argument : arguments) {
+                operandStack.push(argument);
+            }
+
+            javaStack.setFloor(javaStack.size());
+            ++depth;
+            try {
+                if (method.getClassfileMethod().isNative()) {
+                    NativeMethod.run(method.getClazz().getClassName(), method.getName(), transition, operandStack);
+                } else if (javaStack.push(method, transition, signature.getArgumentSize()) == null) {
+                    // the transition frame is the caller of the method, just like the frame of a invoke instruction
+                    Instruction.Helper.throwException(transition,
+                            Instruction.Helper.makeThrowable(transition, "java/lang/StackOverflowError"));
+                } else {
+                    Interpreter.execute(threadResource);
+                }
+
+                switch (signature.getReturnKind()) {
+                    case 'V':
+                        return null;
+                    case 'J':
+                        return operandStack.popLong();
+                    case 'D':
+                        return operandStack.popDouble();
+                    case 'F':
+                        return operandStack.popFloat();
+                    case 'L':
+                        return operandStack.pop();
+                    default:
+                        return operandStack.popInt();
+                }
+            } finally {
+                // a uncaught exception leaves the frames of the call
+                while (javaStack.size() >= javaStack.getFloor()) {
+                    javaStack.pop();
+                }
+                javaStack.setFloor(floor);
+                --depth;
+            }
+        }
+    }
+
+    /**
+     * A logic data structure for discribing a java heap.
+     * <p>
+     * A instance is kept by the host heap, or by the managed space out of the host heap when it is set:
+     * <p>
+     * {@code Heap.setSpace(new Heap.Space(64 * 1024 * 1024));}
+     */
+    final public static class Heap {
+        /**
+         * The managed space which the new instances are allocated in, it is null when the instances are in the host
+         * heap.
+         */
+        private static volatile Space space;
+
+        public static Space getSpace() {
+            return space;
+        }
+
+        public static void setSpace(Space space) {
+            Heap.space = space;
+        }
+
+        /**
+         * A logic data structure for discribing a java instance.
+         * <p>
+         * <b>Example:</b>
+         * <p>
+         * A java instance:
+         * <p>
+         * {@code User user = new User();}
+         * <p>
+         * {@code user.name = "chongwish";}
+         * <p>
+         * A instance of Class {@code Instance}:
+         * <p>
+         * {@code Instance userInstance = ...;}
+         * <p>
+         * {@code userInstance.setReference(nameSlot, "chongwish");}
+         * <p>
+         * The fields are kept by the host heap, see {@link HostInstance}, or by a managed space, see
+         * {@link ManagedInstance}.
+         */
+        public abstract static class Instance {
+            public abstract MethodArea.Clazz getClazz();
+
+            /**
+             * Get the real class name of a instance of java class {@code Class}, it is the class name of this instance
+             * for the others.
+             */
+            public String getTargetClazzName() {
+                return getClazz().getClassName();
+            }
+
+            /**
+             * Get the raw bits of a primitive slot.
+             */
+            public abstract long getPrimitive(int slot);
+
+            public abstract void setPrimitive(int slot, long value);
+
+            public abstract Object getReference(int slot);
+
+            public abstract void setReference(int slot, Object value);
+
+            /**
+             * Get the value of a instance field, a primitive value is boxed.
+             */
+            public Object getValue(MethodArea.Field field) {
+                if (field.isReference()) {
+                    return getReference(field.getSlot());
+                }
+                return MethodArea.Field.box(field.getType(), getPrimitive(field.getSlot()));
+            }
+
+            /**
+             * Set the value of a instance field, a primitive value is unboxed.
+             */
+            public void setValue(MethodArea.Field field, Object value) {
+                if (field.isReference()) {
+                    setReference(field.getSlot(), value);
+                } else {
+                    setPrimitive(field.getSlot(), MethodArea.Field.unbox(field.getType(), value));
+                }
+            }
+
+            /**
+             * Get a instance field of its class by the given information.
+             * 
+             * @param name
+             *        field name
+             * @param descriptor
+             *        field descriptor
+             * @return a instance of class {@code Field}
+             */
+            public MethodArea.Field findField(String name, String descriptor) {
+                return getClazz().findInstanceField(name, descriptor);
+            }
+
+            /**
+             * Just like the java operator {@code instanceof}.
+             * 
+             * @param otherClazz
+             *        target class type
+             * @return is this instance the target class type
+             */
+            public boolean isInstanceOf(MethodArea.Clazz otherClazz) {
+                return getClazz().lookLike(otherClazz);
+            }
+
+            /**
+             * Convert java class {@code java/lang/String} to a string.
+             */
+            public String toString() {
+                MethodArea.Clazz clazz = getClazz();
+                if (clazz.className.equals("java/lang/String")) {
+                    Heap.ArrayInstance valueInstance = null;
+                    int coder = 0;
+                    for (MethodArea.Field stringField : clazz.getInstanceFields()) {
+                        if (stringField.getName().equals("value")) {
+                            valueInstance = (Heap.ArrayInstance)getValue(stringField);
+                        } else if (stringField.getName().equals("coder")) {
+                            coder = (int)getValue(stringField);
+                        }
+                    }
+
+                    // java 8- keeps the chars, java 9+ keeps latin1 or big endian utf16 bytes by the coder
+                    char[] chars;
+                    if (valueInstance.getArrayClazz().getArrayClazzName().equals("[C")) {
+                        chars = new char[valueInstance.getSize()];
+                        for (int i = 0; i < chars.length; ++i) {
+                            chars[i] = valueInstance.getChar(i);
+                        }
+                    } else {
+                        chars = new char[valueInstance.getSize() >> coder];
+                        for (int i = 0; i < chars.length; ++i) {
+                            chars[i] = coder == 0 ? (char)(valueInstance.getByte(i) & 0xff)
+                                    : (char)((valueInstance.getByte(i << 1) & 0xff) << 8
+                                            | valueInstance.getByte((i << 1) + 1) & 0xff);
+                        }
+                    }
+
+                    return String.valueOf(chars);
+                }
+                return super.toString();
+            }
+        }
+
+        /**
+         * A java instance whose fields are kept by the host heap.
+         */
+        public static class HostInstance extends Instance {
+            private MethodArea.Clazz clazz;
+
+            /**
+             * The values of the primitive instance fields by the slots of the layout of its class, the fields of the
+             * super classes are included. A float or a double is kept as its raw bits.
+             */
+            private long[] primitives;
+
+            /**
+             * The values of the reference instance fields by the slots of the layout of its class.
+             */
+            private Object[] references;
+
+            /**
+             * This field will point to the real class name.
+             * <p>
+             * <b>Example:</b>
+             * <p>
+             * {@code Class<String>} will be:
+             * <ul>
+             * <li>field {@code clazz}: {@code Class}</li>
+             * <li>field {@code targetClazzName}: {@code "java/lang/String"}</li>
+             * </ul>
+             * Another {@code List<String>} will be:
+             * <ul>
+             * <li>field {@code clazz}: {@code List}</li>
+             * <li>field {@code targetClazzName}: {@code "java/util/List"}</li>
+             * </ul>
+             */
+            private String targetClazzName;
+
+            @Override
+            public MethodArea.Clazz getClazz() {
+                return clazz;
+            }
+
+            @Override
+            public String getTargetClazzName() {
+                return targetClazzName;
+            }
+
+            @Override
+            public long getPrimitive(int slot) {
+                return primitives[slot];
+            }
+
+            @Override
+            public void setPrimitive(int slot, long value) {
+                primitives[slot] = value;
+            }
+
+            @Override
+            public Object getReference(int slot) {
+                return references[slot];
+            }
+
+            @Override
+            public void setReference(int slot, Object value) {
+                references[slot] = value;
+            }
+        }
+
+        /**
+         * A java instance whose header and fields are kept by a managed space, the instance itself is only the handle
+         * of its address.
+         */
+        public static class ManagedInstance extends Instance {
+            private Space space;
+
+            private MethodArea.Clazz clazz;
+
+            private int address;
+
+            public Space getSpace() {
+                return space;
+            }
+
+            public int getAddress() {
+                return address;
+            }
+
+            @Override
+            public MethodArea.Clazz getClazz() {
+                return clazz;
+            }
+
+            @Override
+            public long getPrimitive(int slot) {
+                return space.memory.getLong(address + Space.HEADER_SIZE + (slot << 3));
+            }
+
+            @Override
+            public void setPrimitive(int slot, long value) {
+                space.memory.putLong(address + Space.HEADER_SIZE + (slot << 3), value);
+            }
+
+            @Override
+            public Object getReference(int slot) {
+                return space.load(address + Space.HEADER_SIZE + (clazz.primitiveSize << 3) + (slot << 2));
+            }
+
+            @Override
+            public void setReference(int slot, Object value) {
+                space.store(address + Space.HEADER_SIZE + (clazz.primitiveSize << 3) + (slot << 2), value);
+            }
+
+            /**
+             * The hash is kept by the header, so it is the same after the instance moves.
+             */
+            @Override
+            public int hashCode() {
+                return space.hashOf(address);
+            }
+        }
+
+        /**
+         * A logic data structure for discribing a managed space of the java instances and arrays, which is a direct
+         * buffer out of the host heap.
+         * <p>
+         * <b>Layout of a instance:</b>
+         * <ul>
+         * <li>header: class id, handle id, hash and lock word, a int for each</li>
+         * <li>primitive slots: 8 bytes for each, a float or a double is kept as its raw bits</li>
+         * <li>reference slots: 4 bytes for each</li>
+         * </ul>
+         * <b>Layout of a array:</b>
+         * <ul>
+         * <li>header: the same as a instance's, the class id is the complement of the array class id</li>
+         * <li>length: a int, and 4 bytes of padding</li>
+         * <li>elements: the size of the component type for each, 1 byte for a boolean, 4 bytes for a reference</li>
+         * </ul>
+         * A instance is aligned to 8 bytes. A reference keeps the address of a managed instance, 0 for null, or the
+         * negative index of a foreign object in the foreign table, such as a instance of the host heap.
+         * <p>
+         * The handle id in the header finds the handle of the address, which is the only instance of class
+         * {@code ManagedInstance} or {@code ManagedArrayInstance} of it, so the java operator {@code ==} still works.
+         * The handle table does not keep a handle alive, a new handle is made when the old one is gone.
+         * <p>
+         * The garbage is collected by mark-compact, see {@link #collect()}.
+         */
+        public static class Space {
+            final public static int HEADER_SIZE = 16;
+            final public static int CLASS_OFFSET = 0;
+            final public static int HANDLE_OFFSET = 4;
+            final public static int HASH_OFFSET = 8;
+            final public static int LOCK_OFFSET = 12;
+            final public static int LENGTH_OFFSET = 16;
+            final public static int ARRAY_HEADER_SIZE = 24;
+
+            /**
+             * The address is a int, and the address 0 is null.
+             */
+            final public static long MAX_CAPACITY = Integer.MAX_VALUE & ~7;
+
+            private ByteBuffer memory;
+
+            /**
+             * The address of the next instance.
+             */
+            private int top = 8;
+
+            /**
+             * The classes and the array classes by their class ids.
+             */
+            private List<MethodArea.Clazz> clazzes = new ArrayList<>();
+            private Map<MethodArea.Clazz, Integer> clazzIds = new IdentityHashMap<>();
+            private List<MethodArea.ArrayClazz> arrayClazzes = new ArrayList<>();
+            private Map<MethodArea.ArrayClazz, Integer> arrayClazzIds = new IdentityHashMap<>();
+
+            /**
+             * The handles by their handle ids.
+             */
+            private WeakReference<?>[] handles = new WeakReference<?>[1024];
+            private int handleCount;
+
+            /**
+             * The objects which are not kept by this space but referenced by it.
+             */
+            private Object[] foreigns = new Object[64];
+            private int foreignCount;
+            private Map<Object, Integer> foreignIndexes = new IdentityHashMap<>();
+
+            private int seed = 0x2545f491;
+
+            /**
+             * Quantity of the collections.
+             */
+            private int collections;
+
+            /**
+             * The state of a collection: the mark bits by the addresses, the marked foreign indexes and their new
+             * indexes, the visited objects of the host heap, and the instances and the host objects which are marked
+             * but not scanned.
+             */
+            private BitSet marks;
+            private BitSet foreignMarks;
+            private int[] foreignForwards;
+            private Map<Object, Boolean> visited;
+            private Deque<Object> grays;
+
+            public Space(long capacity) {
+                if (capacity <= 0 || capacity > MAX_CAPACITY) {
+                    throw new RuntimeException("Managed heap can not be " + capacity + " bytes.");
+                }
+                memory = ByteBuffer.allocateDirect((int)capacity).order(ByteOrder.nativeOrder());
+            }
+
+            public int getCapacity() {
+                return memory.capacity();
+            }
+
+            /**
+             * Quantity of the bytes which are allocated.
+             */
+            public int getUsed() {
+                return top;
+            }
+
+            public int getCount() {
+                return handleCount;
+            }
+
+            public int getCollections() {
+                return collections;
+            }
+
+            /**
+             * Quantity of the bytes of a instance of the given class.
+             */
+            public static int sizeOf(MethodArea.Clazz clazz) {
+                return HEADER_SIZE + (clazz.primitiveSize << 3) + (clazz.referenceSize << 2) + 7 & ~7;
+            }
+
+            /**
+             * Quantity of the bytes of a array of the given array class and length, it may be larger than a int.
+             */
+            public static long sizeOf(MethodArea.ArrayClazz arrayClazz, int length) {
+                return ARRAY_HEADER_SIZE + ((long)length << shiftOf(arrayClazz)) + 7 & ~7L;
+            }
+
+            /**
+             * Get the log2 of the size of a element of the given array class.
+             */
+            public static int shiftOf(MethodArea.ArrayClazz arrayClazz) {
+                switch (arrayClazz.getArrayClazzName().charAt(1)) {
+                    case 'Z':
+                    case 'B':
+                        return 0;
+                    case 'C':
+                    case 'S':
+                        return 1;
+                    case 'J':
+                    case 'D':
+                        return 3;
+                    default:
+                        return 2;
+                }
+            }
+
+            private static boolean isReferenceArray(MethodArea.ArrayClazz arrayClazz) {
+                final char type = arrayClazz.getArrayClazzName().charAt(1);
+                return type == 'L' || type == '[';
+            }
+
+            /**
+             * Allocate a instance of the given class, all its fields are zero.
+             */
+            public synchronized ManagedInstance allocate(MethodArea.Clazz clazz) {
+                final int size = sizeOf(clazz);
+                if (top > memory.capacity() - size) {
+                    throw new RuntimeException("Managed heap is exhausted by a instance of " + clazz.getClassName()
+                            + ", " + top + " of " + memory.capacity() + " bytes are used.");
+                }
+
+                Integer clazzId = clazzIds.get(clazz);
+                if (clazzId == null) {
+                    clazzId = clazzes.size();
+                    clazzes.add(clazz);
+                    clazzIds.put(clazz, clazzId);
+                }
+
+                ManagedInstance instance = new ManagedInstance();
+                instance.space = this;
+                instance.clazz = clazz;
+                instance.address = top;
+                place(instance, clazzId, size);
+                return instance;
+            }
+
+            /**
+             * Allocate a array of the given array class and length, all its elements are zero.
+             */
+            public synchronized ManagedArrayInstance allocate(MethodArea.ArrayClazz arrayClazz, int length) {
+                final long size = sizeOf(arrayClazz, length);
+                if (top > memory.capacity() - size) {
+                    throw new RuntimeException("Managed heap is exhausted by a array of "
+                            + arrayClazz.getArrayClazzName() + ", " + top + " of " + memory.capacity()
+                            + " bytes are used.");
+                }
+
+                Integer arrayClazzId = arrayClazzIds.get(arrayClazz);
+                if (arrayClazzId == null) {
+                    arrayClazzId = arrayClazzes.size();
+                    arrayClazzes.add(arrayClazz);
+                    arrayClazzIds.put(arrayClazz, arrayClazzId);
+                }
+
+                ManagedArrayInstance arrayInstance = new ManagedArrayInstance();
+                arrayInstance.space = this;
+                arrayInstance.arrayClazz = arrayClazz;
+                arrayInstance.address = top;
+                arrayInstance.size = length;
+                place(arrayInstance, ~arrayClazzId, (int)size);
+                memory.putInt(arrayInstance.address + LENGTH_OFFSET, length);
+                return arrayInstance;
+            }
+
+            /**
+             * Zero the bytes at the top and write the header of a handle there.
+             */
+            private void place(Object handle, int clazzId, int size) {
+                if (handleCount == handles.length) {
+                    handles = Arrays.copyOf(handles, handleCount << 1);
+                }
+                handles[handleCount] = new WeakReference<>(handle);
+
+                for (int i = 0; i < size; i += 8) {
+                    memory.putLong(top + i, 0);
+                }
+                memory.putInt(top + CLASS_OFFSET, clazzId);
+                memory.putInt(top + HANDLE_OFFSET, handleCount++);
+                top += size;
+            }
+
+            /**
+             * Get the object which a reference slot references.
+             */
+            public Object load(int slotAddress) {
+                final int reference = memory.getInt(slotAddress);
+                if (reference > 0) {
+                    final Object handle = handles[memory.getInt(reference + HANDLE_OFFSET)].get();
+                    return handle != null ? handle : revive(reference);
+                }
+                return reference == 0 ? null : foreigns[-reference - 1];
+            }
+
+            /**
+             * Make a new handle of a address whose old handle is gone.
+             */
+            private synchronized Object revive(int address) {
+                final int handleId = memory.getInt(address + HANDLE_OFFSET);
+                Object handle = handles[handleId].get();
+                if (handle == null) {
+                    final int clazzId = memory.getInt(address + CLASS_OFFSET);
+                    if (clazzId >= 0) {
+                        ManagedInstance instance = new ManagedInstance();
+                        instance.space = this;
+                        instance.clazz = clazzes.get(clazzId);
+                        instance.address = address;
+                        handle = instance;
+                    } else {
+                        ManagedArrayInstance arrayInstance = new ManagedArrayInstance();
+                        arrayInstance.space = this;
+                        arrayInstance.arrayClazz = arrayClazzes.get(~clazzId);
+                        arrayInstance.address = address;
+                        arrayInstance.size = memory.getInt(address + LENGTH_OFFSET);
+                        handle = arrayInstance;
+                    }
+                    handles[handleId] = new WeakReference<>(handle);
+                }
+                return handle;
+            }
+
+            /**
+             * Make a reference slot reference the given object.
+             */
+            public void store(int slotAddress, Object value) {
+                if (value == null) {
+                    memory.putInt(slotAddress, 0);
+                } else if (value instanceof ManagedInstance && ((ManagedInstance)value).space == this) {
+                    memory.putInt(slotAddress, ((ManagedInstance)value).address);
+                } else if (value instanceof ManagedArrayInstance && ((ManagedArrayInstance)value).space == this) {
+                    memory.putInt(slotAddress, ((ManagedArrayInstance)value).address);
+                } else {
+                    memory.putInt(slotAddress, -indexOfForeign(value) - 1);
+                }
+            }
+
+            /**
+             * Get the index of a foreign object in the foreign table. The instances and the arrays of this space never
+             * come here, so it is only for the rare ones, such as a instance of java class {@code Class}.
+             */
+            private synchronized int indexOfForeign(Object value) {
+                Integer index = foreignIndexes.get(value);
+                if (index == null) {
+                    if (foreignCount == foreigns.length) {
+                        foreigns = Arrays.copyOf(foreigns, foreignCount << 1);
+                    }
+                    index = foreignCount++;
+                    foreigns[index] = value;
+                    foreignIndexes.put(value, index);
+                }
+                return index;
+            }
+
+            /**
+             * Get the hash of a instance, it is generated by a xorshift when it is required at the first time.
+             */
+            public synchronized int hashOf(int address) {
+                int hash = memory.getInt(address + HASH_OFFSET);
+                if (hash == 0) {
+                    while (hash == 0) {
+                        seed ^= seed << 13;
+                        seed ^= seed >>> 17;
+                        seed ^= seed << 5;
+                        hash = seed & Integer.MAX_VALUE;
+                    }
+                    memory.putInt(address + HASH_OFFSET, hash);
+                }
+                return hash;
+            }
+
+            /**
+             * Get the class of a instance by the class id in its header.
+             */
+            public MethodArea.Clazz clazzOf(int address) {
+                return clazzes.get(memory.getInt(address + CLASS_OFFSET));
+            }
+
+            /**
+             * Quantity of the bytes of the instance or the array at the given address.
+             */
+            private int sizeAt(int address) {
+                final int clazzId = memory.getInt(address + CLASS_OFFSET);
+                if (clazzId >= 0) {
+                    return sizeOf(clazzes.get(clazzId));
+                }
+                return (int)sizeOf(arrayClazzes.get(~clazzId), memory.getInt(address + LENGTH_OFFSET));
+            }
+
+            /**
+             * Get the address of the first reference slot of the instance or the array at the given address.
+             */
+            private int referencesAt(int address) {
+                final int clazzId = memory.getInt(address + CLASS_OFFSET);
+                if (clazzId >= 0) {
+                    return address + HEADER_SIZE + (clazzes.get(clazzId).primitiveSize << 3);
+                }
+                return address + ARRAY_HEADER_SIZE;
+            }
+
+            /**
+             * Quantity of the reference slots of the instance or the array at the given address.
+             */
+            private int referenceCountAt(int address) {
+                final int clazzId = memory.getInt(address + CLASS_OFFSET);
+                if (clazzId >= 0) {
+                    return clazzes.get(clazzId).referenceSize;
+                }
+                return isReferenceArray(arrayClazzes.get(~clazzId)) ? memory.getInt(address + LENGTH_OFFSET) : 0;
+            }
+
+            /**
+             * Make room for a instance of the given size, the garbage is collected if the rest of the space is not
+             * enough. A sixteenth of the space is kept for the instances which are allocated by the jvm itself, such as
+             * a thrown error or a string, they never collect the garbage.
+             * <p>
+             * It must be called at a safepoint: every instance which the thread holds is in its java stack.
+             * 
+             * @param size
+             *        quantity of the bytes of the instance
+             * @param kept
+             *        can the kept room be used
+             * @return is there room for the instance
+             */
+            public synchronized boolean reserve(long size, boolean kept) {
+                final long limit = memory.capacity() - (kept ? 0 : memory.capacity() >> 4) - size;
+                if (top > limit) {
+                    collect();
+                }
+                return top <= limit;
+            }
+
+            /**
+             * Collect the garbage by mark-compact. It must be called at a safepoint.
+             * <p>
+             * The roots are the java stacks of the threads, the static fields and the class instances of the classes,
+             * and the interned strings. A instance which is not marked from them is garbage. The marked instances slide
+             * to the beginning of the space in their order, the forwarding address of a instance is kept by its lock
+             * word during the collection. Then the handle of a instance holds its new address, and the handle of the
+             * garbage is dropped.
+             */
+            public synchronized void collect() {
+                marks = new BitSet(top >> 3);
+                foreignMarks = new BitSet(foreignCount);
+                visited = new IdentityHashMap<>();
+                grays = new ArrayDeque<>();
+                try {
+                    markRoots();
+                    final int newTop = forward();
+                    relocate();
+                    slide();
+                    top = newTop;
+                    ++collections;
+                } finally {
+                    marks = null;
+                    foreignMarks = null;
+                    foreignForwards = null;
+                    visited = null;
+                    grays = null;
+                }
+            }
+
+            private void markRoots() {
+                for (ThreadResource threadResource : _threadResourceCache.values()) {
+                    for (Frame frame : threadResource.getJavaStack().stack) {
+                        frame.forEachReference(this::mark);
+                    }
+                }
+                for (MethodArea.Clazz clazz : MethodArea._clazzCache.values()) {
+                    for (Object reference : clazz.staticReferences) {
+                        mark(reference);
+                    }
+                    mark(clazz.clazzInstance);
+                }
+                for (MethodArea.ArrayClazz arrayClazz : MethodArea._arrayClazzCache.values()) {
+                    mark(arrayClazz.clazzInstance);
+                }
+                for (Instance instance : MethodArea._stringCache.values()) {
+                    mark(instance);
+                }
+
+                while (!grays.isEmpty()) {
+                    scan(grays.pop());
+                }
+            }
+
+            /**
+             * Mark a object which is referenced, a object which is not a instance or a array is ignored.
+             */
+            private void mark(Object object) {
+                if (object instanceof ManagedInstance) {
+                    ManagedInstance instance = (ManagedInstance)object;
+                    if (instance.space == this) {
+                        markAddress(instance.address);
+                    }
+                } else if (object instanceof ManagedArrayInstance) {
+                    ManagedArrayInstance arrayInstance = (ManagedArrayInstance)object;
+                    if (arrayInstance.space == this) {
+                        markAddress(arrayInstance.address);
+                    }
+                } else if ((object instanceof HostInstance || object instanceof HostArrayInstance)
+                        && visited.put(object, Boolean.TRUE) == null) {
+                    grays.push(object);
+                }
+            }
+
+            private void markAddress(int address) {
+                if (!marks.get(address >> 3)) {
+                    marks.set(address >> 3);
+                    grays.push(address);
+                }
+            }
+
+            /**
+             * Mark the objects which are referenced by a marked one.
+             */
+            private void scan(Object object) {
+                if (object instanceof Integer) {
+                    final int address = (int)object;
+                    final int base = referencesAt(address);
+                    final int count = referenceCountAt(address);
+                    for (int i = 0; i < count; ++i) {
+                        final int reference = memory.getInt(base + (i << 2));
+                        if (reference > 0) {
+                            markAddress(reference);
+                        } else if (reference < 0) {
+                            foreignMarks.set(-reference - 1);
+                            mark(foreigns[-reference - 1]);
+                        }
+                    }
+                } else if (object instanceof HostArrayInstance) {
+                    Object fields = ((HostArrayInstance)object).getFields();
+                    if (fields instanceof Object[]) {
+                        for (Object element : (Object[])fields) {
+                            mark(element);
+                        }
+                    }
+                } else {
+                    for (Object reference : ((HostInstance)object).references) {
+                        mark(reference);
+                    }
+                }
+            }
+
+            /**
+             * Compute the forwarding address of every marked instance, and drop the foreign objects which are not
+             * marked.
+             * 
+             * @return the top of the space after the collection
+             */
+            private int forward() {
+                int free = 8;
+                for (int address = 8, size; address < top; address += size) {
+                    size = sizeAt(address);
+                    if (marks.get(address >> 3)) {
+                        memory.putInt(address + LOCK_OFFSET, free);
+                        free += size;
+                    }
+                }
+
+                foreignForwards = new int[foreignCount];
+                Object[] newForeigns = new Object[foreigns.length];
+                int newForeignCount = 0;
+                foreignIndexes.clear();
+                for (int i = 0; i < foreignCount; ++i) {
+                    if (foreignMarks.get(i)) {
+                        foreignIndexes.put(foreigns[i], newForeignCount);
+                        newForeigns[newForeignCount] = foreigns[i];
+                        foreignForwards[i] = newForeignCount++;
+                    }
+                }
+                foreigns = newForeigns;
+                foreignCount = newForeignCount;
+                return free;
+            }
+
+            /**
+             * Update the references of the marked instances to the forwarding addresses, and give the handles the new
+             * addresses.
+             */
+            private void relocate() {
+                WeakReference<?>[] newHandles = new WeakReference<?>[handles.length];
+                int newHandleCount = 0;
+                for (int address = 8, size; address < top; address += size) {
+                    size = sizeAt(address);
+                    final WeakReference<?> handleReference = handles[memory.getInt(address + HANDLE_OFFSET)];
+                    final Object handle = handleReference.get();
+                    if (!marks.get(address >> 3)) {
+                        // a dropped handle fails fast if it is used
+                        if (handle instanceof ManagedInstance) {
+                            ((ManagedInstance)handle).space = null;
+                        } else if (handle instanceof ManagedArrayInstance) {
+                            ((ManagedArrayInstance)handle).space = null;
+                        }
+                        continue;
+                    }
+
+                    final int base = referencesAt(address);
+                    final int count = referenceCountAt(address);
+                    for (int i = 0; i < count; ++i) {
+                        final int slot = base + (i << 2);
+                        final int reference = memory.getInt(slot);
+                        if (reference > 0) {
+                            memory.putInt(slot, memory.getInt(reference + LOCK_OFFSET));
+                        } else if (reference < 0) {
+                            memory.putInt(slot, -foreignForwards[-reference - 1] - 1);
+                        }
+                    }
+
+                    final int forwarding = memory.getInt(address + LOCK_OFFSET);
+                    if (handle instanceof ManagedInstance) {
+                        ((ManagedInstance)handle).address = forwarding;
+                    } else if (handle instanceof ManagedArrayInstance) {
+                        ((ManagedArrayInstance)handle).address = forwarding;
+                    }
+                    newHandles[newHandleCount] = handleReference;
+                    memory.putInt(address + HANDLE_OFFSET, newHandleCount++);
+                }
+                handles = newHandles;
+                handleCount = newHandleCount;
+            }
+
+            /**
+             * Move the marked instances to their forwarding addresses, a instance never moves to a higher address, so
+             * it is copied from its beginning.
+             */
+            private void slide() {
+                for (int address = 8, size; address < top; address += size) {
+                    size = sizeAt(address);
+                    if (marks.get(address >> 3)) {
+                        final int forwarding = memory.getInt(address + LOCK_OFFSET);
+                        for (int i = 0; i < size; i += 8) {
+                            memory.putLong(forwarding + i, memory.getLong(address + i));
+                        }
+                        memory.putInt(forwarding + LOCK_OFFSET, 0);
+                    }
+                }
+            }
         }
 
         /**
-         * Create a instance of class `ThreadResource` for a thread. Every thread only can hold one instance.
+         * A logic data structure for discribing a java array instance.
+         * <p>
+         * The elements are kept by the host heap, see {@link HostArrayInstance}, or by a managed space, see
+         * {@link ManagedArrayInstance}. A boolean array is a byte array, just like the instructions baload and
+         * bastore.
          */
-        public static void createThreadResource() {
-            long currentId = Thread.currentThread().getId();
-            if (!_threadResourceCache.containsKey(currentId)) {
-                ThreadResource threadResource = new ThreadResource();
-                _threadResourceCache.put(Thread.currentThread().getId(), threadResource);
-            }
-        }
-    }
+        public abstract static class ArrayInstance {
+            public abstract MethodArea.ArrayClazz getArrayClazz();
 
-    /**
-     * Class JavaStack is used to store Frame of methods. The spec of java said that
-     * a StackOverflowError or a OutOfMemoryError was happend when memory was
-     * insuffient. But I ignore that.
-     */
-    final public static class JavaStack {
-        private Deque<Frame> stack = new ArrayDeque<>();
+            public abstract int getSize();
 
-        public void push(Frame frame) {
-            stack.push(frame);
-        }
+            public abstract byte getByte(int index);
 
-        public Frame pop() {
-            return stack.pop();
-        }
+            public abstract void setByte(int index, byte value);
 
-        public void clear() {
-            stack.clear();
-        }
+            public abstract char getChar(int index);
 
-        public boolean isEmpty() {
-            return stack.isEmpty();
-        }
+            public abstract void setChar(int index, char value);
 
-        public Frame current() {
-            return stack.peek();
-        }
-    }
+            public abstract short getShort(int index);
 
-    // @todo
-    final public static class NativeMethodStack {}
+            public abstract void setShort(int index, short value);
 
-    /**
-     * A logic data structure for discribing a java heap.
-     */
-    final public static class Heap {
-        /**
-         * A logic data structure for discribing a java instance.
-         * <p>
-         * <b>Example:</b>
-         * <p>
-         * A java instance:
-         * <p>
-         * {@code User user = new User();}
-         * <p>
-         * {@code user.name = "chongwish";}
-         * <p>
-         * A instance of Class {@code Instance}:
-         * <p>
-         * {@code Instance userInstance = ...;}
-         * <p>
-         * {@code userInstance.fields[nameIndex] = "chongwish";}
-         */
-        public static class Instance extends MethodArea.FieldData {
-            private MethodArea.Clazz clazz;
+            public abstract int getInt(int index);
 
-            /**
-             * This field will point to the real class name.
-             * <p>
-             * <b>Example:</b>
-             * <p>
-             * {@code Class<String>} will be:
-             * <ul>
-             * <li>field {@code clazz}: {@code Class}</li>
-             * <li>field {@code targetClazzName}: {@code "java/lang/String"}</li>
-             * </ul>
-             * Another {@code List<String>} will be:
-             * <ul>
-             * <li>field {@code clazz}: {@code List}</li>
-             * <li>field {@code targetClazzName}: {@code "java/util/List"}</li>
-             * </ul>
-             */
-            private String targetClazzName;
+            public abstract void setInt(int index, int value);
 
-            private Instance parent;
+            public abstract long getLong(int index);
 
-            public MethodArea.Clazz getClazz() {
-                return clazz;
-            }
+            public abstract void setLong(int index, long value);
 
-            public String getTargetClazzName() {
-                return targetClazzName;
-            }
+            public abstract float getFloat(int index);
 
-            public Instance getParent() {
-                return parent;
-            }
+            public abstract void setFloat(int index, float value);
+
+            public abstract double getDouble(int index);
+
+            public abstract void setDouble(int index, double value);
+
+            public abstract Object getReference(int index);
+
+            public abstract void setReference(int index, Object value);
 
             /**
-             * Just like the java operator {@code instanceof}.
+             * Just like the java array operator `instanceof`.
              * 
              * @param otherClazz
              *        target class type
              * @return is this instance the target class type
              */
-            public boolean isInstanceOf(MethodArea.Clazz otherClazz) {
-                return clazz.lookLike(otherClazz);
+            public boolean isInstanceOf(String name) {
+                return getArrayClazz().lookLike(name);
             }
 
             /**
-             * Convert java class {@code java/lang/String} to a string.
+             * Just like {@code System.arraycopy}, the arrays have the same component type.
              */
-            public String toString() {
-                if (clazz.className.equals("java/lang/String")) {
-                    Heap.ArrayInstance charsInstance = null;
-                    for (MethodArea.Field stringField : this.getFields()) {
-                        if (stringField.getName().equals("value")) {
-                            charsInstance = (Heap.ArrayInstance)stringField.getValue();
-                            break;
+            public static void copy(ArrayInstance source, int sourceIndex, ArrayInstance target, int targetIndex,
+                    int length) {
+                if (source instanceof HostArrayInstance && target instanceof HostArrayInstance) {
+                    System.arraycopy(((HostArrayInstance)source).fields, sourceIndex,
+                            ((HostArrayInstance)target).fields, targetIndex, length);
+                    return;
+                }
+
+                if (length < 0 || sourceIndex < 0 || targetIndex < 0 || sourceIndex > source.getSize() - length
+                        || targetIndex > target.getSize() - length) {
+                    throw new RuntimeException("Array copy is out of the bounds of the arrays.");
+                }
+
+                // the elements of the same space are copied as bytes, a reference is the same in the space
+                if (source instanceof ManagedArrayInstance && target instanceof ManagedArrayInstance
+                        && ((ManagedArrayInstance)source).space == ((ManagedArrayInstance)target).space) {
+                    final ByteBuffer memory = ((ManagedArrayInstance)source).space.memory;
+                    final int shift = Space.shiftOf(source.getArrayClazz());
+                    final int from = ((ManagedArrayInstance)source).address + Space.ARRAY_HEADER_SIZE
+                            + (sourceIndex << shift);
+                    final int to = ((ManagedArrayInstance)target).address + Space.ARRAY_HEADER_SIZE
+                            + (targetIndex << shift);
+                    final int size = length << shift;
+                    if (from >= to) {
+                        for (int i = 0; i < size; ++i) {
+                            memory.put(to + i, memory.get(from + i));
+                        }
+                    } else {
+                        for (int i = size - 1; i >= 0; --i) {
+                            memory.put(to + i, memory.get(from + i));
                         }
                     }
+                    return;
+                }
 
-                    int[] ints = (int[])charsInstance.getFields();
-                    char[] chars = new char[ints.length];
-                    for (int i = 0; i < chars.length; ++i) {
-                        chars[i] = (char)ints[i];
+                for (int i = 0; i < length; ++i) {
+                    switch (source.getArrayClazz().getArrayClazzName().charAt(1)) {
+                        case 'Z':
+                        case 'B':
+                            target.setByte(targetIndex + i, source.getByte(sourceIndex + i));
+                            break;
+                        case 'C':
+                            target.setChar(targetIndex + i, source.getChar(sourceIndex + i));
+                            break;
+                        case 'S':
+                            target.setShort(targetIndex + i, source.getShort(sourceIndex + i));
+                            break;
+                        case 'I':
+                            target.setInt(targetIndex + i, source.getInt(sourceIndex + i));
+                            break;
+                        case 'J':
+                            target.setLong(targetIndex + i, source.getLong(sourceIndex + i));
+                            break;
+                        case 'F':
+                            target.setFloat(targetIndex + i, source.getFloat(sourceIndex + i));
+                            break;
+                        case 'D':
+                            target.setDouble(targetIndex + i, source.getDouble(sourceIndex + i));
+                            break;
+                        default:
+                            target.setReference(targetIndex + i, source.getReference(sourceIndex + i));
                     }
-
-                    return String.valueOf(chars);
                 }
-                return super.toString();
             }
         }
 
         /**
-         * A logic data structure for discribing a java array instance.
+         * A java array instance whose elements are kept by a host array.
          */
-        public static class ArrayInstance {
+        public static class HostArrayInstance extends ArrayInstance {
             private MethodArea.ArrayClazz arrayClazz;
 
             /**
@@ -226,6 +1399,7 @@ final class RuntimeDataArea {
              */
             private int size;
 
+            @Override
             public MethodArea.ArrayClazz getArrayClazz() {
                 return arrayClazz;
             }
@@ -238,19 +1412,209 @@ final class RuntimeDataArea {
                 this.fields = fields;
             }
 
+            @Override
+            public int getSize() {
+                return size;
+            }
+
+            @Override
+            public byte getByte(int index) {
+                return ((byte[])fields)[index];
+            }
+
+            @Override
+            public void setByte(int index, byte value) {
+                ((byte[])fields)[index] = value;
+            }
+
+            @Override
+            public char getChar(int index) {
+                return ((char[])fields)[index];
+            }
+
+            @Override
+            public void setChar(int index, char value) {
+                ((char[])fields)[index] = value;
+            }
+
+            @Override
+            public short getShort(int index) {
+                return ((short[])fields)[index];
+            }
+
+            @Override
+            public void setShort(int index, short value) {
+                ((short[])fields)[index] = value;
+            }
+
+            @Override
+            public int getInt(int index) {
+                return ((int[])fields)[index];
+            }
+
+            @Override
+            public void setInt(int index, int value) {
+                ((int[])fields)[index] = value;
+            }
+
+            @Override
+            public long getLong(int index) {
+                return ((long[])fields)[index];
+            }
+
+            @Override
+            public void setLong(int index, long value) {
+                ((long[])fields)[index] = value;
+            }
+
+            @Override
+            public float getFloat(int index) {
+                return ((float[])fields)[index];
+            }
+
+            @Override
+            public void setFloat(int index, float value) {
+                ((float[])fields)[index] = value;
+            }
+
+            @Override
+            public double getDouble(int index) {
+                return ((double[])fields)[index];
+            }
+
+            @Override
+            public void setDouble(int index, double value) {
+                ((double[])fields)[index] = value;
+            }
+
+            @Override
+            public Object getReference(int index) {
+                return ((Object[])fields)[index];
+            }
+
+            @Override
+            public void setReference(int index, Object value) {
+                ((Object[])fields)[index] = value;
+            }
+        }
+
+        /**
+         * A java array instance whose header and elements are kept by a managed space, the instance itself is only
+         * the handle of its address.
+         */
+        public static class ManagedArrayInstance extends ArrayInstance {
+            private Space space;
+
+            private MethodArea.ArrayClazz arrayClazz;
+
+            private int address;
+
+            private int size;
+
+            public Space getSpace() {
+                return space;
+            }
+
+            public int getAddress() {
+                return address;
+            }
+
+            @Override
+            public MethodArea.ArrayClazz getArrayClazz() {
+                return arrayClazz;
+            }
+
+            @Override
             public int getSize() {
                 return size;
             }
 
+            @Override
+            public byte getByte(int index) {
+                return space.memory.get(address + Space.ARRAY_HEADER_SIZE + index);
+            }
+
+            @Override
+            public void setByte(int index, byte value) {
+                space.memory.put(address + Space.ARRAY_HEADER_SIZE + index, value);
+            }
+
+            @Override
+            public char getChar(int index) {
+                return space.memory.getChar(address + Space.ARRAY_HEADER_SIZE + (index << 1));
+            }
+
+            @Override
+            public void setChar(int index, char value) {
+                space.memory.putChar(address + Space.ARRAY_HEADER_SIZE + (index << 1), value);
+            }
+
+            @Override
+            public short getShort(int index) {
+                return space.memory.getShort(address + Space.ARRAY_HEADER_SIZE + (index << 1));
+            }
+
+            @Override
+            public void setShort(int index, short value) {
+                space.memory.putShort(address + Space.ARRAY_HEADER_SIZE + (index << 1), value);
+            }
+
+            @Override
+            public int getInt(int index) {
+                return space.memory.getInt(address + Space.ARRAY_HEADER_SIZE + (index << 2));
+            }
+
+            @Override
+            public void setInt(int index, int value) {
+                space.memory.putInt(address + Space.ARRAY_HEADER_SIZE + (index << 2), value);
+            }
+
+            @Override
+            public long getLong(int index) {
+                return space.memory.getLong(address + Space.ARRAY_HEADER_SIZE + (index << 3));
+            }
+
+            @Override
+            public void setLong(int index, long value) {
+                space.memory.putLong(address + Space.ARRAY_HEADER_SIZE + (index << 3), value);
+            }
+
+            @Override
+            public float getFloat(int index) {
+                return space.memory.getFloat(address + Space.ARRAY_HEADER_SIZE + (index << 2));
+            }
+
+            @Override
+            public void setFloat(int index, float value) {
+                space.memory.putFloat(address + Space.ARRAY_HEADER_SIZE + (index << 2), value);
+            }
+
+            @Override
+            public double getDouble(int index) {
+                return space.memory.getDouble(address + Space.ARRAY_HEADER_SIZE + (index << 3));
+            }
+
+            @Override
+            public void setDouble(int index, double value) {
+                space.memory.putDouble(address + Space.ARRAY_HEADER_SIZE + (index << 3), value);
+            }
+
+            @Override
+            public Object getReference(int index) {
+                return space.load(address + Space.ARRAY_HEADER_SIZE + (index << 2));
+            }
+
+            @Override
+            public void setReference(int index, Object value) {
+                space.store(address + Space.ARRAY_HEADER_SIZE + (index << 2), value);
+            }
+
             /**
-             * Just like the java array operator `instanceof`.
-             * 
-             * @param otherClazz
-             *        target class type
-             * @return is this instance the target class type
+             * The hash is kept by the header, so it is the same after the array moves.
              */
-            public boolean isInstanceOf(String name) {
-                return arrayClazz.lookLike(name);
+            @Override
+            public int hashCode() {
+                return space.hashOf(address);
             }
         }
     }
@@ -287,6 +1651,11 @@ final class RuntimeDataArea {
          */
         private static volatile Map<String, RuntimeConstantPool> _runtimeConstantPoolCache = new HashMap<>();
 
+        /**
+         * Interned string storage.
+         */
+        private static volatile Map<String, Heap.Instance> _stringCache = new HashMap<>();
+
         /**
          * Record the given instance of class {@code Clazz}.
          * 
@@ -335,6 +1704,39 @@ final class RuntimeDataArea {
             return _clazzCache.get(className);
         }
 
+        /**
+         * Get the interned instance of java class {@code java/lang/String} by the given string, it is generated at
+         * the first time.
+         * 
+         * @param value
+         *        the given string
+         * @return a instance of class {@code Instance}
+         */
+        public static Heap.Instance findString(String value) {
+            synchronized (_stringCache) {
+                Heap.Instance instance = _stringCache.get(value);
+                if (instance == null) {
+                    instance = Clazz.makeInstanceFrom(value);
+                    _stringCache.put(value, instance);
+                }
+                return instance;
+            }
+        }
+
+        /**
+         * Intern the given instance of java class {@code java/lang/String}, just like {@code String.intern()}.
+         * 
+         * @param instance
+         *        a instance of java class {@code java/lang/String}
+         * @return the interned instance which has the same string
+         */
+        public static Heap.Instance internString(Heap.Instance instance) {
+            synchronized (_stringCache) {
+                Heap.Instance interned = _stringCache.putIfAbsent(instance.toString(), instance);
+                return interned == null ? instance : interned;
+            }
+        }
+
         /**
          * Get a instance of class {@code RuntimeConstantPool} by the given name.
          * 
@@ -365,7 +1767,7 @@ final class RuntimeDataArea {
         }
 
         /**
-         * A logic data storage of field of the java instance and java class.
+         * A logic data storage of the static fields of the java class.
          */
         abstract private static class FieldData {
             private Field[] fields;
@@ -423,7 +1825,7 @@ final class RuntimeDataArea {
                 // classfile fields
                 Classfile.Field[] classfileFields = classfileInformation.getFields();
 
-                fields = new Field[indexList.size()];
+                Field[] fields = new Field[indexList.size()];
                 for (int i = 0; i < indexList.size(); ++i) {
                     Classfile.Field classfileField = classfileFields[indexList.get(i)];
                     Field field = new Field();
@@ -431,6 +1833,7 @@ final class RuntimeDataArea {
                     field.clazz = (Clazz)this;
                     field.name = constantPools[classfileField.getNameIndex()].getValue().toString();
                     field.descriptor = constantPools[classfileField.getDescriptorIndex()].getValue().toString();
+                    field.type = field.descriptor.charAt(0);
                     fields[i] = field;
                 }
 
@@ -500,6 +1903,24 @@ final class RuntimeDataArea {
              */
             private List<Integer> instanceFieldIndexList = new ArrayList<>();
 
+            /**
+             * The layout of a instance: the instance fields of the super classes and then its own, every field is at
+             * its slot.
+             */
+            private Field[] instanceFields = new Field[0];
+
+            /**
+             * Quantity of the primitive slots and the reference slots of a instance.
+             */
+            private int primitiveSize;
+            private int referenceSize;
+
+            /**
+             * The values of the static fields by their slots, just like the ones of a instance.
+             */
+            private long[] staticPrimitives = new long[0];
+            private Object[] staticReferences = new Object[0];
+
             public ClassLoader getClassLoader() {
                 return classLoader;
             }
@@ -536,6 +1957,37 @@ final class RuntimeDataArea {
                 return instanceFieldIndexList;
             }
 
+            public Field[] getInstanceFields() {
+                return instanceFields;
+            }
+
+            public int getPrimitiveSize() {
+                return primitiveSize;
+            }
+
+            public int getReferenceSize() {
+                return referenceSize;
+            }
+
+            /**
+             * Get a instance field by the given information, the field of a sub class hides the one of its super class.
+             * 
+             * @param name
+             *        field name
+             * @param descriptor
+             *        field descriptor
+             * @return a instance of class {@code Field}
+             */
+            public Field findInstanceField(String name, String descriptor) {
+                for (int i = instanceFields.length - 1; i >= 0; --i) {
+                    Field field = instanceFields[i];
+                    if (field.name.equals(name) && field.descriptor.equals(descriptor)) {
+                        return field;
+                    }
+                }
+                throw new RuntimeException("Field[" + name + "," + descriptor + "] can not be found!");
+            }
+
             /**
              * Create basic type instance of class {@code Clazz}.
              * 
@@ -599,8 +2051,7 @@ final class RuntimeDataArea {
              */
             public static void classify(Clazz clazz) {
                 if (_clazzCache.containsKey(CLASS_INFO_NAME)) {
-                    clazz.clazzInstance = _clazzCache.get(CLASS_INFO_NAME).makeInstance();
-                    clazz.clazzInstance.targetClazzName = clazz.className;
+                    clazz.clazzInstance = _clazzCache.get(CLASS_INFO_NAME).makeClazzInstance(clazz.className);
                 }
             }
 
@@ -610,8 +2061,7 @@ final class RuntimeDataArea {
             public static void classify() {
                 Clazz classClazz = _clazzCache.get(CLASS_INFO_NAME);
                 _clazzCache.forEach((name, clazz) -> {
-                    clazz.clazzInstance = classClazz.makeInstance();
-                    clazz.clazzInstance.targetClazzName = clazz.className;
+                    clazz.clazzInstance = classClazz.makeClazzInstance(clazz.className);
                 });
             }
 
@@ -624,54 +2074,49 @@ final class RuntimeDataArea {
             public static void initialize(Clazz clazz) {
                 Method method = clazz.findMethod("<clinit>", "()V");
                 if (method != null) {
-                    Interpreter.init(new ThreadResource()).read(method).execute();
+                    // the thread which is not created by the jvm, such as the compiler thread, has not a java stack
+                    ThreadResource threadResource = ThreadResource.getCurrentThreadResource();
+                    if (threadResource == null) {
+                        threadResource = new ThreadResource();
+                    }
+                    threadResource.getNativeMethodStack().call(method);
                 }
             }
 
             /**
-             * Generate a instance of class {@code Instance} for this instance of class {@code Clazz}. If this class has
-             * a super class, it will generate a instance for its super class recursively.
+             * Generate a instance of class {@code Instance} for this instance of class {@code Clazz}. It is only a
+             * value array by the layout of this class.
              * 
              * @return a instance of class {@code Instance}.
              */
             public Heap.Instance makeInstance() {
-                Clazz clazz = this;
-
-                Heap.Instance instance = new Heap.Instance();
-                Heap.Instance currentInstance = instance;
+                Heap.Space space = Heap.space;
+                if (space != null) {
+                    return space.allocate(this);
+                }
 
-                // generate parent instance recursively
-                do {
-                    instance.clazz = clazz;
-                    instance.targetClazzName = clazz.className;
-
-                    // constant pool
-                    Classfile.ConstantPool[] constantPools = clazz.classfileInformation.getConstantPool();
-
-                    // field
-                    Field[] fields = new Field[clazz.instanceFieldIndexList.size()];
-                    Classfile.Field[] classfileFields = clazz.classfileInformation.getFields();
-                    for (int i = 0; i < clazz.instanceFieldIndexList.size(); ++i) {
-                        Classfile.Field classfileField = classfileFields[clazz.instanceFieldIndexList.get(i)];
-                        Field field = new Field();
-                        field.classfileField = classfileField;
-                        field.clazz = clazz;
-                        field.name = constantPools[classfileField.getNameIndex()].getValue().toString();
-                        field.descriptor = constantPools[classfileField.getDescriptorIndex()].getValue().toString();
-                        fields[i] = field;
-                    }
-                    instance.setFields(fields);
+                return makeHostInstance(className);
+            }
 
-                    clazz = (Clazz)clazz.getParent();
-                    if (clazz != null) {
-                        instance.parent = new Heap.Instance();
-                        instance = instance.getParent();
-                    } else {
-                        break;
-                    }
-                } while (true);
+            /**
+             * Generate a instance of java class {@code Class} for the given class name, it is always kept by the host
+             * heap.
+             * 
+             * @param targetClazzName
+             *        the real class name of the instance
+             * @return a instance of class {@code Instance}.
+             */
+            public Heap.Instance makeClazzInstance(String targetClazzName) {
+                return makeHostInstance(targetClazzName);
+            }
 
-                return currentInstance;
+            private Heap.HostInstance makeHostInstance(String targetClazzName) {
+                Heap.HostInstance instance = new Heap.HostInstance();
+                instance.clazz = this;
+                instance.targetClazzName = targetClazzName;
+                instance.primitives = new long[primitiveSize];
+                instance.references = new Object[referenceSize];
+                return instance;
             }
 
             /**
@@ -680,21 +2125,50 @@ final class RuntimeDataArea {
             public static Heap.Instance makeInstanceFrom(String stringValue) {
                 char[] chars = stringValue.toCharArray();
                 Heap.Instance stringInstance = MethodArea.findClazz("java/lang/String").makeInstance();
-                Heap.ArrayInstance charsInstance = MethodArea.findArrayClazz("[B").makeInstance(chars.length);
-                int[] fields = (int[])charsInstance.getFields();
-                for (int i = 0; i < fields.length; ++i) {
-                    fields[i] = chars[i];
+                String valueDescriptor = null;
+                for (MethodArea.Field field : stringInstance.getClazz().instanceFields) {
+                    if (field.getName().equals("value")) {
+                        valueDescriptor = field.getDescriptor();
+                    }
+                }
+
+                // java 8- keeps the chars, java 9+ keeps the bytes with a coder
+                Heap.ArrayInstance valueInstance;
+                int coder = 0;
+                if (valueDescriptor.equals("[C")) {
+                    valueInstance = MethodArea.findArrayClazz("[C").makeInstance(chars.length);
+                    for (int i = 0; i < chars.length; ++i) {
+                        valueInstance.setChar(i, chars[i]);
+                    }
+                } else {
+                    for (char c : chars) {
+                        if (c > 0xff) {
+                            coder = 1;
+                            break;
+                        }
+                    }
+
+                    // a latin1 string takes a byte per char, another one is big endian utf16
+                    valueInstance = MethodArea.findArrayClazz("[B").makeInstance(chars.length << coder);
+                    for (int i = 0; i < chars.length; ++i) {
+                        if (coder == 0) {
+                            valueInstance.setByte(i, (byte)chars[i]);
+                        } else {
+                            valueInstance.setByte(i << 1, (byte)(chars[i] >> 8));
+                            valueInstance.setByte((i << 1) + 1, (byte)chars[i]);
+                        }
+                    }
                 }
-                for (MethodArea.Field field : stringInstance.getFields()) {
+                for (MethodArea.Field field : stringInstance.getClazz().instanceFields) {
                     switch (field.getName()) {
                         case "value":
-                            field.setValue(charsInstance);
+                            stringInstance.setValue(field, valueInstance);
                             break;
                         case "hash":
-                            field.setValue(stringValue.hashCode());
+                            stringInstance.setValue(field, stringValue.hashCode());
                             break;
                         case "coder":
-                            field.setValue(0);
+                            stringInstance.setValue(field, coder);
                             break;
                     }
                 }
@@ -925,8 +2399,8 @@ final class RuntimeDataArea {
              */
             public static void classify(ArrayClazz arrayClazz) {
                 if (_clazzCache.containsKey(CLASS_INFO_NAME)) {
-                    arrayClazz.clazzInstance = _clazzCache.get(CLASS_INFO_NAME).makeInstance();
-                    arrayClazz.clazzInstance.targetClazzName = arrayClazz.arrayClazzName;
+                    arrayClazz.clazzInstance = _clazzCache.get(CLASS_INFO_NAME)
+                            .makeClazzInstance(arrayClazz.arrayClazzName);
                 }
             }
 
@@ -936,8 +2410,7 @@ final class RuntimeDataArea {
             public static void classify() {
                 Clazz classClazz = _clazzCache.get(CLASS_INFO_NAME);
                 _arrayClazzCache.forEach((name, arrayClazz) -> {
-                    arrayClazz.clazzInstance = classClazz.makeInstance();
-                    arrayClazz.clazzInstance.targetClazzName = arrayClazz.arrayClazzName;
+                    arrayClazz.clazzInstance = classClazz.makeClazzInstance(arrayClazz.arrayClazzName);
                 });
             }
 
@@ -947,15 +2420,27 @@ final class RuntimeDataArea {
              * @return a instance of class {@code ArrayInstance}
              */
             public Heap.ArrayInstance makeInstance(int size) {
-                Heap.ArrayInstance arrayInstance = new Heap.ArrayInstance();
+                Heap.Space space = Heap.space;
+                if (space != null) {
+                    return space.allocate(this, size);
+                }
+
+                Heap.HostArrayInstance arrayInstance = new Heap.HostArrayInstance();
                 arrayInstance.arrayClazz = this;
                 arrayInstance.size = size;
 
+                // a boolean array is a byte array, just like the instructions baload and bastore
                 switch (arrayClazzName) {
                     case "[Z":
                     case "[B":
+                        arrayInstance.fields = new byte[size];
+                        break;
                     case "[C":
+                        arrayInstance.fields = new char[size];
+                        break;
                     case "[S":
+                        arrayInstance.fields = new short[size];
+                        break;
                     case "[I":
                         arrayInstance.fields = new int[size];
                         break;
@@ -1019,6 +2504,11 @@ final class RuntimeDataArea {
             private String name;
             private String descriptor;
 
+            /**
+             * The parsed descriptor.
+             */
+            private Signature signature;
+
             /**
              * Maximum quantity of frame stack.
              */
@@ -1031,8 +2521,69 @@ final class RuntimeDataArea {
 
             private byte[] code;
 
+            /**
+             * Pre-decoded code, it is decoded when the method is executed at the first time.
+             */
+            private volatile Bytecode.DecodedCode decodedCode;
+
             private Exception[] exceptionTable;
 
+            /**
+             * The starts of the pc ranges which the exception table divides the code into, in ascending order.
+             */
+            private int[] handlerRangeStarts;
+
+            /**
+             * The exceptions which cover every pc range, in the order of the exception table.
+             */
+            private Exception[][] handlerRanges;
+
+            /**
+             * The start pcs of the lines of the source code in ascending order, and the line numbers of them.
+             */
+            private int[] lineStartPcs;
+            private int[] lineNumbers;
+
+            /**
+             * Quantity of invocation, it is counted only when the compiler is enabled.
+             */
+            private int invocationCount;
+
+            /**
+             * Quantity of the jump to a loop header, it is counted only when the compiler is enabled.
+             */
+            private int backEdgeCount;
+
+            /**
+             * Quantity of the jump to every loop header by the pc of the loop header, it is created on the first jump.
+             */
+            private int[] loopCounts;
+
+            /**
+             * The tier which the compilation policy has promoted the method to.
+             */
+            private volatile Compiler.Tier tier = Compiler.Tier.INTERPRETER;
+
+            /**
+             * The method can not be compiled, so it is not counted any more.
+             */
+            private volatile boolean uncompilable;
+
+            /**
+             * The entry of the compiled code, it is null until the method is compiled.
+             */
+            private volatile Compiler.Entry compiledEntry;
+
+            /**
+             * The entry of the compiled code by the pc of its loop header, it is replaced when a loop is compiled.
+             */
+            private volatile Compiler.OsrEntry[] osrEntries;
+
+            /**
+             * The register code of the method, it is null until the method is translated.
+             */
+            private volatile RegisterInterpreter.Code registerCode;
+
             public Clazz getClazz() {
                 return clazz;
             }
@@ -1049,6 +2600,10 @@ final class RuntimeDataArea {
                 return descriptor;
             }
 
+            public Signature getSignature() {
+                return signature;
+            }
+
             public int getMaxStack() {
                 return maxStack;
             }
@@ -1061,10 +2616,91 @@ final class RuntimeDataArea {
                 return code;
             }
 
+            public Bytecode.DecodedCode getDecodedCode() {
+                if (decodedCode == null) {
+                    decodedCode = Bytecode.decode(code);
+                }
+                return decodedCode;
+            }
+
             public Exception[] getExceptionTable() {
                 return exceptionTable;
             }
 
+            public int getInvocationCount() {
+                return invocationCount;
+            }
+
+            public int increaseInvocationCount() {
+                return ++invocationCount;
+            }
+
+            public int getBackEdgeCount() {
+                return backEdgeCount;
+            }
+
+            /**
+             * Count a jump to the loop header which starts at the given pc.
+             *
+             * @return the quantity of the jump to the loop header
+             */
+            public int increaseBackEdgeCount(int pc) {
+                backEdgeCount++;
+                if (loopCounts == null) {
+                    loopCounts = new int[code.length];
+                }
+                return ++loopCounts[pc];
+            }
+
+            public Compiler.Tier getTier() {
+                return tier;
+            }
+
+            public void setTier(Compiler.Tier tier) {
+                this.tier = tier;
+            }
+
+            public boolean isUncompilable() {
+                return uncompilable;
+            }
+
+            public void setUncompilable(boolean uncompilable) {
+                this.uncompilable = uncompilable;
+            }
+
+            public Compiler.Entry getCompiledEntry() {
+                return compiledEntry;
+            }
+
+            public void setCompiledEntry(Compiler.Entry compiledEntry) {
+                this.compiledEntry = compiledEntry;
+            }
+
+            /**
+             * Get the entry of the compiled code which starts at the loop header of the given pc.
+             *
+             * @return a instance of class {@code Compiler.OsrEntry}, or null if the loop is not compiled
+             */
+            public Compiler.OsrEntry getOsrEntry(int pc) {
+                Compiler.OsrEntry[] entries = osrEntries;
+                return entries == null ? null : entries[pc];
+            }
+
+            public synchronized void setOsrEntry(int pc, Compiler.OsrEntry osrEntry) {
+                Compiler.OsrEntry[] entries = osrEntries == null ? new Compiler.OsrEntry[code.length]
+                        : osrEntries.clone();
+                entries[pc] = osrEntry;
+                osrEntries = entries;
+            }
+
+            public RegisterInterpreter.Code getRegisterCode() {
+                return registerCode;
+            }
+
+            public void setRegisterCode(RegisterInterpreter.Code registerCode) {
+                this.registerCode = registerCode;
+            }
+
             /**
              * Create a array of instance of class {@code Method} and fill them to the given {@code clazz}.
              * 
@@ -1086,6 +2722,7 @@ final class RuntimeDataArea {
                     method.classfileMethod = classfileMethods[i];
                     method.name = constantPools[classfileMethods[i].getNameIndex()].getValue().toString();
                     method.descriptor = constantPools[classfileMethods[i].getDescriptorIndex()].getValue().toString();
+                    method.signature = Signature.parse(method.descriptor, classfileMethods[i].isStatic());
 
                     // attribute
                     for (Classfile.Attribute attribute : classfileMethods[i].getAttributes()) {
@@ -1106,6 +2743,8 @@ final class RuntimeDataArea {
                                 method.exceptionTable[exceptionIndex].catchType = exception[3];
                                 ++exceptionIndex;
                             }
+                            method.divideHandlerRanges();
+                            method.sortLineNumbers(codeAttribute);
                             break;
                         }
                     }
@@ -1117,33 +2756,110 @@ final class RuntimeDataArea {
             }
 
             /**
-             * Get a instance of class {@code Exception} by the given information.
+             * Divide the code into the pc ranges by the start and the end of every exception, and record the exceptions
+             * which cover every range. The exceptions of a range keep the order of the exception table, so a inner
+             * handler is still found before a outer one.
+             */
+            private void divideHandlerRanges() {
+                int[] boundaries = new int[exceptionTable.length * 2];
+                for (int i = 0; i < exceptionTable.length; ++i) {
+                    boundaries[i * 2] = exceptionTable[i].startPc;
+                    boundaries[i * 2 + 1] = exceptionTable[i].endPc;
+                }
+                boundaries = Arrays.stream(boundaries).sorted().distinct().toArray();
+
+                handlerRangeStarts = boundaries;
+                handlerRanges = new Exception[boundaries.length][];
+                for (int i = 0; i < boundaries.length; ++i) {
+                    final int pc = boundaries[i];
+                    handlerRanges[i] = Arrays.stream(exceptionTable)
+                            .filter(exception -> pc >= exception.startPc && pc < exception.endPc)
+                            .toArray(Exception[]::new);
+                }
+            }
+
+            /**
+             * Merge the line number tables of the code attribute, and sort them by the start pc. A line of a loop may
+             * be recorded after the line which follows it.
+             */
+            private void sortLineNumbers(Classfile.AttributePredefined.Code codeAttribute) {
+                int[][] table = Arrays.stream(codeAttribute.getAttributes())
+                        .filter(attribute -> attribute instanceof Classfile.AttributePredefined.LineNumberTable)
+                        .map(attribute -> (Classfile.AttributePredefined.LineNumberTable)attribute)
+                        .flatMap(attribute -> Arrays.stream(attribute.getLineNumberTable()))
+                        .sorted((a, b) -> a[0] - b[0]).toArray(int[][]::new);
+
+                lineStartPcs = new int[table.length];
+                lineNumbers = new int[table.length];
+                for (int i = 0; i < table.length; ++i) {
+                    lineStartPcs[i] = table[i][0];
+                    lineNumbers[i] = table[i][1];
+                }
+            }
+
+            /**
+             * Get the line number of the source code which the given pc belongs to by a binary search.
              * 
-             * @param clazz
-             *        a instance of class {@code Clazz}
              * @param pc
-             *        bytecode pc
-             * @return a instance of class {@code Exception}
+             *        the pc of a instruction
+             * @return the line number, -2 if the method is native, or -1 if it is unknown
+             */
+            public int getLineNumber(int pc) {
+                if (classfileMethod.isNative()) {
+                    return -2;
+                }
+                if (lineStartPcs == null) {
+                    return -1;
+                }
+
+                int line = Arrays.binarySearch(lineStartPcs, pc);
+                if (line < 0) {
+                    line = -line - 2;
+                    if (line < 0) {
+                        return -1;
+                    }
+                }
+                return lineNumbers[line];
+            }
+
+            /**
+             * Get a instance of class {@code Exception} by the given information. The range of the pc is found by a
+             * binary search, and the catch type of a exception is resolved only when it is checked at the first time.
+             * 
+             * @param exceptionClazz
+             *        a instance of class {@code Clazz} of the thrown exception
+             * @param pc
+             *        the pc of the instruction which throws the exception
+             * @return a instance of class {@code Exception}, or null if no exception handles it
              */
             public Exception findException(Clazz exceptionClazz, int pc) {
-                RuntimeConstantPool runtimeConstantPool = MethodArea.findRuntimeConstantPool(clazz.className);
-                for (Exception exception : exceptionTable) {
-                    Clazz catchTypeClazz = null;
-                    if (exception.catchType != 0) {
-                        catchTypeClazz = runtimeConstantPool.dereferenceClazz(exception.catchType);
+                int range = Arrays.binarySearch(handlerRangeStarts, pc);
+                if (range < 0) {
+                    range = -range - 2;
+                    if (range < 0) {
+                        return null;
                     }
-                    if (pc >= exception.startPc && pc <= exception.endPc) {
-                        if (catchTypeClazz == null || catchTypeClazz == exceptionClazz
-                                || catchTypeClazz.isParentOf(exceptionClazz)) {
-                            return exception;
-                        }
+                }
+
+                for (Exception exception : handlerRanges[range]) {
+                    if (exception.catchType == 0) {
+                        return exception;
+                    }
+                    Clazz catchClazz = exception.catchClazz;
+                    if (catchClazz == null) {
+                        catchClazz = MethodArea.findRuntimeConstantPool(clazz.className)
+                                .dereferenceClazz(exception.catchType);
+                        exception.catchClazz = catchClazz;
+                    }
+                    if (exceptionClazz.lookLike(catchClazz)) {
+                        return exception;
                     }
                 }
                 return null;
             }
 
             /**
-             * Get the type of arguments by parsing the descriptor.
+             * Get the type of arguments.
              * <p>
              * <b>Example:</b>
              * <p>
@@ -1154,20 +2870,14 @@ final class RuntimeDataArea {
              * @return a type list
              */
             public String[] getArgumentTypes() {
-                String re = "\\[*L[^;]+;|\\[*[ZBCSIFDJ]";
-                List<String> result = new ArrayList<>();
-                Matcher matcher = Pattern.compile(re).matcher(descriptor.substring(1, descriptor.lastIndexOf(")")));
-                while (matcher.find()) {
-                    result.add(matcher.group());
-                }
-                return result.stream().toArray(String[]::new);
+                return signature.getArgumentTypes();
             }
 
             /**
-             * Get the type of return by parsing the descriptor.
+             * Get the type of return.
              */
             public String getReturnType() {
-                return descriptor.substring(descriptor.lastIndexOf(")") + 1);
+                return signature.getReturnType();
             }
 
             // @todo
@@ -1187,12 +2897,33 @@ final class RuntimeDataArea {
             private String name;
             private String descriptor;
 
-            private Object value;
+            /**
+             * The first character of the descriptor.
+             */
+            private char type;
+
+            /**
+             * The slot of a instance field in the layout of its class and the sub classes, or the slot of a static
+             * field in its class. A reference field and a primitive field are in the different arrays.
+             */
+            private int slot;
 
             public Clazz getClazz() {
                 return clazz;
             }
 
+            public int getSlot() {
+                return slot;
+            }
+
+            public char getType() {
+                return type;
+            }
+
+            public boolean isReference() {
+                return type == 'L' || type == '[';
+            }
+
             public Classfile.Field getClassfileField() {
                 return classfileField;
             }
@@ -1205,12 +2936,54 @@ final class RuntimeDataArea {
                 return descriptor;
             }
 
+            /**
+             * Get the value of a static field, a primitive value is boxed.
+             */
             public Object getValue() {
-                return value;
+                if (isReference()) {
+                    return clazz.staticReferences[slot];
+                }
+                return box(type, clazz.staticPrimitives[slot]);
+            }
+
+            /**
+             * Box the raw bits of a primitive slot by the type of a field.
+             */
+            public static Object box(char type, long bits) {
+                switch (type) {
+                    case 'F':
+                        return Float.intBitsToFloat((int)bits);
+                    case 'J':
+                        return bits;
+                    case 'D':
+                        return Double.longBitsToDouble(bits);
+                    default:
+                        return (int)bits;
+                }
+            }
+
+            /**
+             * Unbox a primitive value to the raw bits of a primitive slot by the type of a field.
+             */
+            public static long unbox(char type, Object value) {
+                if (value == null) {
+                    return 0;
+                }
+                switch (type) {
+                    case 'F':
+                        return Float.floatToRawIntBits((float)value);
+                    case 'J':
+                        return (long)value;
+                    case 'D':
+                        return Double.doubleToRawLongBits((double)value);
+                    default:
+                        return (int)value;
+                }
             }
 
             /**
-             * Create a array of instance of class {@code Field} and fill them to the given {@code clazz}.
+             * Create a array of instance of class {@code Field} and fill them to the given {@code clazz}. The layout
+             * of its instance is generated too, its own instance fields follow the ones of its super class.
              * 
              * @param clazz
              *        a instnace of class {@code Clazz}
@@ -1228,7 +3001,28 @@ final class RuntimeDataArea {
                     }
                 }
 
-                return clazz.generateFields(clazz.staticFieldIndexList, classfileInformation);
+                Field[] inheritedFields = clazz.parent == null ? new Field[0] : clazz.parent.instanceFields;
+                Field[] ownFields = clazz.generateFields(clazz.instanceFieldIndexList, classfileInformation);
+                clazz.instanceFields = Arrays.copyOf(inheritedFields, inheritedFields.length + ownFields.length);
+                clazz.primitiveSize = clazz.parent == null ? 0 : clazz.parent.primitiveSize;
+                clazz.referenceSize = clazz.parent == null ? 0 : clazz.parent.referenceSize;
+                for (int i = 0; i < ownFields.length; ++i) {
+                    Field field = ownFields[i];
+                    field.slot = field.isReference() ? clazz.referenceSize++ : clazz.primitiveSize++;
+                    clazz.instanceFields[inheritedFields.length + i] = field;
+                }
+
+                Field[] staticFields = clazz.generateFields(clazz.staticFieldIndexList, classfileInformation);
+                int primitiveSize = 0;
+                int referenceSize = 0;
+                for (Field field : staticFields) {
+                    field.slot = field.isReference() ? referenceSize++ : primitiveSize++;
+                }
+                clazz.staticPrimitives = new long[primitiveSize];
+                clazz.staticReferences = new Object[referenceSize];
+
+                clazz.setFields(staticFields);
+                return clazz.getFields();
             }
 
             /**
@@ -1257,20 +3051,20 @@ final class RuntimeDataArea {
                                     case "C":
                                     case "S":
                                     case "I":
-                                        field.value = (int)constantPools[constantValueIndex].getValue();
+                                        field.setIntValue((int)constantPools[constantValueIndex].getValue());
                                         break;
                                     case "F":
-                                        field.value = (float)constantPools[constantValueIndex].getValue();
+                                        field.setFloatValue((float)constantPools[constantValueIndex].getValue());
                                         break;
                                     case "J":
-                                        field.value = (long)constantPools[constantValueIndex].getValue();
+                                        field.setLongValue((long)constantPools[constantValueIndex].getValue());
                                         break;
                                     case "D":
-                                        field.value = (double)constantPools[constantValueIndex].getValue();
+                                        field.setDoubleValue((double)constantPools[constantValueIndex].getValue());
                                         break;
                                     case "Ljava/lang/String;":
                                         int stringIndex = (int)constantPools[constantValueIndex].getValue();
-                                        field.value = constantPools[stringIndex].getValue();
+                                        field.setValue(constantPools[stringIndex].getValue());
                                 }
                                 break;
                             }
@@ -1280,24 +3074,55 @@ final class RuntimeDataArea {
 
             }
 
+            /**
+             * Set the value of a static field, a primitive value is unboxed.
+             */
             public void setValue(Object value) {
-                this.value = value;
+                if (isReference()) {
+                    clazz.staticReferences[slot] = value;
+                } else {
+                    clazz.staticPrimitives[slot] = unbox(type, value);
+                }
             }
 
             public int getIntValue() {
-                return value == null ? 0 : (int)value;
+                return (int)clazz.staticPrimitives[slot];
             }
 
             public long getLongValue() {
-                return value == null ? 0l : (long)value;
+                return clazz.staticPrimitives[slot];
             }
 
             public float getFloatValue() {
-                return value == null ? 0.0f : (float)value;
+                return Float.intBitsToFloat((int)clazz.staticPrimitives[slot]);
             }
 
             public double getDoubleValue() {
-                return value == null ? 0.0 : (double)value;
+                return Double.longBitsToDouble(clazz.staticPrimitives[slot]);
+            }
+
+            public Object getReferenceValue() {
+                return clazz.staticReferences[slot];
+            }
+
+            public void setIntValue(int value) {
+                clazz.staticPrimitives[slot] = value;
+            }
+
+            public void setLongValue(long value) {
+                clazz.staticPrimitives[slot] = value;
+            }
+
+            public void setFloatValue(float value) {
+                clazz.staticPrimitives[slot] = Float.floatToRawIntBits(value);
+            }
+
+            public void setDoubleValue(double value) {
+                clazz.staticPrimitives[slot] = Double.doubleToRawLongBits(value);
+            }
+
+            public void setReferenceValue(Object value) {
+                clazz.staticReferences[slot] = value;
             }
 
             // @todo
@@ -1306,6 +3131,102 @@ final class RuntimeDataArea {
             }
         }
 
+        /**
+         * A logic data structure for discribing the descriptor of a java method. It is parsed only once when the method
+         * is generated, so a invocation does not parse any string.
+         * <p>
+         * <b>Example:</b>
+         * <p>
+         * {@code Signature.parse("([I[[J[Llang/java/Object;IJ)V", false)} will be:
+         * <ul>
+         * <li>argument types: {@code ["[I", "[[J", "[Llang/java/Object;", "I", "J"]}</li>
+         * <li>argument kinds: {@code ['L', 'L', 'L', 'I', 'J']}</li>
+         * <li>argument size: {@code 7}</li>
+         * <li>return type: {@code "V"}, return kind: {@code 'V'}</li>
+         * </ul>
+         */
+        final public static class Signature {
+            private String[] argumentTypes;
+
+            /**
+             * The kind of every argument, it is {@code Z B C S I F J D} or {@code L} for a reference.
+             */
+            private char[] argumentKinds;
+
+            /**
+             * Quantity of the slots of the arguments, the receiver of a instance method is included.
+             */
+            private int argumentSize;
+
+            private String returnType;
+
+            /**
+             * The kind of return, it is {@code V} for void, just like the kind of a argument.
+             */
+            private char returnKind;
+
+            public String[] getArgumentTypes() {
+                return argumentTypes;
+            }
+
+            public char[] getArgumentKinds() {
+                return argumentKinds;
+            }
+
+            public int getArgumentSize() {
+                return argumentSize;
+            }
+
+            public String getReturnType() {
+                return returnType;
+            }
+
+            public char getReturnKind() {
+                return returnKind;
+            }
+
+            /**
+             * Parse the descriptor of a method.
+             *
+             * @param descriptor
+             *        a method descriptor
+             * @param isStatic
+             *        the method is static, so it has no receiver
+             * @return a instance of class {@code Signature}
+             */
+            public static Signature parse(String descriptor, boolean isStatic) {
+                final List<String> types = new ArrayList<>();
+                int i = 1;
+                while (descriptor.charAt(i) != ')') {
+                    int end = i;
+                    while (descriptor.charAt(end) == '[') {
+                        ++end;
+                    }
+                    end = descriptor.charAt(end) == 'L' ? descriptor.indexOf(';', end) + 1 : end + 1;
+                    types.add(descriptor.substring(i, end));
+                    i = end;
+                }
+
+                Signature signature = new Signature();
+                signature.argumentTypes = types.toArray(new String[types.size()]);
+                signature.argumentKinds = new char[types.size()];
+                signature.argumentSize = isStatic ? 0 : 1;
+                for (int j = 0; j < types.size(); ++j) {
+                    final char kind = kindOf(types.get(j));
+                    signature.argumentKinds[j] = kind;
+                    signature.argumentSize += kind == 'J' || kind == 'D' ? 2 : 1;
+                }
+                signature.returnType = descriptor.substring(i + 1);
+                signature.returnKind = kindOf(signature.returnType);
+                return signature;
+            }
+
+            private static char kindOf(String type) {
+                final char kind = type.charAt(0);
+                return kind == '[' ? 'L' : kind;
+            }
+        }
+
         /**
          * A logic data structure for discribing a java exception.
          */
@@ -1315,6 +3236,11 @@ final class RuntimeDataArea {
             private int handlePc;
             private int catchType;
 
+            /**
+             * The class of the catch type, it is resolved when it is checked at the first time.
+             */
+            private volatile Clazz catchClazz;
+
             public int getStartPc() {
                 return startPc;
             }
@@ -1342,6 +3268,11 @@ final class RuntimeDataArea {
 
             private Classfile.ConstantPool[] constantPools;
 
+            /**
+             * The resolved fields by the index of their field refs, a field ref is resolved only once.
+             */
+            private Field[] resolvedFields;
+
             public Clazz getClazz() {
                 return clazz;
             }
@@ -1366,6 +3297,7 @@ final class RuntimeDataArea {
                 runtimeConstantPool.classLoader = clazz.getClassLoader();
                 runtimeConstantPool.clazz = clazz;
                 runtimeConstantPool.constantPools = clazz.classfileInformation.getConstantPool();
+                runtimeConstantPool.resolvedFields = new Field[runtimeConstantPool.constantPools.length];
                 return runtimeConstantPool;
             }
 
@@ -1425,9 +3357,32 @@ final class RuntimeDataArea {
             }
 
             /**
-             * Get a instance of class {@code Field} from constant pool.
+             * Get a instance of class {@code Field} which is a static field from constant pool.
              */
             public Field dereferenceField(int index) {
+                Field field = resolvedFields[index];
+                if (field == null) {
+                    field = resolveField(index, false);
+                }
+                return field;
+            }
+
+            /**
+             * Get a instance of class {@code Field} which is a instance field from constant pool, its slot is the same
+             * in every instance of the class of the field ref.
+             */
+            public Field dereferenceInstanceField(int index) {
+                Field field = resolvedFields[index];
+                if (field == null) {
+                    field = resolveField(index, true);
+                }
+                return field;
+            }
+
+            /**
+             * Resolve a field ref by the class of it, and cache the field.
+             */
+            private Field resolveField(int index, boolean isInstanceField) {
                 // field ref: key => classIndex, value => nameAndTypeIndex
                 int[] fieldRef = dereferenceReference(index);
 
@@ -1435,12 +3390,14 @@ final class RuntimeDataArea {
                 String[] nameAndType = dereferenceNameAndType(fieldRef[1]);
 
                 // search field
-                Field field = clazz.findField(nameAndType[0], nameAndType[1]);
+                Field field = isInstanceField ? clazz.findInstanceField(nameAndType[0], nameAndType[1])
+                        : clazz.findField(nameAndType[0], nameAndType[1]);
                 if (!field.isAccessibleTo(this.clazz)) {
                     throw new RuntimeException("Class " + this.clazz.getClassName() + " can not reference Field "
                             + clazz.getClassName() + "." + field.getName() + ".");
                 }
 
+                resolvedFields[index] = field;
                 return field;
             }
 
@@ -1451,6 +3408,12 @@ final class RuntimeDataArea {
                 // method ref: key => classIndex, value => nameAndTypeIndex
                 int[] methodRef = dereferenceReference(index);
 
+                // the methods of a array class, just like: new String[0].clone()
+                if (dereferenceString(methodRef[0]).charAt(0) == '[') {
+                    String[] nameAndType = dereferenceNameAndType(methodRef[1]);
+                    return dereferenceArrayClazz(methodRef[0]).findMethod(nameAndType[0], nameAndType[1]);
+                }
+
                 Clazz clazz = dereferenceClazz(methodRef[0]);
                 if (clazz.classfileInformation.isInterface()) {
                     throw new RuntimeException(clazz.getClassName() + " is a interface.");
@@ -7,6 +7,16 @@ public class Starter {
     public static void main(final String[] args) {
         final CommandLine commandLine = new CommandLine(args);
         Classpath.parse(commandLine.getClasspaths());
+        Interpreter.setEngine(commandLine.getEngine());
+        Instruction.Superinstruction.configure(commandLine.getSuperinstruction(), commandLine.getHistogram());
+        Compiler.setEnabled(commandLine.isJit());
+        Compiler.setProfiledThreshold(commandLine.getProfiledThreshold());
+        Compiler.setOptimizedThreshold(commandLine.getOptimizedThreshold());
+        Compiler.setOsrThreshold(commandLine.getOsrThreshold());
+        RuntimeDataArea.JavaStack.setMaxSize(commandLine.getStackSize());
+        if (commandLine.getHeapSize() > 0) {
+            RuntimeDataArea.Heap.setSpace(new RuntimeDataArea.Heap.Space(commandLine.getHeapSize()));
+        }
 
         ThreadResource.createThreadResource();
         ClassLoader classLoader = new ClassLoader();
@@ -24,5 +34,7 @@ public class Starter {
 
         Interpreter interpreter = Interpreter.init(threadResource);
         interpreter.read(mainMethod).execute();
+
+        Instruction.Superinstruction.saveHistogram();
     }
 }
@@ -0,0 +1,909 @@
+package me.chongwish.jjvm;
+
+import me.chongwish.jjvm.RuntimeDataArea.Heap;
+import me.chongwish.jjvm.RuntimeDataArea.JavaStack;
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+
+/**
+ * A interpreter which executes the java bytecode in one big {@code switch} loop.
+ * <p>
+ * The code array and the pc of the current frame, the slots and the references of its segment, the base of its local
+ * variable and the top of its operand stack are kept in local variables of the loop, so a push, a pop, a load or a
+ * store is only a array access. The top is written back to the operand stack before a instruction which is delegated
+ * and before a back edge, and they are all reloaded when a invoke, return or athrow instruction changes the current
+ * frame. The instructions which are implemented here read their operands and branch offsets from the code array, the
+ * others are delegated to the handler of the pre-decoded operation.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * {@code Interpreter.setEngine(Interpreter.Engine.SWITCH)}
+ */
+final class SwitchInterpreter {
+    private SwitchInterpreter() {}
+
+    private static final Object PRIMITIVE = Frame.Segment.PRIMITIVE;
+
+    /**
+     * Execute the bytecode until the java stack is empty.
+     *
+     * @param threadResource
+     *        a instance of class {@code ThreadResource}
+     */
+    public static void execute(ThreadResource threadResource) {
+        final JavaStack javaStack = threadResource.getJavaStack();
+
+        Frame frame = javaStack.current();
+        Bytecode bytecode = frame.getBytecode();
+        byte[] code = frame.getMethod().getCode();
+        int pc = bytecode.getPc();
+        Frame.OperandStack operandStack = frame.getOperandStack();
+        int[] slots = operandStack.getSlots();
+        Object[] references = operandStack.getReferences();
+        int base = frame.getLocalVariable().getBase();
+        int sp = operandStack.getTop();
+
+        while (true) {
+            final int start = pc;
+            final int opcode = code[pc++] & 0xff;
+
+            // a instruction continues the loop, a branch breaks the switch to the check of the back edge
+            switch (opcode) {
+                // nop
+                case 0x00:
+                    continue;
+
+                // aconst_null
+                case 0x01:
+                    references[sp++] = null;
+                    continue;
+
+                // iconst_m1 iconst_0 iconst_1 iconst_2 iconst_3 iconst_4 iconst_5
+                case 0x02:
+                case 0x03:
+                case 0x04:
+                case 0x05:
+                case 0x06:
+                case 0x07:
+                case 0x08:
+                    slots[sp] = opcode - 0x03;
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // lconst_0 lconst_1
+                case 0x09:
+                case 0x0a:
+                    putLong(slots, references, sp, opcode - 0x09);
+                    sp += 2;
+                    continue;
+
+                // fconst_0 fconst_1 fconst_2
+                case 0x0b:
+                case 0x0c:
+                case 0x0d:
+                    slots[sp] = Float.floatToRawIntBits(opcode - 0x0b);
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // dconst_0 dconst_1
+                case 0x0e:
+                case 0x0f:
+                    putLong(slots, references, sp, Double.doubleToRawLongBits(opcode - 0x0e));
+                    sp += 2;
+                    continue;
+
+                // bipush
+                case 0x10:
+                    slots[sp] = code[pc++];
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // sipush
+                case 0x11:
+                    slots[sp] = code[pc] << 8 | code[pc + 1] & 0xff;
+                    references[sp++] = PRIMITIVE;
+                    pc += 2;
+                    continue;
+
+                // iload fload
+                case 0x15:
+                case 0x17:
+                    slots[sp] = slots[base + (code[pc++] & 0xff)];
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // lload dload
+                case 0x16:
+                case 0x18:
+                    putLong(slots, references, sp, longAt(slots, base + (code[pc++] & 0xff)));
+                    sp += 2;
+                    continue;
+
+                // aload
+                case 0x19: {
+                    final int index = base + (code[pc++] & 0xff);
+                    slots[sp] = slots[index];
+                    references[sp++] = references[index];
+                    continue;
+                }
+
+                // iload_x
+                case 0x1a:
+                case 0x1b:
+                case 0x1c:
+                case 0x1d:
+                    slots[sp] = slots[base + opcode - 0x1a];
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // lload_x
+                case 0x1e:
+                case 0x1f:
+                case 0x20:
+                case 0x21:
+                    putLong(slots, references, sp, longAt(slots, base + opcode - 0x1e));
+                    sp += 2;
+                    continue;
+
+                // fload_x
+                case 0x22:
+                case 0x23:
+                case 0x24:
+                case 0x25:
+                    slots[sp] = slots[base + opcode - 0x22];
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // dload_x
+                case 0x26:
+                case 0x27:
+                case 0x28:
+                case 0x29:
+                    putLong(slots, references, sp, longAt(slots, base + opcode - 0x26));
+                    sp += 2;
+                    continue;
+
+                // aload_x
+                case 0x2a:
+                case 0x2b:
+                case 0x2c:
+                case 0x2d: {
+                    final int index = base + opcode - 0x2a;
+                    slots[sp] = slots[index];
+                    references[sp++] = references[index];
+                    continue;
+                }
+
+                // iaload
+                case 0x2e: {
+                    final int index = slots[--sp];
+                    slots[sp - 1] = checkArray(references[sp - 1], index).getInt(index);
+                    references[sp - 1] = PRIMITIVE;
+                    continue;
+                }
+
+                // baload
+                case 0x33: {
+                    final int index = slots[--sp];
+                    slots[sp - 1] = checkArray(references[sp - 1], index).getByte(index);
+                    references[sp - 1] = PRIMITIVE;
+                    continue;
+                }
+
+                // caload
+                case 0x34: {
+                    final int index = slots[--sp];
+                    slots[sp - 1] = checkArray(references[sp - 1], index).getChar(index);
+                    references[sp - 1] = PRIMITIVE;
+                    continue;
+                }
+
+                // saload
+                case 0x35: {
+                    final int index = slots[--sp];
+                    slots[sp - 1] = checkArray(references[sp - 1], index).getShort(index);
+                    references[sp - 1] = PRIMITIVE;
+                    continue;
+                }
+
+                // aaload
+                case 0x32: {
+                    final int index = slots[--sp];
+                    references[sp - 1] = checkArray(references[sp - 1], index).getReference(index);
+                    continue;
+                }
+
+                // istore fstore
+                case 0x36:
+                case 0x38: {
+                    final int index = base + (code[pc++] & 0xff);
+                    slots[index] = slots[--sp];
+                    references[index] = PRIMITIVE;
+                    continue;
+                }
+
+                // lstore dstore
+                case 0x37:
+                case 0x39:
+                    sp -= 2;
+                    putLong(slots, references, base + (code[pc++] & 0xff), longAt(slots, sp));
+                    continue;
+
+                // astore
+                case 0x3a: {
+                    final int index = base + (code[pc++] & 0xff);
+                    slots[index] = slots[--sp];
+                    references[index] = references[sp];
+                    references[sp] = null;
+                    continue;
+                }
+
+                // istore_x
+                case 0x3b:
+                case 0x3c:
+                case 0x3d:
+                case 0x3e: {
+                    final int index = base + opcode - 0x3b;
+                    slots[index] = slots[--sp];
+                    references[index] = PRIMITIVE;
+                    continue;
+                }
+
+                // lstore_x
+                case 0x3f:
+                case 0x40:
+                case 0x41:
+                case 0x42:
+                    sp -= 2;
+                    putLong(slots, references, base + opcode - 0x3f, longAt(slots, sp));
+                    continue;
+
+                // fstore_x
+                case 0x43:
+                case 0x44:
+                case 0x45:
+                case 0x46: {
+                    final int index = base + opcode - 0x43;
+                    slots[index] = slots[--sp];
+                    references[index] = PRIMITIVE;
+                    continue;
+                }
+
+                // dstore_x
+                case 0x47:
+                case 0x48:
+                case 0x49:
+                case 0x4a:
+                    sp -= 2;
+                    putLong(slots, references, base + opcode - 0x47, longAt(slots, sp));
+                    continue;
+
+                // astore_x
+                case 0x4b:
+                case 0x4c:
+                case 0x4d:
+                case 0x4e: {
+                    final int index = base + opcode - 0x4b;
+                    slots[index] = slots[--sp];
+                    references[index] = references[sp];
+                    references[sp] = null;
+                    continue;
+                }
+
+                // iastore
+                case 0x4f:
+                    sp -= 3;
+                    checkArray(references[sp], slots[sp + 1]).setInt(slots[sp + 1], slots[sp + 2]);
+                    references[sp] = null;
+                    continue;
+
+                // bastore
+                case 0x54:
+                    sp -= 3;
+                    checkArray(references[sp], slots[sp + 1]).setByte(slots[sp + 1], (byte)slots[sp + 2]);
+                    references[sp] = null;
+                    continue;
+
+                // castore
+                case 0x55:
+                    sp -= 3;
+                    checkArray(references[sp], slots[sp + 1]).setChar(slots[sp + 1], (char)slots[sp + 2]);
+                    references[sp] = null;
+                    continue;
+
+                // sastore
+                case 0x56:
+                    sp -= 3;
+                    checkArray(references[sp], slots[sp + 1]).setShort(slots[sp + 1], (short)slots[sp + 2]);
+                    references[sp] = null;
+                    continue;
+
+                // aastore
+                case 0x53:
+                    sp -= 3;
+                    checkArray(references[sp], slots[sp + 1]).setReference(slots[sp + 1], references[sp + 2]);
+                    references[sp] = null;
+                    references[sp + 2] = null;
+                    continue;
+
+                // pop
+                case 0x57:
+                    references[--sp] = null;
+                    continue;
+
+                // pop2
+                case 0x58:
+                    references[--sp] = null;
+                    references[--sp] = null;
+                    continue;
+
+                // dup
+                case 0x59:
+                    slots[sp] = slots[sp - 1];
+                    references[sp] = references[sp - 1];
+                    ++sp;
+                    continue;
+
+                // swap
+                case 0x5f: {
+                    final int slot = slots[sp - 1];
+                    final Object reference = references[sp - 1];
+                    slots[sp - 1] = slots[sp - 2];
+                    references[sp - 1] = references[sp - 2];
+                    slots[sp - 2] = slot;
+                    references[sp - 2] = reference;
+                    continue;
+                }
+
+                // iadd
+                case 0x60:
+                    --sp;
+                    slots[sp - 1] += slots[sp];
+                    continue;
+
+                // ladd
+                case 0x61:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) + longAt(slots, sp));
+                    continue;
+
+                // fadd
+                case 0x62:
+                    --sp;
+                    slots[sp - 1] = Float.floatToRawIntBits(floatAt(slots, sp - 1) + floatAt(slots, sp));
+                    continue;
+
+                // dadd
+                case 0x63:
+                    sp -= 2;
+                    putDouble(slots, references, sp - 2, doubleAt(slots, sp - 2) + doubleAt(slots, sp));
+                    continue;
+
+                // isub
+                case 0x64:
+                    --sp;
+                    slots[sp - 1] -= slots[sp];
+                    continue;
+
+                // lsub
+                case 0x65:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) - longAt(slots, sp));
+                    continue;
+
+                // fsub
+                case 0x66:
+                    --sp;
+                    slots[sp - 1] = Float.floatToRawIntBits(floatAt(slots, sp - 1) - floatAt(slots, sp));
+                    continue;
+
+                // dsub
+                case 0x67:
+                    sp -= 2;
+                    putDouble(slots, references, sp - 2, doubleAt(slots, sp - 2) - doubleAt(slots, sp));
+                    continue;
+
+                // imul
+                case 0x68:
+                    --sp;
+                    slots[sp - 1] *= slots[sp];
+                    continue;
+
+                // lmul
+                case 0x69:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) * longAt(slots, sp));
+                    continue;
+
+                // fmul
+                case 0x6a:
+                    --sp;
+                    slots[sp - 1] = Float.floatToRawIntBits(floatAt(slots, sp - 1) * floatAt(slots, sp));
+                    continue;
+
+                // dmul
+                case 0x6b:
+                    sp -= 2;
+                    putDouble(slots, references, sp - 2, doubleAt(slots, sp - 2) * doubleAt(slots, sp));
+                    continue;
+
+                // idiv
+                case 0x6c:
+                    --sp;
+                    slots[sp - 1] /= checkDivisor(slots[sp]);
+                    continue;
+
+                // ldiv
+                case 0x6d:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) / checkDivisor(longAt(slots, sp)));
+                    continue;
+
+                // irem
+                case 0x70:
+                    --sp;
+                    slots[sp - 1] %= checkDivisor(slots[sp]);
+                    continue;
+
+                // lrem
+                case 0x71:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) % checkDivisor(longAt(slots, sp)));
+                    continue;
+
+                // ineg
+                case 0x74:
+                    slots[sp - 1] = -slots[sp - 1];
+                    continue;
+
+                // lneg
+                case 0x75:
+                    putLong(slots, references, sp - 2, -longAt(slots, sp - 2));
+                    continue;
+
+                // fneg
+                case 0x76:
+                    slots[sp - 1] = Float.floatToRawIntBits(-floatAt(slots, sp - 1));
+                    continue;
+
+                // dneg
+                case 0x77:
+                    putDouble(slots, references, sp - 2, -doubleAt(slots, sp - 2));
+                    continue;
+
+                // ishl
+                case 0x78:
+                    --sp;
+                    slots[sp - 1] <<= slots[sp] & 0x1f;
+                    continue;
+
+                // lshl
+                case 0x79: {
+                    final int a = slots[--sp] & 0x3f;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) << a);
+                    continue;
+                }
+
+                // ishr
+                case 0x7a:
+                    --sp;
+                    slots[sp - 1] >>= slots[sp] & 0x1f;
+                    continue;
+
+                // lshr
+                case 0x7b: {
+                    final int a = slots[--sp] & 0x3f;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) >> a);
+                    continue;
+                }
+
+                // iushr
+                case 0x7c:
+                    --sp;
+                    slots[sp - 1] >>>= slots[sp] & 0x1f;
+                    continue;
+
+                // lushr
+                case 0x7d: {
+                    final int a = slots[--sp] & 0x3f;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) >>> a);
+                    continue;
+                }
+
+                // iand
+                case 0x7e:
+                    --sp;
+                    slots[sp - 1] &= slots[sp];
+                    continue;
+
+                // land
+                case 0x7f:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) & longAt(slots, sp));
+                    continue;
+
+                // ior
+                case 0x80:
+                    --sp;
+                    slots[sp - 1] |= slots[sp];
+                    continue;
+
+                // lor
+                case 0x81:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) | longAt(slots, sp));
+                    continue;
+
+                // ixor
+                case 0x82:
+                    --sp;
+                    slots[sp - 1] ^= slots[sp];
+                    continue;
+
+                // lxor
+                case 0x83:
+                    sp -= 2;
+                    putLong(slots, references, sp - 2, longAt(slots, sp - 2) ^ longAt(slots, sp));
+                    continue;
+
+                // iinc
+                case 0x84: {
+                    final int index = base + (code[pc] & 0xff);
+                    slots[index] += code[pc + 1];
+                    references[index] = PRIMITIVE;
+                    pc += 2;
+                    continue;
+                }
+
+                // i2l
+                case 0x85:
+                    putLong(slots, references, sp - 1, slots[sp - 1]);
+                    ++sp;
+                    continue;
+
+                // i2f
+                case 0x86:
+                    slots[sp - 1] = Float.floatToRawIntBits(slots[sp - 1]);
+                    continue;
+
+                // i2d
+                case 0x87:
+                    putDouble(slots, references, sp - 1, slots[sp - 1]);
+                    ++sp;
+                    continue;
+
+                // l2i
+                case 0x88:
+                    --sp;
+                    slots[sp - 1] = (int)longAt(slots, sp - 1);
+                    continue;
+
+                // l2f
+                case 0x89:
+                    --sp;
+                    slots[sp - 1] = Float.floatToRawIntBits(longAt(slots, sp - 1));
+                    continue;
+
+                // l2d
+                case 0x8a:
+                    putDouble(slots, references, sp - 2, longAt(slots, sp - 2));
+                    continue;
+
+                // f2i
+                case 0x8b:
+                    slots[sp - 1] = (int)floatAt(slots, sp - 1);
+                    continue;
+
+                // f2l
+                case 0x8c:
+                    putLong(slots, references, sp - 1, (long)floatAt(slots, sp - 1));
+                    ++sp;
+                    continue;
+
+                // f2d
+                case 0x8d:
+                    putDouble(slots, references, sp - 1, floatAt(slots, sp - 1));
+                    ++sp;
+                    continue;
+
+                // d2i
+                case 0x8e:
+                    --sp;
+                    slots[sp - 1] = (int)doubleAt(slots, sp - 1);
+                    continue;
+
+                // d2l
+                case 0x8f:
+                    putLong(slots, references, sp - 2, (long)doubleAt(slots, sp - 2));
+                    continue;
+
+                // d2f
+                case 0x90:
+                    --sp;
+                    slots[sp - 1] = Float.floatToRawIntBits((float)doubleAt(slots, sp - 1));
+                    continue;
+
+                // i2b
+                case 0x91:
+                    slots[sp - 1] = (byte)slots[sp - 1];
+                    continue;
+
+                // i2c
+                case 0x92:
+                    slots[sp - 1] = (char)slots[sp - 1];
+                    continue;
+
+                // i2s
+                case 0x93:
+                    slots[sp - 1] = (short)slots[sp - 1];
+                    continue;
+
+                // lcmp
+                case 0x94:
+                    sp -= 4;
+                    slots[sp] = Long.compare(longAt(slots, sp), longAt(slots, sp + 2));
+                    references[sp++] = PRIMITIVE;
+                    continue;
+
+                // fcmpl fcmpg
+                case 0x95:
+                case 0x96: {
+                    final float a = floatAt(slots, --sp);
+                    final float b = floatAt(slots, sp - 1);
+                    if (Float.isNaN(a) || Float.isNaN(b)) {
+                        slots[sp - 1] = opcode == 0x95 ? -1 : 1;
+                    } else {
+                        slots[sp - 1] = Float.compare(b, a);
+                    }
+                    continue;
+                }
+
+                // dcmpl dcmpg
+                case 0x97:
+                case 0x98: {
+                    sp -= 4;
+                    final double a = doubleAt(slots, sp + 2);
+                    final double b = doubleAt(slots, sp);
+                    if (Double.isNaN(a) || Double.isNaN(b)) {
+                        slots[sp] = opcode == 0x97 ? -1 : 1;
+                    } else {
+                        slots[sp] = Double.compare(b, a);
+                    }
+                    references[sp++] = PRIMITIVE;
+                    continue;
+                }
+
+                // ifeq
+                case 0x99:
+                    pc = slots[--sp] == 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // ifne
+                case 0x9a:
+                    pc = slots[--sp] != 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // iflt
+                case 0x9b:
+                    pc = slots[--sp] < 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // ifge
+                case 0x9c:
+                    pc = slots[--sp] >= 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // ifgt
+                case 0x9d:
+                    pc = slots[--sp] > 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // ifle
+                case 0x9e:
+                    pc = slots[--sp] <= 0 ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmpeq
+                case 0x9f:
+                    sp -= 2;
+                    pc = slots[sp] == slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmpne
+                case 0xa0:
+                    sp -= 2;
+                    pc = slots[sp] != slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmplt
+                case 0xa1:
+                    sp -= 2;
+                    pc = slots[sp] < slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmpge
+                case 0xa2:
+                    sp -= 2;
+                    pc = slots[sp] >= slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmpgt
+                case 0xa3:
+                    sp -= 2;
+                    pc = slots[sp] > slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_icmple
+                case 0xa4:
+                    sp -= 2;
+                    pc = slots[sp] <= slots[sp + 1] ? start + offsetOf(code, start) : pc + 2;
+                    break;
+
+                // if_acmpeq
+                case 0xa5: {
+                    sp -= 2;
+                    final boolean equal = references[sp] == references[sp + 1];
+                    references[sp] = null;
+                    references[sp + 1] = null;
+                    pc = equal ? start + offsetOf(code, start) : pc + 2;
+                    break;
+                }
+
+                // if_acmpne
+                case 0xa6: {
+                    sp -= 2;
+                    final boolean equal = references[sp] == references[sp + 1];
+                    references[sp] = null;
+                    references[sp + 1] = null;
+                    pc = !equal ? start + offsetOf(code, start) : pc + 2;
+                    break;
+                }
+
+                // goto
+                case 0xa7:
+                    pc = start + offsetOf(code, start);
+                    break;
+
+                // arraylength
+                case 0xbe:
+                    slots[sp - 1] = ((Heap.ArrayInstance)references[sp - 1]).getSize();
+                    references[sp - 1] = PRIMITIVE;
+                    continue;
+
+                // ifnull
+                case 0xc6: {
+                    final Object reference = references[--sp];
+                    references[sp] = null;
+                    pc = reference == null ? start + offsetOf(code, start) : pc + 2;
+                    break;
+                }
+
+                // ifnonnull
+                case 0xc7: {
+                    final Object reference = references[--sp];
+                    references[sp] = null;
+                    pc = reference != null ? start + offsetOf(code, start) : pc + 2;
+                    break;
+                }
+
+                // goto_w
+                case 0xc8:
+                    pc = start + (code[pc] << 24 | (code[pc + 1] & 0xff) << 16 | (code[pc + 2] & 0xff) << 8
+                            | code[pc + 3] & 0xff);
+                    break;
+
+                // invoke, return, athrow and the others
+                default:
+                    operandStack.setTop(sp);
+                    bytecode.setPc(start);
+                    bytecode.next().getHandler().execute(frame, bytecode);
+
+                    if (javaStack.current() == frame) {
+                        pc = bytecode.getPc();
+                    } else if (javaStack.isEmpty()) {
+                        return;
+                    } else {
+                        // the current frame has been changed
+                        frame = javaStack.current();
+                        bytecode = frame.getBytecode();
+                        code = frame.getMethod().getCode();
+                        pc = bytecode.getPc();
+                        operandStack = frame.getOperandStack();
+                        slots = operandStack.getSlots();
+                        references = operandStack.getReferences();
+                        base = frame.getLocalVariable().getBase();
+                    }
+                    sp = operandStack.getTop();
+                    continue;
+            }
+
+            // a jump backward is a back edge of a loop, the loop may be executed by its compiled code
+            if (pc < start) {
+                operandStack.setTop(sp);
+                pc = backEdge(frame, start, pc);
+                sp = operandStack.getTop();
+            }
+        }
+    }
+
+    /**
+     * Get the 16-bit branch offset which follows the opcode at the given pc.
+     */
+    private static int offsetOf(byte[] code, int start) {
+        return code[start + 1] << 8 | code[start + 2] & 0xff;
+    }
+
+    /**
+     * Count a jump backward as a back edge of a loop. If the loop has been compiled, the loop is executed by the
+     * compiled code from the loop header, and the pc where it jumps out of the loop is returned instead.
+     */
+    private static int backEdge(Frame frame, int start, int target) {
+        Compiler.OsrEntry osrEntry = Compiler.countBackEdge(frame.getMethod(), target);
+        if (osrEntry != null && frame.getOperandStack().isEmpty()) {
+            return osrEntry.invoke(frame.getLocalVariable(), frame.getOperandStack());
+        }
+        return target;
+    }
+
+    /**
+     * Get a long or the raw bits of a double from two slots, the lower half is in the first one.
+     */
+    private static long longAt(int[] slots, int index) {
+        return (long)slots[index + 1] << 32 | slots[index] & 0x0ffffffffL;
+    }
+
+    private static float floatAt(int[] slots, int index) {
+        return Float.intBitsToFloat(slots[index]);
+    }
+
+    private static double doubleAt(int[] slots, int index) {
+        return Double.longBitsToDouble(longAt(slots, index));
+    }
+
+    /**
+     * Put a long to two slots, just like {@code Frame.OperandStack.push(long)}.
+     */
+    private static void putLong(int[] slots, Object[] references, int index, long value) {
+        slots[index] = (int)value;
+        slots[index + 1] = (int)(value >> 32);
+        references[index] = PRIMITIVE;
+        references[index + 1] = PRIMITIVE;
+    }
+
+    private static void putDouble(int[] slots, Object[] references, int index, double value) {
+        putLong(slots, references, index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Verify the array reference and the index of a array instruction.
+     */
+    private static Heap.ArrayInstance checkArray(Object array, int index) {
+        if (index < 0) {
+            throw new RuntimeException("Array index can not a negative number.");
+        }
+
+        if (array == null) {
+            throw new RuntimeException("Can not store a value to a null array.");
+        }
+
+        Heap.ArrayInstance arrayInstance = (Heap.ArrayInstance)array;
+        if (index >= arrayInstance.getSize()) {
+            throw new RuntimeException("Index " + index + " is larger than the size of array.");
+        }
+
+        return arrayInstance;
+    }
+
+    private static int checkDivisor(int divisor) {
+        if (divisor == 0) {
+            throw new RuntimeException("Divisor can not be zero!");
+        }
+        return divisor;
+    }
+
+    private static long checkDivisor(long divisor) {
+        if (divisor == 0) {
+            throw new RuntimeException("Divisor can not be zero!");
+        }
+        return divisor;
+    }
+}
@@ -1,5 +1,6 @@
 package me.chongwish.jjvm;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -10,6 +11,8 @@ import java.util.List;
 
 import org.junit.Test;
 
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+
 public class ClassfileTest {
     @Test
     public void testConvertFile() {
@@ -50,4 +53,19 @@ public class ClassfileTest {
 
         assertTrue(information1 == information2);
     }
+
+    @Test
+    public void testSignature() {
+        MethodArea.Signature signature = MethodArea.Signature.parse("([I[[J[Ljava/lang/Object;IJ)V", false);
+        assertArrayEquals(new String[] { "[I", "[[J", "[Ljava/lang/Object;", "I", "J" },
+                signature.getArgumentTypes());
+        assertArrayEquals(new char[] { 'L', 'L', 'L', 'I', 'J' }, signature.getArgumentKinds());
+        assertEquals(7, signature.getArgumentSize());
+        assertEquals('V', signature.getReturnKind());
+
+        signature = MethodArea.Signature.parse("(DZ)[Ljava/lang/String;", true);
+        assertEquals(3, signature.getArgumentSize());
+        assertEquals("[Ljava/lang/String;", signature.getReturnType());
+        assertEquals('L', signature.getReturnKind());
+    }
 }
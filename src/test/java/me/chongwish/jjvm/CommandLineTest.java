@@ -2,6 +2,8 @@ package me.chongwish.jjvm;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 public class CommandLineTest {
@@ -42,4 +44,68 @@ public class CommandLineTest {
 
         assertEquals("mycls", commandLine.getClazzName());
     }
+
+    @Test
+    public void testEngine() {
+        CommandLine commandLine = new CommandLine(
+                "-cp .",
+                "-interpreter switch",
+                "mycls");
+
+        assertEquals(Interpreter.Engine.SWITCH, commandLine.getEngine());
+        assertEquals("mycls", commandLine.getClazzName());
+        assertEquals(Interpreter.Engine.LAMBDA, new CommandLine("mycls").getEngine());
+    }
+
+    @Test
+    public void testSuperinstruction() {
+        CommandLine commandLine = new CommandLine(
+                "-superinstruction profile",
+                "-histogram pair.histogram",
+                "mycls");
+
+        assertEquals(Instruction.Superinstruction.Mode.PROFILE, commandLine.getSuperinstruction());
+        assertEquals("pair.histogram", commandLine.getHistogram());
+        assertEquals("mycls", commandLine.getClazzName());
+        assertEquals(Instruction.Superinstruction.Mode.DEFAULT, new CommandLine("mycls").getSuperinstruction());
+    }
+
+    @Test
+    public void testJit() {
+        CommandLine commandLine = new CommandLine(
+                "-jit",
+                "mycls",
+                "-jit");
+
+        assertEquals(true, commandLine.isJit());
+        assertEquals("mycls", commandLine.getClazzName());
+        assertEquals(Arrays.asList("-jit"), commandLine.getUserArgs());
+        assertEquals(false, new CommandLine("mycls").isJit());
+
+        commandLine = new CommandLine(
+                "-jit",
+                "-profiledthreshold 10",
+                "-optimizedthreshold 20",
+                "-osrthreshold 30",
+                "mycls");
+
+        assertEquals(10, commandLine.getProfiledThreshold());
+        assertEquals(20, commandLine.getOptimizedThreshold());
+        assertEquals(30, commandLine.getOsrThreshold());
+        assertEquals(Compiler.DEFAULT_OPTIMIZED_THRESHOLD, new CommandLine("mycls").getOptimizedThreshold());
+    }
+
+    @Test
+    public void testStackSize() {
+        assertEquals(512 * 1024, new CommandLine("-Xss512k", "mycls").getStackSize());
+        assertEquals(2 * 1024 * 1024, new CommandLine("-Xss2M", "mycls").getStackSize());
+        assertEquals(4096, new CommandLine("-cp .", "-Xss4096", "mycls").getStackSize());
+        assertEquals(RuntimeDataArea.JavaStack.DEFAULT_MAX_SIZE, new CommandLine("mycls").getStackSize());
+    }
+
+    @Test
+    public void testHeapSize() {
+        assertEquals(64 * 1024 * 1024, new CommandLine("-Xmx64m", "mycls").getHeapSize());
+        assertEquals(0, new CommandLine("mycls").getHeapSize());
+    }
 }
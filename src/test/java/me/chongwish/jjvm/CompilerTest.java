@@ -0,0 +1,258 @@
+package me.chongwish.jjvm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Clazz;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+import me.chongwish.jjvm.demo.Calculation;
+
+public class CompilerTest {
+    private static void load(final String className) {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+        classpaths.add("./demo/build/classes/java/main".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        new ClassLoader().load(className);
+    }
+
+    @Test
+    public void testCompile() {
+        final String className = "me.chongwish.jjvm.demo.Calculation".replace('.', '/');
+        load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+
+        Method method = clazz.findMethod("fibonacci", "(J)J");
+        assertEquals(true, Compiler.compile(method));
+        assertNotNull(method.getCompiledEntry());
+
+        Frame.OperandStack operandStack = new Frame.OperandStack(4);
+        operandStack.push(20L);
+        method.getCompiledEntry().invoke(operandStack);
+        assertEquals(6765L, operandStack.popLong());
+        assertEquals(true, operandStack.isEmpty());
+
+        // the constructor touches a object
+        Method init = clazz.findMethod("<init>", "()V");
+        assertEquals(false, Compiler.compile(init));
+        assertNull(init.getCompiledEntry());
+    }
+
+    @Test
+    public void testExecute() throws InterruptedException {
+        final String className = "me.chongwish.jjvm.CompilerTest".replace('.', '/');
+        load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+
+        Compiler.setEnabled(true);
+        Compiler.setProfiledThreshold(2);
+        Compiler.setOptimizedThreshold(4);
+        try {
+            Interpreter interpreter = Interpreter.init(ThreadResource.getCurrentThreadResource());
+            interpreter.read(clazz.findMethod("testFibonacci", "()V")).execute();
+
+            // the loop of the method is hot, though it is invoked only once
+            Method method = clazz.findMethod("sum", "(I)I");
+            assertEquals(Compiler.Tier.INTERPRETER, method.getTier());
+            interpreter.read(clazz.findMethod("testSum", "()V")).execute();
+            assertEquals(Compiler.Tier.OPTIMIZED, method.getTier());
+
+            // the background compiler thread installs the compiled code
+            for (int i = 0; i < 100 && method.getCompiledEntry() == null; ++i) {
+                Thread.sleep(50);
+            }
+            assertNotNull(method.getCompiledEntry());
+            interpreter.read(clazz.findMethod("testSum", "()V")).execute();
+
+            // the method which can not be compiled is not counted any more
+            Method testSum = clazz.findMethod("testSum", "()V");
+            interpreter.read(clazz.findMethod("testRepeat", "()V")).execute();
+            assertEquals(true, testSum.isUncompilable());
+        } finally {
+            Compiler.setEnabled(false);
+            Compiler.setProfiledThreshold(Compiler.DEFAULT_PROFILED_THRESHOLD);
+            Compiler.setOptimizedThreshold(Compiler.DEFAULT_OPTIMIZED_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testOsr() throws InterruptedException {
+        final String className = "me.chongwish.jjvm.CompilerTest".replace('.', '/');
+        load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+        Method method = clazz.findMethod("loop", "(I)J");
+        Method testLoop = clazz.findMethod("testLoop", "()V");
+
+        Compiler.setEnabled(true);
+        Compiler.setOptimizedThreshold(Integer.MAX_VALUE);
+        Compiler.setOsrThreshold(100);
+        try {
+            // the loop is compiled, though the method is never compiled
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(testLoop).execute();
+            for (int i = 0; i < 100 && !isOsrCompiled(method); ++i) {
+                Thread.sleep(50);
+            }
+            assertEquals(true, isOsrCompiled(method));
+            assertNull(method.getCompiledEntry());
+
+            // the frame moves to the compiled loop at the first back edge, so the back edge is not counted
+            final int backEdgeCount = method.getBackEdgeCount();
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(testLoop).execute();
+            Interpreter.setEngine(Interpreter.Engine.SWITCH);
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(testLoop).execute();
+            assertEquals(backEdgeCount, method.getBackEdgeCount());
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+            Compiler.setEnabled(false);
+            Compiler.setOptimizedThreshold(Compiler.DEFAULT_OPTIMIZED_THRESHOLD);
+            Compiler.setOsrThreshold(Compiler.DEFAULT_OSR_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testOsrOfMain() throws InterruptedException {
+        final String className = "me.chongwish.jjvm.CompilerTest".replace('.', '/');
+        load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+        Method main = clazz.findMethod("main", "([Ljava/lang/String;)V");
+
+        Compiler.setEnabled(true);
+        Compiler.setOsrThreshold(100);
+        try {
+            // the loops of main are compiled, though main touches the objects
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(main).execute();
+            assertEquals(true, main.isUncompilable());
+            for (int i = 0; i < 100 && countOsrEntries(main) < 3; ++i) {
+                Thread.sleep(50);
+            }
+            assertEquals(3, countOsrEntries(main));
+
+            // the compiled loops jump out to the interpreter by a condition, a break and a return
+            final int backEdgeCount = main.getBackEdgeCount();
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(main).execute();
+            Interpreter.setEngine(Interpreter.Engine.SWITCH);
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(main).execute();
+            assertEquals(backEdgeCount, main.getBackEdgeCount());
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+            Compiler.setEnabled(false);
+            Compiler.setOsrThreshold(Compiler.DEFAULT_OSR_THRESHOLD);
+        }
+    }
+
+    private static boolean isOsrCompiled(Method method) {
+        for (int pc = 0; pc < method.getCode().length; ++pc) {
+            if (method.getOsrEntry(pc) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countOsrEntries(Method method) {
+        int count = 0;
+        for (int pc = 0; pc < method.getCode().length; ++pc) {
+            if (method.getOsrEntry(pc) != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public static void testFibonacci() {
+        // the interpreter calls the compiled method once it becomes hot
+        for (int i = 0; i < 4; ++i) {
+            if (Calculation.fibonacci(15) != 610) {
+                throw new RuntimeException("Compiled method gets a wrong result.");
+            }
+        }
+    }
+
+    public static int sum(int n) {
+        int result = 0;
+        for (int i = 1; i <= n; ++i) {
+            result += i;
+        }
+        return result;
+    }
+
+    public static void testSum() {
+        if (sum(100) != 5050) {
+            throw new RuntimeException("Compiled method gets a wrong sum.");
+        }
+    }
+
+    public static void testRepeat() {
+        for (int i = 0; i < 3; ++i) {
+            testSum();
+        }
+    }
+
+    public static long loop(int n) {
+        // tableswitch keeps aligned in the compiled loop
+        long sum = 0;
+        double weight = 0.5;
+        for (int i = 0; i < n; ++i) {
+            switch (i & 3) {
+                case 0:
+                    sum += i;
+                    break;
+                case 1:
+                    sum -= 1;
+                    break;
+                case 2:
+                    sum += (long)(weight * 6);
+                    break;
+                default:
+                    sum += 2;
+            }
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) {
+        long sum = 0;
+        for (int i = 0; i < 1000; ++i) {
+            sum += i & 7;
+        }
+        String result = "sum: " + sum;
+
+        int found = -1;
+        double weight = 0.5;
+        for (int i = 0; i < 2000; ++i) {
+            weight += 0.25;
+            if (i * i > 1000000) {
+                found = i;
+                break;
+            }
+        }
+        if (!result.equals("sum: 3500") || found != 1001 || weight != 251.0) {
+            throw new RuntimeException("Compiled loop of main gets a wrong value.");
+        }
+
+        for (int i = 0;; ++i) {
+            if (i == 500) {
+                return;
+            }
+        }
+    }
+
+    public static void testLoop() {
+        if (loop(1000) != 125500) {
+            throw new RuntimeException("Compiled loop gets a wrong sum.");
+        }
+    }
+}
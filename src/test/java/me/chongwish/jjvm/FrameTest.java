@@ -2,12 +2,20 @@ package me.chongwish.jjvm;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
 public class FrameTest {
     @Test
     public void testOperandStack() {
-        Frame.OperandStack stack = new Frame.OperandStack();
+        Frame.OperandStack stack = new Frame.OperandStack(16);
         stack.push(null);
         stack.push(100);
         stack.push(-100);
@@ -34,6 +42,31 @@ public class FrameTest {
         assertEquals(stack.pop(), null);
     }
 
+    @Test
+    public void testOperandStackSlot() {
+        Frame.OperandStack stack = new Frame.OperandStack(8);
+        stack.push("abc");
+        stack.push(7);
+        stack.push(2997924580l);
+
+        // dup2_x1: abc 2997924580 7 2997924580
+        stack.duplicate(2, 1);
+        assertEquals(stack.popLong(), 2997924580l);
+        assertEquals(stack.popInt(), 7);
+
+        // dup_x2: abc 9 2997924580 9
+        stack.push(9);
+        stack.duplicate(1, 2);
+        assertEquals(stack.popInt(), 9);
+        assertEquals(stack.popLong(), 2997924580l);
+
+        // swap: 9 abc
+        stack.swap();
+        assertEquals(stack.pop(), "abc");
+        stack.discard(1);
+        assertEquals(stack.isEmpty(), true);
+    }
+
     @Test
     public void testLocalVariable() {
         Frame.LocalVariable variable = new Frame.LocalVariable(100);
@@ -62,4 +95,103 @@ public class FrameTest {
         assertEquals(variable.getInt(1), 100);
         assertEquals(variable.get(14), null);
     }
+
+    private static Method fibonacci() {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./demo/build/classes/java/main".replace('/', File.separatorChar));
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        final String className = "me.chongwish.jjvm.demo.Calculation".replace('.', '/');
+        new ClassLoader().load(className);
+        return MethodArea.findClazz(className).findMethod("fibonacci", "(J)J");
+    }
+
+    @Test
+    public void testSegment() {
+        Method method = fibonacci();
+
+        ThreadResource threadResource = new ThreadResource();
+        Frame caller = new Frame(method, threadResource);
+        threadResource.getJavaStack().push(caller);
+
+        // the argument on the operand stack of the caller is the local variable of the callee
+        caller.getOperandStack().push(20L);
+        Frame callee = new Frame(method, caller, 2);
+        assertEquals(caller.getOperandStack().isEmpty(), true);
+        assertEquals(callee.getLocalVariable().getLong(0), 20L);
+        caller.getOperandStack().push(-1);
+        assertEquals(callee.getLocalVariable().getInt(0), -1);
+        assertEquals(callee.getLocalVariable().get(0), -1);
+        caller.getOperandStack().discard(1);
+
+        // the frames are more than a segment, the argument is copied to the next segment
+        for (long i = 0; i < 1000; ++i) {
+            caller.getOperandStack().push(i);
+            callee = new Frame(method, caller, 2);
+            assertEquals(callee.getLocalVariable().getLong(0), i);
+            threadResource.getJavaStack().push(callee);
+            caller = callee;
+        }
+    }
+
+    @Test
+    public void testPool() {
+        Method method = fibonacci();
+
+        ThreadResource threadResource = new ThreadResource();
+        RuntimeDataArea.JavaStack javaStack = threadResource.getJavaStack();
+        Frame caller = new Frame(method, threadResource);
+        javaStack.push(caller);
+
+        caller.getOperandStack().push(20L);
+        Frame callee = javaStack.push(method, caller, 2);
+        callee.getBytecode().next();
+        assertEquals(javaStack.pop(), callee);
+
+        // the dropped frame is the next frame, and it is at the first operation again
+        caller.getOperandStack().push(10L);
+        assertEquals(javaStack.push(method, caller, 2), callee);
+        assertEquals(callee.getBytecode().getIndex(), 0);
+        assertEquals(callee.getLocalVariable().getLong(0), 10L);
+        assertEquals(callee.getOperandStack().isEmpty(), true);
+    }
+
+    @Test
+    public void testTransition() {
+        Method method = fibonacci();
+
+        ThreadResource threadResource = new ThreadResource();
+        RuntimeDataArea.JavaStack javaStack = threadResource.getJavaStack();
+        Frame caller = new Frame(method, threadResource);
+        javaStack.push(caller);
+        caller.getOperandStack().push(7);
+
+        // the method is called above the caller, and the caller is not executed
+        assertEquals(threadResource.getNativeMethodStack().call(method, 20L), 6765L);
+        assertEquals(javaStack.current(), caller);
+        assertEquals(javaStack.getFloor(), 0);
+        assertEquals(caller.getOperandStack().popInt(), 7);
+
+        // the method can not be pushed, the StackOverflowError is thrown from the transition frame and not caught
+        String message = null;
+        RuntimeDataArea.JavaStack.setMaxSize(0);
+        try {
+            threadResource.getNativeMethodStack().call(method, 20L);
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        } finally {
+            RuntimeDataArea.JavaStack.setMaxSize(RuntimeDataArea.JavaStack.DEFAULT_MAX_SIZE);
+        }
+        assertEquals(message.contains("java/lang/StackOverflowError"), true);
+        assertEquals(javaStack.current(), caller);
+        assertEquals(javaStack.getFloor(), 0);
+
+        // the transition frame is dropped to be reused
+        Frame transition = javaStack.pushTransition(threadResource, 2);
+        assertEquals(transition.isTransition(), true);
+        assertEquals(javaStack.pop(), transition);
+        assertEquals(javaStack.push(method, caller, 0), transition);
+        assertEquals(transition.isTransition(), false);
+    }
 }
@@ -1,9 +1,15 @@
 package me.chongwish.jjvm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotEquals;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -43,6 +49,286 @@ public class InstructionTest {
         runMethod(getMethod("testObject", clazz), interpreter);
         runMethod(getMethod("testMethod", clazz), interpreter);
         runMethod(getMethod("testTry", clazz), interpreter);
+        runMethod(getMethod("testCatch", clazz), interpreter);
+        runMethod(getMethod("testStackTrace", clazz), interpreter);
+        runMethod(getMethod("testInitializer", clazz), interpreter);
+        runMethod(getMethod("testHiding", clazz), interpreter);
+        runMethod(getMethod("testFieldStorage", clazz), interpreter);
+        runMethod(getMethod("testSmallArray", clazz), interpreter);
+        runMethod(getMethod("testQuicken", clazz), interpreter);
+        runMethod(getMethod("testSuperinstruction", clazz), interpreter);
+
+        // the body of a string follows the class library, the chars on java 8- and the bytes with a coder on java 9+
+        assertEquals("a\u4e2d", Clazz.makeInstanceFrom("a\u4e2d").toString());
+    }
+
+    @Test
+    public void testExecuteBySwitch() {
+        Interpreter.setEngine(Interpreter.Engine.SWITCH);
+        try {
+            testExecute();
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+        }
+    }
+
+    @Test
+    public void testExecuteByRegister() {
+        Interpreter.setEngine(Interpreter.Engine.REGISTER);
+        try {
+            testExecute();
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+        }
+    }
+
+    @Test
+    public void testExecuteByManagedHeap() {
+        RuntimeDataArea.Heap.Space space = new RuntimeDataArea.Heap.Space(64 * 1024 * 1024);
+        RuntimeDataArea.Heap.setSpace(space);
+        try {
+            testExecute();
+        } finally {
+            RuntimeDataArea.Heap.setSpace(null);
+        }
+        assertNotEquals(0, space.getCount());
+
+        // a instance is a header and its fields in the space
+        Clazz clazz = MethodArea.findClazz("me.chongwish.jjvm.InstructionTest$Sample".replace('.', '/'));
+        RuntimeDataArea.Heap.ManagedInstance instance = space.allocate(clazz);
+        assertEquals(clazz, space.clazzOf(instance.getAddress()));
+        assertEquals(RuntimeDataArea.Heap.Space.HEADER_SIZE + 8 * 4 + 4 + 4, RuntimeDataArea.Heap.Space.sizeOf(clazz));
+        assertEquals(instance.getAddress() + RuntimeDataArea.Heap.Space.sizeOf(clazz), space.getUsed());
+        assertEquals(instance.hashCode(), instance.hashCode());
+
+        MethodArea.Field field = instance.findField("s", "Ljava/lang/String;");
+        instance.setValue(field, instance);
+        assertEquals(instance, instance.getValue(field));
+        Object[] foreign = new Object[0];
+        instance.setValue(field, foreign);
+        assertEquals(foreign, instance.getValue(field));
+
+        // a array is a header, its length and its elements in the space
+        MethodArea.ArrayClazz arrayClazz = MethodArea.findArrayClazz("[J");
+        RuntimeDataArea.Heap.ManagedArrayInstance array = space.allocate(arrayClazz, 3);
+        assertEquals(RuntimeDataArea.Heap.Space.ARRAY_HEADER_SIZE + 8 * 3,
+                RuntimeDataArea.Heap.Space.sizeOf(arrayClazz, 3));
+        assertEquals(array.getAddress() + RuntimeDataArea.Heap.Space.sizeOf(arrayClazz, 3), space.getUsed());
+        array.setLong(2, Long.MIN_VALUE);
+        assertEquals(Long.MIN_VALUE, array.getLong(2));
+        instance.setValue(field, array);
+        assertEquals(array, instance.getValue(field));
+    }
+
+    @Test
+    public void testGarbageCollection() {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        final String className = "me.chongwish.jjvm.InstructionTest".replace('.', '/');
+        new ClassLoader().load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+        Interpreter interpreter = Interpreter.init(ThreadResource.getCurrentThreadResource());
+
+        RuntimeDataArea.Heap.Space space = new RuntimeDataArea.Heap.Space(256 * 1024);
+        RuntimeDataArea.Heap.setSpace(space);
+        try {
+            // the garbage is collected when the space is full, the live instances keep their values
+            runMethod(getMethod("testGarbage", clazz), interpreter);
+            assertNotEquals(0, space.getCollections());
+
+            // a error is thrown when the live instances fill the space, and they become garbage after it is caught
+            runMethod(getMethod("testOutOfMemory", clazz), interpreter);
+            space.collect();
+            assertEquals(true, space.getUsed() < space.getCapacity() / 2);
+        } finally {
+            RuntimeDataArea.Heap.setSpace(null);
+        }
+    }
+
+    @Test
+    public void testStackOverflow() {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+        classpaths.add("./demo/build/classes/java/main".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        final String className = "me.chongwish.jjvm.InstructionTest".replace('.', '/');
+        new ClassLoader().load(className);
+        Method method = MethodArea.findClazz(className).findMethod("testRecursion", "()V");
+
+        RuntimeDataArea.JavaStack.setMaxSize(64 * 1024);
+        try {
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(method).execute();
+
+            // the register code invokes the method by the stack of the host jvm
+            Interpreter.setEngine(Interpreter.Engine.REGISTER);
+            Interpreter.init(ThreadResource.getCurrentThreadResource()).read(method).execute();
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+            RuntimeDataArea.JavaStack.setMaxSize(RuntimeDataArea.JavaStack.DEFAULT_MAX_SIZE);
+        }
+    }
+
+    @Test
+    public void testLayout() {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        final String className = "me.chongwish.jjvm.InstructionTest$Point3".replace('.', '/');
+        new ClassLoader().load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+
+        // the fields of the super class come first, and a field of the sub class hides the one of the super class
+        MethodArea.Field[] fields = clazz.getInstanceFields();
+        assertEquals(4, fields.length);
+        assertEquals(clazz.getParent(), fields[0].getClazz());
+        assertEquals(clazz.getParent().getInstanceFields()[1], fields[1]);
+        for (int i = 0; i < fields.length; ++i) {
+            assertEquals(i, fields[i].getSlot());
+        }
+        assertEquals(fields[2], clazz.findInstanceField("y", "I"));
+
+        // all the fields are primitive
+        assertEquals(4, clazz.getPrimitiveSize());
+        assertEquals(0, clazz.getReferenceSize());
+    }
+
+    @Test
+    public void testFuse() throws IOException {
+        // 0: iload_1 1: iload_2 2: if_icmpge +9 5: iinc 1 1 8: goto -8 11: return
+        final byte[] code = new byte[] { 0x1b, 0x1c, (byte)0xa2, 0x00, 0x09, (byte)0x84, 0x01, 0x01, (byte)0xa7,
+                (byte)0xff, (byte)0xf8, (byte)0xb1 };
+
+        final File histogram = File.createTempFile("jjvm", ".histogram");
+        try {
+            Instruction.Superinstruction.configure(Instruction.Superinstruction.Mode.NONE, null);
+            Bytecode.Operation[] operations = Bytecode.decode(code).getOperations();
+            assertEquals(Instruction.Set[0x1b], operations[0].getHandler());
+            assertEquals(Instruction.Set[0x84], operations[3].getHandler());
+
+            Instruction.Superinstruction.configure(Instruction.Superinstruction.Mode.DEFAULT, null);
+            operations = Bytecode.decode(code).getOperations();
+            assertNotEquals(Instruction.Set[0x1b], operations[0].getHandler());
+            assertNotEquals(Instruction.Set[0x84], operations[3].getHandler());
+
+            // only the pair iinc goto is frequent
+            Files.write(histogram.toPath(), Arrays.asList("0x84 0xa7 1000", "0x1b 0x1c 1"));
+            Instruction.Superinstruction.configure(Instruction.Superinstruction.Mode.PROFILE, histogram.getPath());
+            operations = Bytecode.decode(code).getOperations();
+            assertEquals(Instruction.Set[0x1b], operations[0].getHandler());
+            assertNotEquals(Instruction.Set[0x84], operations[3].getHandler());
+        } finally {
+            Instruction.Superinstruction.configure(Instruction.Superinstruction.Mode.DEFAULT, null);
+            histogram.delete();
+        }
+    }
+
+    @Test
+    public void testAllocation() {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+        classpaths.add("./demo/build/classes/java/main".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        final String className = "me.chongwish.jjvm.InstructionTest".replace('.', '/');
+        new ClassLoader().load(className);
+        Clazz clazz = MethodArea.findClazz(className);
+
+        // iload istore iinc never box a int, even if it is out of the Integer cache
+        Method count = clazz.findMethod("count", "(I)I");
+        assertEquals(0, allocatedBytes(count, 1000, 101000) / 100000);
+
+        // the frames which Bubble.sort invokes are reused
+        Method sort = clazz.findMethod("sort", "(I)V");
+        assertEquals(0, allocatedBytes(sort, 100, 1100) / 1000);
+    }
+
+    /**
+     * Run a static method with the less and the more iterations, the difference of the allocated bytes is the
+     * garbage of the more iterations. The host jvm may allocate before its compiler removes the allocation, so every
+     * run is repeated and the least bytes are taken.
+     */
+    private static long allocatedBytes(Method method, int less, int more) {
+        // warm up the lazy resolution of the call sites and the field sites
+        allocatedBytes(method, more);
+
+        long lessBytes = Long.MAX_VALUE;
+        long moreBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 5; ++i) {
+            lessBytes = Math.min(lessBytes, allocatedBytes(method, less));
+            moreBytes = Math.min(moreBytes, allocatedBytes(method, more));
+        }
+        return moreBytes - lessBytes;
+    }
+
+    private static long allocatedBytes(Method method, int n) {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        final long id = Thread.currentThread().getId();
+
+        final long bytes = threadMXBean.getThreadAllocatedBytes(id);
+        Interpreter.init(ThreadResource.getCurrentThreadResource()).read(method).with(n).execute();
+        return threadMXBean.getThreadAllocatedBytes(id) - bytes;
+    }
+
+    public static int count(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    public static void sort(int n) {
+        Bubble<Integer> bubble = new Bubble<>();
+        Integer[] array = new Integer[] { 1000, 2000, 3000, 4000 };
+        for (int i = 0; i < n; ++i) {
+            bubble.sort(array);
+        }
+    }
+
+    public static int recurse(int n) {
+        return recurse(n + 1) + 1;
+    }
+
+    public static void testRecursion() {
+        boolean overflow = false;
+        try {
+            recurse(0);
+        } catch (StackOverflowError e) {
+            overflow = e.getStackTrace().length > 0;
+        }
+        if (!overflow) {
+            throw new RuntimeException("Runaway recursion does not throw a StackOverflowError.");
+        }
+
+        // the java stack is unwound
+        if (Calculation.fibonacci(10) != 55) {
+            throw new RuntimeException("Java stack is broken by a StackOverflowError.");
+        }
+    }
+
+    public void testSuperinstruction() {
+        // iload iload if_icmpge, iinc goto
+        int sum = 0;
+        int n = 10;
+        for (int i = 0; i < n; i++) {
+            sum += i;
+        }
+        if (sum != 45) {
+            throw new RuntimeException("Superinstruction gets a wrong sum.");
+        }
     }
 
     public static void testException() throws Exception {
@@ -60,6 +346,199 @@ public class InstructionTest {
         }
     }
 
+    public static int throwBeforeTry() throws Exception {
+        int result = 0;
+        testException();
+        try {
+            result = 1;
+        } catch (Exception e) {
+            result = 2;
+        }
+        return result;
+    }
+
+    public static void testCatch() {
+        // the handler of a parent class catches the exception, the inner handler is checked first
+        int caught = 0;
+        try {
+            try {
+                throw new IllegalStateException();
+            } catch (IllegalArgumentException e) {
+                caught = 1;
+            }
+        } catch (RuntimeException e) {
+            caught = 2;
+        }
+        if (caught != 2) {
+            throw new RuntimeException("Exception is caught by a wrong handler.");
+        }
+
+        // the invoke instruction just before a try block is not covered by it
+        try {
+            caught = throwBeforeTry();
+        } catch (Exception e) {
+            caught = 3;
+        }
+        if (caught != 3) {
+            throw new RuntimeException("Exception is caught out of the range of the handler.");
+        }
+    }
+
+    public static StackTraceElement[] trace() {
+        return new IllegalStateException().getStackTrace();
+    }
+
+    public static void testStackTrace() {
+        // the constructors of the exception are not recorded
+        StackTraceElement[] first = trace();
+        StackTraceElement[] second = trace();
+        if (!first[0].getMethodName().equals("trace") || !first[1].getMethodName().equals("testStackTrace")
+                || !first[0].getClassName().equals("me.chongwish.jjvm.InstructionTest")
+                || !"InstructionTest.java".equals(first[0].getFileName())) {
+            throw new RuntimeException("Stack trace records wrong frames.");
+        }
+
+        // the line number is found by the pc of the invocation
+        if (first[0].getLineNumber() <= 0 || second[0].getLineNumber() != first[0].getLineNumber()
+                || second[1].getLineNumber() != first[1].getLineNumber() + 1) {
+            throw new RuntimeException("Stack trace gets a wrong line number.");
+        }
+    }
+
+    public static class Point {
+        public int x;
+        public int y;
+    }
+
+    public static class Point3 extends Point {
+        public int y;
+        public long z;
+    }
+
+    public static class Initializer {
+        public static StackTraceElement[] trace = new Throwable().getStackTrace();
+    }
+
+    public static void testHiding() {
+        // the field ref is resolved by its class rather than the class of the instance
+        Point3 point = new Point3();
+        point.y = 1;
+        ((Point)point).y = 2;
+        if (point.y != 1 || ((Point)point).y != 2) {
+            throw new RuntimeException("Hidden field is not resolved by the class of the field ref.");
+        }
+    }
+
+    public static class Sample {
+        public static double total;
+        public static float scale = -1.5f;
+        public static Sample last;
+
+        public byte b;
+        public float f;
+        public double d;
+        public long l;
+        public String s;
+    }
+
+    public static void testFieldStorage() {
+        // a primitive field keeps its raw bits, a reference field is in another array
+        Sample sample = new Sample();
+        sample.b = -3;
+        sample.f = -0.25f;
+        sample.d = Double.MIN_VALUE;
+        sample.l = Long.MIN_VALUE;
+        sample.s = "sample";
+        Sample.last = sample;
+        Sample.total = sample.d + sample.f * Sample.scale;
+        if (sample.b != -3 || sample.f != -0.25f || sample.d != Double.MIN_VALUE || sample.l != Long.MIN_VALUE
+                || !"sample".equals(Sample.last.s) || Sample.total != 0.375 + Double.MIN_VALUE) {
+            throw new RuntimeException("Field keeps a wrong value.");
+        }
+    }
+
+    public static void testSmallArray() {
+        // a value is narrowed by the type of the array
+        byte[] bytes = new byte[4];
+        bytes[0] = (byte)200;
+        char[] chars = new char[] { 'a', '\u4e2d' };
+        short[] shorts = new short[] { (short)70000 };
+        boolean[] flags = new boolean[2];
+        flags[1] = true;
+        byte[] copy = new byte[4];
+        System.arraycopy(bytes, 0, copy, 1, 3);
+        if (bytes[0] != -56 || chars[1] != 0x4e2d || shorts[0] != 4464 || flags[0] || !flags[1] || copy[1] != -56) {
+            throw new RuntimeException("Array keeps a wrong value.");
+        }
+
+        // a string constant which is not latin1
+        if ("a\u4e2d".charAt(1) != chars[1] || "a\u4e2d".length() != 2) {
+            throw new RuntimeException("String constant keeps a wrong value.");
+        }
+        if (!("a" + chars[1]).equals("a\u4e2d") || "abc".charAt(1) != 'b') {
+            throw new RuntimeException("String concatenation makes a wrong value.");
+        }
+    }
+
+    public static class Node {
+        public Node next;
+        public long value;
+        public String name;
+        public int[] data;
+    }
+
+    public static void testGarbage() {
+        Node head = null;
+        for (int i = 0; i < 20000; ++i) {
+            Node node = new Node();
+            node.value = i;
+            if (i % 100 == 0) {
+                node.next = head;
+                node.name = "node";
+                node.data = new int[] { i };
+                head = node;
+            }
+        }
+
+        int count = 0;
+        long sum = 0;
+        for (Node node = head; node != null; node = node.next) {
+            if (node.name != "node" || node.data[0] != node.value) {
+                throw new RuntimeException("Live instance keeps a wrong value after a collection.");
+            }
+            sum += node.value;
+            ++count;
+        }
+        if (count != 200 || sum != 1990000) {
+            throw new RuntimeException("Live instance is collected.");
+        }
+    }
+
+    public static void testOutOfMemory() {
+        Node head = null;
+        try {
+            while (true) {
+                Node node = new Node();
+                node.next = head;
+                head = node;
+            }
+        } catch (OutOfMemoryError e) {
+            head = null;
+        }
+        if (head != null) {
+            throw new RuntimeException("Live instance is not released.");
+        }
+    }
+
+    public static void testInitializer() {
+        // the static initializer is executed above the frame which loads the class
+        StackTraceElement[] trace = Initializer.trace;
+        if (!trace[0].getMethodName().equals("<clinit>")
+                || !trace[trace.length - 1].getMethodName().equals("testInitializer")) {
+            throw new RuntimeException("Static initializer is executed on another java stack.");
+        }
+    }
+
     public void testObject() {
         double d = 43.2;
         FieldData fieldData = new FieldData();
@@ -112,6 +591,29 @@ public class InstructionTest {
         new Bubble<Integer>().sort(array);
     }
 
+    public void testQuicken() {
+        // a call site meets the receivers of more than one class
+        Number[] numbers = new Number[] { 1, 2L, 3, 4L };
+        long sum = 0;
+        for (Number number : numbers) {
+            sum += number.longValue();
+        }
+
+        Bubble<Integer> integerBubble = new Bubble<>();
+        Bubble<Long> longBubble = new Bubble<>();
+        for (int i = 0; i < 2; ++i) {
+            integerBubble.sort(new Integer[] { 3, 2, 1 });
+            longBubble.sort(new Long[] { 3L, 2L, 1L });
+        }
+
+        // a field site is executed more than once
+        FieldData fieldData = new FieldData();
+        for (int i = 0; i < 3; ++i) {
+            fieldData.intField1 += i;
+            FieldData.doubleStaticField += fieldData.intField1;
+        }
+    }
+
     public void testIf() throws Exception {
         int result = 100;
         if (result == 100) {
@@ -0,0 +1,100 @@
+package me.chongwish.jjvm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea;
+import me.chongwish.jjvm.RuntimeDataArea.ThreadResource;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Clazz;
+import me.chongwish.jjvm.RuntimeDataArea.MethodArea.Method;
+
+public class RegisterInterpreterTest {
+    private static Clazz load(final String className) {
+        final List<String> classpaths = new ArrayList<>();
+        classpaths.add("./build/classes/java/test".replace('/', File.separatorChar));
+        classpaths.add("./demo/build/classes/java/main".replace('/', File.separatorChar));
+
+        Classpath.parse(classpaths);
+        ThreadResource.createThreadResource();
+
+        new ClassLoader().load(className);
+        return MethodArea.findClazz(className);
+    }
+
+    @Test
+    public void testTranslate() {
+        Clazz clazz = load("me.chongwish.jjvm.demo.Calculation".replace('.', '/'));
+
+        // the loads and the stores are merged into the other instructions
+        Method method = clazz.findMethod("fibonacci", "(J)J");
+        RegisterInterpreter.Code code = RegisterInterpreter.codeOf(method);
+        assertNotNull(code);
+        assertEquals(true, code.size() < method.getDecodedCode().getOperations().length);
+
+        Frame.OperandStack operandStack = new Frame.OperandStack(8);
+        operandStack.push(20L);
+        RegisterInterpreter.invoke(code, operandStack);
+        assertEquals(6765L, operandStack.popLong());
+        assertEquals(true, operandStack.isEmpty());
+
+        // the constructor touches a object
+        assertNull(RegisterInterpreter.codeOf(clazz.findMethod("<init>", "()V")));
+    }
+
+    @Test
+    public void testExecute() {
+        Clazz clazz = load("me.chongwish.jjvm.RegisterInterpreterTest".replace('.', '/'));
+
+        Method method = clazz.findMethod("mix", "(IJFD)D");
+        assertNotNull(RegisterInterpreter.codeOf(method));
+        assertNull(RegisterInterpreter.codeOf(clazz.findMethod("divide", "(II)I")));
+
+        Frame.OperandStack operandStack = new Frame.OperandStack(8);
+        operandStack.push(7);
+        operandStack.push(-3L);
+        operandStack.push(1.5f);
+        operandStack.push(0.25);
+        RegisterInterpreter.invoke(RegisterInterpreter.codeOf(method), operandStack);
+        assertEquals(mix(7, -3L, 1.5f, 0.25), operandStack.popDouble(), 0);
+
+        Interpreter.setEngine(Interpreter.Engine.REGISTER);
+        try {
+            Interpreter.init(ThreadResource.getCurrentThreadResource())
+                    .read(clazz.findMethod("testMix", "()V")).execute();
+        } finally {
+            Interpreter.setEngine(Interpreter.Engine.LAMBDA);
+        }
+    }
+
+    public static double mix(int i, long l, float f, double d) {
+        int sum = 0;
+        for (int k = 0; k < i; ++k) {
+            sum += k << 1 ^ k;
+        }
+        short s = (short)(sum * 4099);
+        long x = l * i - (l >>> 60) + s;
+        float y = f * i + (x < 0 ? -f : f);
+        return (x > 0 ? d : -d) + y * 2 + (char)x % 7.0;
+    }
+
+    public static int divide(int a, int b) {
+        // the division by zero has to throw a exception
+        return a / b;
+    }
+
+    public static void testMix() {
+        if (mix(9, 5L, 0.5f, 3.0) != 13.0) {
+            throw new RuntimeException("Register code gets a wrong result.");
+        }
+        if (divide(mix(2, -1L, 1.0f, 1.0) > 0 ? 9 : 8, 3) != 3) {
+            throw new RuntimeException("Register code gets a wrong quotient.");
+        }
+    }
+}